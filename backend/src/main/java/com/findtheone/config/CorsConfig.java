@@ -36,6 +36,11 @@ public class CorsConfig {
             "GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS", "HEAD"
         ));
         
+        // Resumable uploads report progress in headers, paged lists their next cursor
+        configuration.setExposedHeaders(Arrays.asList(
+            "Location", "Upload-Offset", "Upload-Length", "Upload-Expires", "X-Next-Cursor"
+        ));
+        
         // Allow credentials
         configuration.setAllowCredentials(true);
         
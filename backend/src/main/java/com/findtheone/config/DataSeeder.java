@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.Random;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -41,6 +42,9 @@ public class DataSeeder implements CommandLineRunner {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Value("${app.coins.admin-initial-balance:1000}")
+    private int adminInitialBalance;
+
     private Random random = new Random();
 
     @Override
@@ -71,6 +75,7 @@ public class DataSeeder implements CommandLineRunner {
         adminUser.setProfilePhotoUrl("/avatars/admin.svg");
         adminUser.setIsEmailVerified(true); // Admin is pre-verified
         adminUser.setRole(User.Role.ADMIN);
+        adminUser.setCoins(adminInitialBalance);
         userRepository.save(adminUser);
         users.add(adminUser);
 
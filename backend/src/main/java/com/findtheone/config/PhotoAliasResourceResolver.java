@@ -0,0 +1,43 @@
+package com.findtheone.config;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.servlet.resource.ResourceResolver;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+import com.findtheone.service.PhotoStorageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Serves legacy flat photo URLs (/uploads/photos/NAME.jpg) from the
+ * content-addressed file they were migrated into, when the flat file is
+ * no longer there. Registered on the handler rooted at uploads/photos/.
+ */
+public class PhotoAliasResourceResolver implements ResourceResolver {
+
+    private final PhotoStorageService photoStorageService;
+
+    public PhotoAliasResourceResolver(PhotoStorageService photoStorageService) {
+        this.photoStorageService = photoStorageService;
+    }
+
+    @Override
+    public Resource resolveResource(HttpServletRequest request, String requestPath,
+            List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resource = chain.resolveResource(request, requestPath, locations);
+        if (resource != null || requestPath.indexOf('/') >= 0) {
+            return resource;
+        }
+        Optional<String> aliasPath = photoStorageService.findAliasPath(requestPath);
+        return aliasPath.map(path -> chain.resolveResource(request, path, locations)).orElse(null);
+    }
+
+    @Override
+    public String resolveUrlPath(String resourcePath, List<? extends Resource> locations,
+            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourcePath, locations);
+    }
+}
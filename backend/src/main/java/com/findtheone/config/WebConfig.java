@@ -1,24 +1,85 @@
 package com.findtheone.config;
 
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.findtheone.messaging.SseEmitterRegistry;
+import com.findtheone.service.PhotoStorageService;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final Pattern CONTENT_ADDRESSED =
+            Pattern.compile("/photos/[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})\\.[a-z]+$");
+
+    @Value("${app.sse.timeout-ms:1800000}")
+    private long sseTimeoutMs;
+
+    @Value("${app.sse.heartbeat-ms:25000}")
+    private long sseHeartbeatMs;
+
+    @Value("${app.sse.dispatch-threads:4}")
+    private int sseDispatchThreads;
+
+    @Value("${app.sse.dispatch-queue-capacity:20000}")
+    private int sseDispatchQueueCapacity;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Bean
+    public SseEmitterRegistry sseEmitterRegistry() {
+        return new SseEmitterRegistry(sseTimeoutMs, sseHeartbeatMs, sseDispatchThreads, sseDispatchQueueCapacity);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // SSE streams set their own timeout; this only covers other async handlers
+        configurer.setDefaultTimeout(sseTimeoutMs);
+    }
+
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         // Get the absolute path to the uploads directory
         String uploadsPath = Paths.get("uploads").toAbsolutePath().toString();
 
-        // Configure static resource handler for uploads
+        // Photos and chat attachments are written once under content-hash or
+        // random names and never changed, so the URL itself is the version:
+        // they may be kept for a year without revalidating. Chat attachments
+        // are private messages, so only the browser may keep those.
+        CacheControl immutable = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+        CacheControl privateImmutable = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable();
+        registry.addResourceHandler("/uploads/photos/**")
+                .addResourceLocations("file:" + uploadsPath + "/photos/")
+                .setCacheControl(immutable)
+                .setEtagGenerator(WebConfig::strongEtag)
+                // Not cached: a legacy name moves from its flat file to an alias during migration
+                .resourceChain(false)
+                .addResolver(new PhotoAliasResourceResolver(photoStorageService));
+        registry.addResourceHandler("/uploads/chat/**")
+                .addResourceLocations("file:" + uploadsPath + "/chat/")
+                .setCacheControl(privateImmutable)
+                .setEtagGenerator(WebConfig::strongEtag);
+
+        // Everything else under uploads revalidates hourly against its ETag
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:" + uploadsPath + "/")
-                .setCachePeriod(3600); // Cache for 1 hour
+                .setCacheControl(CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic())
+                .setEtagGenerator(WebConfig::strongEtag);
 
         // Also serve from classpath static resources
         registry.addResourceHandler("/static/**")
@@ -41,4 +102,20 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    /**
+     * Content-addressed originals use their SHA-256; other files are never
+     * rewritten in place, so size and modification time identify the bytes
+     */
+    private static String strongEtag(Resource resource) {
+        try {
+            Matcher matcher = CONTENT_ADDRESSED.matcher(resource.getURI().getPath());
+            if (matcher.find()) {
+                return matcher.group(1);
+            }
+            return Long.toHexString(resource.contentLength()) + "-" + Long.toHexString(resource.lastModified());
+        } catch (IOException e) {
+            return null;
+        }
+    }
 }
@@ -1,25 +1,196 @@
 package com.findtheone.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import com.findtheone.messaging.BrokerRelay;
+import com.findtheone.messaging.ExternalBrokerRelay;
+import com.findtheone.messaging.InMemoryBrokerRelay;
+import com.findtheone.messaging.SessionOrderedExecutor;
+import com.findtheone.messaging.SessionOutboundGuard;
+import com.findtheone.messaging.UserDestinationInterceptor;
+import com.findtheone.messaging.WebSocketSessionRegistry;
+import com.findtheone.security.AuthTokenFilter;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    public static final String BROKER_EMBEDDED = "embedded";
+    public static final String BROKER_RELAY = "relay";
+
+    // Absent when the messaging config runs without web security, e.g. in tests
+    @Autowired(required = false)
+    private AuthTokenFilter authTokenFilter;
+
+    @Value("${app.websocket.broker:embedded}")
+    private String brokerMode;
+
+    @Value("${app.websocket.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${app.websocket.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${app.websocket.relay.client-login:guest}")
+    private String relayClientLogin;
+
+    @Value("${app.websocket.relay.client-passcode:guest}")
+    private String relayClientPasscode;
+
+    @Value("${app.websocket.relay.system-login:guest}")
+    private String relaySystemLogin;
+
+    @Value("${app.websocket.relay.system-passcode:guest}")
+    private String relaySystemPasscode;
+
+    // Slow-consumer protection
+    @Value("${app.websocket.session.max-queued-messages:200}")
+    private int maxQueuedMessages;
+
+    @Value("${app.websocket.session.droppable-threshold:20}")
+    private int droppableThreshold;
+
+    @Value("${app.websocket.session.overflow-policy:DISCONNECT}")
+    private SessionOutboundGuard.OverflowPolicy overflowPolicy;
+
+    @Value("${app.websocket.session.send-time-limit-ms:10000}")
+    private int sendTimeLimitMs;
+
+    @Value("${app.websocket.session.send-buffer-size-limit:524288}")
+    private int sendBufferSizeLimit;
+
+    @Value("${app.websocket.session.message-size-limit:65536}")
+    private int messageSizeLimit;
+
+    @Value("${app.websocket.session.heartbeat-ms:25000}")
+    private long heartbeatMs;
+
+    // STOMP channel executors
+    @Value("${app.websocket.inbound.core-pool-size:8}")
+    private int inboundCorePoolSize;
+
+    @Value("${app.websocket.inbound.max-pool-size:32}")
+    private int inboundMaxPoolSize;
+
+    @Value("${app.websocket.inbound.queue-capacity:10000}")
+    private int inboundQueueCapacity;
+
+    @Value("${app.websocket.outbound.core-pool-size:16}")
+    private int outboundCorePoolSize;
+
+    @Value("${app.websocket.outbound.max-pool-size:64}")
+    private int outboundMaxPoolSize;
+
+    @Value("${app.websocket.outbound.queue-capacity:50000}")
+    private int outboundQueueCapacity;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
+        if (BROKER_RELAY.equalsIgnoreCase(brokerMode)) {
+            // External broker shared by all nodes - a message published on one node
+            // reaches subscribers connected to any other node
+            config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayClientLogin)
+                    .setClientPasscode(relayClientPasscode)
+                    .setSystemLogin(relaySystemLogin)
+                    .setSystemPasscode(relaySystemPasscode);
+        } else {
+            // Heartbeats let the broker notice dead mobile clients instead of buffering for them
+            config.enableSimpleBroker("/topic")
+                    .setHeartbeatValue(new long[] { heartbeatMs, heartbeatMs })
+                    .setTaskScheduler(heartbeatScheduler());
+        }
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // A session that cannot flush within these limits is closed by the transport
+        registration.setSendTimeLimit(sendTimeLimitMs)
+                .setSendBufferSizeLimit(sendBufferSizeLimit)
+                .setMessageSizeLimit(messageSizeLimit)
+                .addDecoratorFactory(webSocketSessionRegistry());
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor()
+                .corePoolSize(inboundCorePoolSize)
+                .maxPoolSize(inboundMaxPoolSize)
+                .queueCapacity(inboundQueueCapacity)
+                .keepAliveSeconds(60);
+        registration.interceptors(userDestinationInterceptor());
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        // Per-session ordering on a shared pool; frames waiting for their session
+        // are counted by the guard, so its limits apply to the real backlog
+        registration.executor(new SessionOrderedExecutor(outboundSendExecutor()));
+        registration.interceptors(sessionOutboundGuard());
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+
+    @Bean
+    public WebSocketSessionRegistry webSocketSessionRegistry() {
+        return new WebSocketSessionRegistry();
+    }
+
+    @Bean
+    public UserDestinationInterceptor userDestinationInterceptor() {
+        return new UserDestinationInterceptor(authTokenFilter != null ? authTokenFilter::authenticate : null);
+    }
+
+    @Bean
+    public SessionOutboundGuard sessionOutboundGuard() {
+        return new SessionOutboundGuard(maxQueuedMessages, droppableThreshold, overflowPolicy,
+                webSocketSessionRegistry());
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor outboundSendExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(outboundCorePoolSize);
+        executor.setMaxPoolSize(outboundMaxPoolSize);
+        executor.setQueueCapacity(outboundQueueCapacity);
+        executor.setKeepAliveSeconds(60);
+        executor.setThreadNamePrefix("ws-outbound-");
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler heartbeatScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("ws-heartbeat-");
+        return scheduler;
+    }
+
+    @Bean
+    public BrokerRelay brokerRelay(SimpMessageSendingOperations brokerMessagingTemplate) {
+        if (BROKER_RELAY.equalsIgnoreCase(brokerMode)) {
+            return new ExternalBrokerRelay(brokerMessagingTemplate);
+        }
+        return new InMemoryBrokerRelay(brokerMessagingTemplate);
+    }
 }
@@ -1,20 +1,38 @@
 package com.findtheone.controller;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.findtheone.entity.BonusCampaign;
 import com.findtheone.entity.User;
 import com.findtheone.entity.VideoVerification;
+import com.findtheone.messaging.SessionOutboundGuard;
+import com.findtheone.messaging.SseEmitterRegistry;
+import com.findtheone.messaging.WebSocketSessionRegistry;
+import com.findtheone.repository.BonusCampaignRepository;
 import com.findtheone.repository.UserRepository;
 import com.findtheone.repository.VideoVerificationRepository;
+import com.findtheone.security.BoundedPasswordEncoder;
+import com.findtheone.security.UserSnapshotCache;
+import com.findtheone.service.BonusCampaignService;
+import com.findtheone.service.LedgerReconciliationService;
+import com.findtheone.service.MediaGarbageCollector;
+import com.findtheone.service.PhotoDerivativeService;
+import com.findtheone.service.PhotoStorageService;
 import com.findtheone.service.UrlService;
 
 @RestController
@@ -31,6 +49,131 @@ public class AdminController {
     @Autowired
     private UrlService urlService;
 
+    @Autowired
+    private BonusCampaignService bonusCampaignService;
+
+    @Autowired
+    private BonusCampaignRepository bonusCampaignRepository;
+
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+
+    @Autowired
+    private MediaGarbageCollector mediaGarbageCollector;
+
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
+    @Autowired
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private SessionOutboundGuard sessionOutboundGuard;
+
+    @Autowired
+    private WebSocketSessionRegistry webSocketSessionRegistry;
+
+    @Autowired
+    private SseEmitterRegistry sseEmitterRegistry;
+
+    @Autowired
+    @Qualifier("clientInboundChannelExecutor")
+    private ThreadPoolTaskExecutor clientInboundChannelExecutor;
+
+    @Autowired
+    @Qualifier("clientOutboundChannelExecutor")
+    private ThreadPoolTaskExecutor clientOutboundChannelExecutor;
+
+    /**
+     * WebSocket delivery metrics - open sessions, per-session queue depth, drops,
+     * send latency and STOMP channel executor backlog
+     */
+    @GetMapping("/websocket/stats")
+    public ResponseEntity<?> getWebSocketStats() {
+        Map<String, Object> stats = new HashMap<>(sessionOutboundGuard.getStats());
+        stats.put("openSessions", webSocketSessionRegistry.getSessionCount());
+        stats.put("inboundExecutor", executorStats(clientInboundChannelExecutor));
+        stats.put("outboundExecutor", executorStats(clientOutboundChannelExecutor));
+        stats.put("sse", sseEmitterRegistry.getStats());
+        return ResponseEntity.ok(stats);
+    }
+
+    /**
+     * Password hashing pool - queue depth, rejections and average BCrypt time
+     */
+    @GetMapping("/password-hashing/stats")
+    public ResponseEntity<?> getPasswordHashingStats() {
+        return ResponseEntity.ok(passwordEncoder.getStats());
+    }
+
+    /**
+     * Generate thumbnail and medium variants for existing photos in the
+     * background, throttled to leave CPU for live traffic
+     */
+    @PostMapping("/photo-derivatives/backfill")
+    public ResponseEntity<?> startPhotoDerivativeBackfill() {
+        if (!photoDerivativeService.startBackfill()) {
+            return ResponseEntity.status(409).body(Map.of("error", "Backfill is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Backfill started"));
+    }
+
+    @GetMapping("/photo-derivatives/stats")
+    public ResponseEntity<?> getPhotoDerivativeStats() {
+        return ResponseEntity.ok(photoDerivativeService.getStats());
+    }
+
+    /**
+     * Move flat legacy uploads into content-addressed storage in the
+     * background. Old URLs keep resolving through aliases.
+     */
+    @PostMapping("/photo-storage/migrate")
+    public ResponseEntity<?> startPhotoStorageMigration() {
+        if (!photoStorageService.startMigration()) {
+            return ResponseEntity.status(409).body(Map.of("error", "Migration is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Migration started"));
+    }
+
+    @GetMapping("/photo-storage/migration")
+    public ResponseEntity<?> getPhotoStorageMigration() {
+        return ResponseEntity.ok(photoStorageService.getMigrationStats());
+    }
+
+    /**
+     * Start a pass of the orphaned media collector in the background. Dry run
+     * unless asked otherwise: it only reports what it would delete.
+     */
+    @PostMapping("/media-gc/run")
+    public ResponseEntity<?> runMediaGarbageCollection(@RequestParam(defaultValue = "true") boolean dryRun) {
+        if (!mediaGarbageCollector.startAsync(dryRun)) {
+            return ResponseEntity.status(409).body(Map.of("error", "Media garbage collection is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Media garbage collection started", "dryRun", dryRun));
+    }
+
+    @GetMapping("/media-gc")
+    public ResponseEntity<?> getMediaGarbageCollection() {
+        Map<String, Object> body = new HashMap<>();
+        body.put("running", mediaGarbageCollector.isRunning());
+        body.put("report", mediaGarbageCollector.getLastReport());
+        return ResponseEntity.ok(body);
+    }
+
+    private Map<String, Object> executorStats(ThreadPoolTaskExecutor executor) {
+        return Map.of(
+                "activeThreads", executor.getActiveCount(),
+                "poolSize", executor.getPoolSize(),
+                "maxPoolSize", executor.getMaxPoolSize(),
+                "queueSize", executor.getQueueSize());
+    }
+
     /**
      * Fix profile photo URLs in the database
      * This endpoint helps migrate from old IP-based URLs to localhost URLs
@@ -51,8 +194,10 @@ public class AdminController {
                         System.out.println("Updating user " + user.getEmail() +
                                 " photo URL from: " + originalUrl +
                                 " to: " + normalizedUrl);
+                        photoStorageService.replaceProfileReference(originalUrl, normalizedUrl);
                         user.setProfilePhotoUrl(normalizedUrl);
                         userRepository.save(user);
+                        userSnapshotCache.invalidate(user.getId());
                         updatedCount++;
                     }
                 }
@@ -106,6 +251,7 @@ public class AdminController {
                     System.out.println("Verifying email for user: " + user.getEmail());
                     user.setIsEmailVerified(true);
                     userRepository.save(user);
+                    userSnapshotCache.invalidate(user.getId());
                     updatedCount++;
                 }
             }
@@ -164,4 +310,89 @@ public class AdminController {
                     "error", "Failed to get pending verifications: " + e.getMessage()));
         }
     }
+
+    /**
+     * Create a bonus-coin campaign. Body: name, coinAmount, optional
+     * description, segment (ALL_ACTIVE or EMAIL_VERIFIED) and chunkSize
+     */
+    @PostMapping("/campaigns")
+    public ResponseEntity<?> createCampaign(@RequestBody Map<String, Object> request) {
+        try {
+            String name = (String) request.get("name");
+            if (name == null || request.get("coinAmount") == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "name and coinAmount are required"));
+            }
+            BonusCampaign.Segment segment = request.get("segment") != null
+                    ? BonusCampaign.Segment.valueOf(request.get("segment").toString())
+                    : null;
+            Integer chunkSize = request.get("chunkSize") != null
+                    ? Integer.valueOf(request.get("chunkSize").toString())
+                    : null;
+
+            BonusCampaign campaign = bonusCampaignService.createCampaign(name,
+                    Integer.parseInt(request.get("coinAmount").toString()),
+                    (String) request.get("description"), segment, chunkSize);
+            return ResponseEntity.ok(bonusCampaignService.getProgress(campaign));
+
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "Failed to create campaign: " + e.getMessage()));
+        }
+    }
+
+    @PostMapping("/campaigns/{campaignId}/start")
+    public ResponseEntity<?> startCampaign(@PathVariable Long campaignId) {
+        try {
+            return ResponseEntity.ok(bonusCampaignService.getProgress(bonusCampaignService.startCampaign(campaignId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/campaigns/{campaignId}/pause")
+    public ResponseEntity<?> pauseCampaign(@PathVariable Long campaignId) {
+        try {
+            return ResponseEntity.ok(bonusCampaignService.getProgress(bonusCampaignService.pauseCampaign(campaignId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Campaign progress with live throughput for campaigns running on this node
+     */
+    @GetMapping("/campaigns")
+    public ResponseEntity<?> getCampaigns() {
+        List<Map<String, Object>> campaigns = bonusCampaignRepository.findAllByOrderByCreatedAtDesc().stream()
+                .map(bonusCampaignService::getProgress)
+                .toList();
+        return ResponseEntity.ok(Map.of("campaigns", campaigns));
+    }
+
+    @GetMapping("/campaigns/{campaignId}")
+    public ResponseEntity<?> getCampaign(@PathVariable Long campaignId) {
+        return bonusCampaignRepository.findById(campaignId)
+                .<ResponseEntity<?>>map(campaign -> ResponseEntity.ok(bonusCampaignService.getProgress(campaign)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Start a ledger reconciliation pass in the background
+     */
+    @PostMapping("/reconciliation/run")
+    public ResponseEntity<?> runReconciliation() {
+        if (!ledgerReconciliationService.startAsync()) {
+            return ResponseEntity.status(409).body(Map.of("error", "Reconciliation is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Reconciliation started"));
+    }
+
+    @GetMapping("/reconciliation")
+    public ResponseEntity<?> getReconciliation() {
+        LedgerReconciliationService.ReconciliationReport report = ledgerReconciliationService.getLastReport();
+        Map<String, Object> body = new HashMap<>();
+        body.put("running", ledgerReconciliationService.isRunning());
+        body.put("report", report);
+        return ResponseEntity.ok(body);
+    }
 }
@@ -3,6 +3,8 @@ package com.findtheone.controller;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -22,14 +24,19 @@ import com.findtheone.dto.AuthResponse;
 import com.findtheone.dto.LoginRequest;
 import com.findtheone.dto.RegisterRequest;
 import com.findtheone.entity.User;
+import com.findtheone.exception.PasswordHashingBusyException;
 import com.findtheone.repository.UserRepository;
+import com.findtheone.security.AuthRateLimiter;
 import com.findtheone.security.JwtUtils;
 import com.findtheone.service.EmailVerificationService;
+import com.findtheone.service.PhotoStorageService;
+import com.findtheone.service.RefreshTokenService;
 import com.findtheone.service.UserPhotoService;
 import com.findtheone.util.LoggingUtils;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.util.Map;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -53,15 +60,34 @@ public class AuthController {
     @Autowired
     UserPhotoService userPhotoService;
 
+    @Autowired
+    PhotoStorageService photoStorageService;
+
     @Autowired
     EmailVerificationService emailVerificationService;
 
+    @Autowired
+    RefreshTokenService refreshTokenService;
+
+    @Autowired
+    AuthRateLimiter authRateLimiter;
+
+    @Value("${app.rate-limit.trusted-proxies:127\\.\\d+\\.\\d+\\.\\d+|0:0:0:0:0:0:0:1|::1|10\\.\\d+\\.\\d+\\.\\d+|192\\.168\\.\\d+\\.\\d+|172\\.(1[6-9]|2\\d|3[01])\\.\\d+\\.\\d+}")
+    private String trustedProxies;
+
     @PostMapping("/signin")
     public ResponseEntity<?> authenticateUser(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
         
         long startTime = System.currentTimeMillis();
         String clientIp = getClientIpAddress(request);
         
+        long retryAfter = authRateLimiter.checkSignin(clientIp, loginRequest.getEmail());
+        if (retryAfter > 0) {
+            LoggingUtils.logSecurityEvent(logger, "LOGIN_THROTTLED", loginRequest.getEmail(), clientIp, "Too many sign-in attempts");
+            LoggingUtils.logApiAccess(logger, "/api/auth/signin", "POST", loginRequest.getEmail(), 429);
+            return tooManyAttempts(retryAfter);
+        }
+
         try {
             LoggingUtils.logSecurityEvent(logger, "LOGIN_ATTEMPT", loginRequest.getEmail(), clientIp, "User attempting to sign in");
             
@@ -87,23 +113,62 @@ public class AuthController {
             }
             
             String jwt = jwtUtils.generateJwtToken(authentication);
+            String refreshToken = refreshTokenService.issue(user.getId());
             
             long duration = System.currentTimeMillis() - startTime;
             LoggingUtils.logSecurityEvent(logger, "LOGIN_SUCCESS", user.getEmail(), clientIp, "User successfully authenticated");
             LoggingUtils.logPerformance(logger, "authenticate_user", duration, "Login authentication completed");
             LoggingUtils.logApiAccess(logger, "/api/auth/signin", "POST", user.getEmail(), 200);
 
-            return ResponseEntity.ok(new AuthResponse(jwt, user.getId(), user.getEmail(), user.getName()));
+            return ResponseEntity.ok(new AuthResponse(jwt, refreshToken, user.getId(), user.getEmail(), user.getName()));
             
         } catch (Exception e) {
             long duration = System.currentTimeMillis() - startTime;
             LoggingUtils.logSecurityEvent(logger, "LOGIN_FAILURE", loginRequest.getEmail(), clientIp, "Authentication failed: " + e.getMessage());
             LoggingUtils.logError(logger, "authenticate_user", e, "Login attempt failed for email: " + loginRequest.getEmail());
             LoggingUtils.logApiAccess(logger, "/api/auth/signin", "POST", loginRequest.getEmail(), 401);
+            // Unknown-user lookups wrap hashing failures in InternalAuthenticationServiceException
+            if (e.getCause() instanceof PasswordHashingBusyException) {
+                throw (PasswordHashingBusyException) e.getCause();
+            }
             throw e;
         }
     }
 
+    /**
+     * Exchange a refresh token for a new access token and a new refresh token.
+     * Body: refreshToken
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refreshToken(@RequestBody Map<String, String> request) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(request.get("refreshToken"));
+        if (rotation.getStatus() != RefreshTokenService.RotationStatus.ROTATED) {
+            return ResponseEntity.status(401).body(Map.of(
+                    "error", "Invalid refresh token",
+                    "reason", rotation.getStatus().name()));
+        }
+
+        Optional<User> user = userRepository.findById(rotation.getUserId());
+        if (user.isEmpty() || !user.get().isEnabled()) {
+            refreshTokenService.revoke(rotation.getRefreshToken());
+            return ResponseEntity.status(401).body(Map.of("error", "Account is disabled"));
+        }
+
+        String jwt = jwtUtils.generateJwtToken(user.get());
+        return ResponseEntity.ok(new AuthResponse(jwt, rotation.getRefreshToken(), user.get().getId(),
+                user.get().getEmail(), user.get().getName()));
+    }
+
+    /**
+     * Revoke the refresh token (and its rotations). The current access token
+     * stays valid until it expires. Body: refreshToken
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestBody Map<String, String> request) {
+        refreshTokenService.revoke(request.get("refreshToken"));
+        return ResponseEntity.ok(Map.of("message", "Signed out"));
+    }
+
     @PostMapping("/signup")
     @Transactional
     public ResponseEntity<?> registerUser(@RequestBody RegisterRequest signUpRequest) {
@@ -129,6 +194,7 @@ public class AuthController {
         user.setProfilePhotoUrl(signUpRequest.getProfilePhotoUrl());
 
         User savedUser = userRepository.save(user);
+        photoStorageService.replaceProfileReference(null, savedUser.getProfilePhotoUrl());
 
         // Automatically create a UserPhoto entry for the uploaded profile picture
         try {
@@ -154,10 +220,15 @@ public class AuthController {
     }
 
     @PostMapping("/verify-email")
-    public ResponseEntity<?> verifyEmail(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> verifyEmail(@RequestBody Map<String, String> request, HttpServletRequest httpRequest) {
         String email = request.get("email");
         String code = request.get("code");
 
+        long retryAfter = authRateLimiter.checkVerifyEmail(getClientIpAddress(httpRequest), email);
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
+
         if (email == null || email.trim().isEmpty() || code == null || code.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Email and verification code are required"));
         }
@@ -176,9 +247,15 @@ public class AuthController {
     }
 
     @PostMapping("/resend-verification")
-    public ResponseEntity<?> resendVerificationCode(@RequestBody Map<String, String> request) {
+    public ResponseEntity<?> resendVerificationCode(@RequestBody Map<String, String> request,
+            HttpServletRequest httpRequest) {
         String email = request.get("email");
 
+        long retryAfter = authRateLimiter.checkResendVerification(getClientIpAddress(httpRequest), email);
+        if (retryAfter > 0) {
+            return tooManyAttempts(retryAfter);
+        }
+
         if (email == null || email.trim().isEmpty()) {
             return ResponseEntity.badRequest().body(Map.of("error", "Email is required"));
         }
@@ -239,20 +316,26 @@ public class AuthController {
         }
     }
     
+    private ResponseEntity<?> tooManyAttempts(long retryAfterSeconds) {
+        return ResponseEntity.status(429)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of(
+                        "error", "Too many attempts",
+                        "message", "Too many attempts. Please try again in " + retryAfterSeconds + " seconds.",
+                        "retryAfter", retryAfterSeconds));
+    }
+
     /**
-     * Extract real client IP address considering proxy headers
+     * Client IP for throttling. X-Forwarded-For is ignored because its first
+     * entry comes from the client; X-Real-IP is only believed when the request
+     * arrives from a trusted proxy that overwrites it (see nginx.conf).
      */
     private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty() && !"unknown".equalsIgnoreCase(xForwardedFor)) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
+        String remoteAddr = request.getRemoteAddr();
         String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty() && !"unknown".equalsIgnoreCase(xRealIp)) {
-            return xRealIp;
+        if (xRealIp != null && !xRealIp.isBlank() && remoteAddr != null && remoteAddr.matches(trustedProxies)) {
+            return xRealIp.trim();
         }
-        
-        return request.getRemoteAddr();
+        return remoteAddr;
     }
 }
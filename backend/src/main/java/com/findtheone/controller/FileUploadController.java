@@ -1,16 +1,25 @@
 package com.findtheone.controller;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.findtheone.service.ImageUploadService;
+import com.findtheone.service.PhotoDerivativeService;
+import com.findtheone.service.PhotoStorageService;
+
+import jakarta.servlet.http.HttpServletRequest;
+
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/upload")
@@ -19,90 +28,75 @@ public class FileUploadController {
 
     private static final String UPLOAD_DIR = "uploads/photos/";
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
-    private static final String[] ALLOWED_EXTENSIONS = { ".jpg", ".jpeg", ".png", ".gif", ".webp" };
-    private static final String BASE_URL = "http://localhost:8091"; // Changed from 192.168.1.230 to localhost
 
-    @PostMapping("/photo")
-    public ResponseEntity<?> uploadPhoto(@RequestParam("file") MultipartFile file) {
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
+    /**
+     * Preferred upload path: the raw image is the request body, so it is
+     * streamed straight to disk, hashed and validated in a single pass
+     * instead of being spooled by the multipart resolver first.
+     */
+    @PostMapping(value = "/photo", consumes = { "image/*", MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<?> uploadPhotoStream(HttpServletRequest request) {
+        if (request.getContentLengthLong() > MAX_FILE_SIZE) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "File size must be less than 10MB"));
+        }
         try {
-            System.out.println("Upload request received. File: " +
-                    (file != null ? file.getOriginalFilename() : "null") +
-                    ", Size: " + (file != null ? file.getSize() : "null"));
-
-            // Validate file
-            if (file.isEmpty()) {
-                System.out.println("Error: File is empty");
-                return ResponseEntity.badRequest().body(Map.of("error", "Please select a file to upload"));
-            }
-
-            if (file.getSize() > MAX_FILE_SIZE) {
-                System.out.println("Error: File too large. Size: " + file.getSize());
-                return ResponseEntity.badRequest().body(Map.of("error", "File size must be less than 10MB"));
-            }
-
-            String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null) {
-                System.out.println("Error: Filename is null");
-                return ResponseEntity.badRequest().body(Map.of("error", "Invalid file"));
-            }
-
-            // Check file extension
-            String lowercaseFilename = originalFilename.toLowerCase();
-            boolean validExtension = false;
-            for (String ext : ALLOWED_EXTENSIONS) {
-                if (lowercaseFilename.endsWith(ext)) {
-                    validExtension = true;
-                    break;
-                }
-            }
-
-            if (!validExtension) {
-                System.out.println("Error: Invalid extension for file: " + originalFilename);
-                return ResponseEntity.badRequest().body(Map.of(
-                        "error", "Only image files are allowed (jpg, jpeg, png, gif, webp)"));
-            }
-
-            // Create upload directory if it doesn't exist
-            Path uploadPath = Paths.get(UPLOAD_DIR);
-            if (!Files.exists(uploadPath)) {
-                System.out.println("Creating upload directory: " + uploadPath.toAbsolutePath());
-                Files.createDirectories(uploadPath);
-            }
-
-            // Generate unique filename
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf('.'));
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-            Path filePath = uploadPath.resolve(uniqueFilename);
-
-            System.out.println("Saving file to: " + filePath.toAbsolutePath());
-
-            // Copy file to upload directory
-            Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-            // Return the relative file URL (Spring will serve this as static content)
-            String fileUrl = "/uploads/photos/" + uniqueFilename;
-            System.out.println("File uploaded successfully. URL: " + fileUrl);
-
-            return ResponseEntity.ok(Map.of(
-                    "url", fileUrl,
-                    "relativePath", fileUrl,
-                    "originalName", originalFilename,
-                    "size", file.getSize(),
-                    "message", "File uploaded successfully"));
-
+            return storePhoto(request.getInputStream(), null);
         } catch (IOException e) {
-            System.err.println("IOException during file upload: " + e.getMessage());
-            e.printStackTrace();
             return ResponseEntity.internalServerError().body(Map.of(
                     "error", "Failed to upload file: " + e.getMessage()));
-        } catch (Exception e) {
-            System.err.println("Unexpected error during file upload: " + e.getMessage());
-            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Multipart upload, kept for older clients. Goes through the same
+     * signature check as the streaming path.
+     */
+    @PostMapping(value = "/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadPhoto(@RequestParam("file") MultipartFile file) {
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Please select a file to upload"));
+        }
+        if (file.getSize() > MAX_FILE_SIZE) {
+            return ResponseEntity.badRequest().body(Map.of("error", "File size must be less than 10MB"));
+        }
+        try (InputStream in = file.getInputStream()) {
+            return storePhoto(in, file.getOriginalFilename());
+        } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of(
-                    "error", "Unexpected error: " + e.getMessage()));
+                    "error", "Failed to upload file: " + e.getMessage()));
         }
     }
 
+    private ResponseEntity<?> storePhoto(InputStream body, String originalName) throws IOException {
+        ImageUploadService.StoredImage stored;
+        try {
+            stored = photoStorageService.store(body, MAX_FILE_SIZE);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        // Spring serves this as static content
+        String fileUrl = photoStorageService.urlFor(stored);
+        // Start on the variants now so they are usually ready by the time the profile is saved
+        photoDerivativeService.submit(fileUrl);
+        Map<String, Object> response = new HashMap<>();
+        response.put("url", fileUrl);
+        response.put("relativePath", fileUrl);
+        response.put("originalName", originalName != null ? originalName : stored.getFilename());
+        response.put("size", stored.getSize());
+        response.put("contentType", stored.getType().getContentType());
+        response.put("sha256", stored.getSha256());
+        response.put("message", "File uploaded successfully");
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/photo")
     public ResponseEntity<?> deletePhoto(@RequestParam("url") String photoUrl) {
         try {
@@ -111,11 +105,17 @@ public class FileUploadController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Invalid photo URL"));
             }
 
+            // Content-addressed files may be shared by identical uploads; unreferenced ones are swept later
+            if (photoStorageService.isContentAddressed(photoUrl)) {
+                return ResponseEntity.ok(Map.of("message", "Photo deleted successfully"));
+            }
+
             String filename = photoUrl.replace("/uploads/photos/", "");
             Path filePath = Paths.get(UPLOAD_DIR, filename);
 
             if (Files.exists(filePath)) {
                 Files.delete(filePath);
+                photoDerivativeService.deleteDerivatives(photoUrl);
                 return ResponseEntity.ok(Map.of("message", "Photo deleted successfully"));
             } else {
                 return ResponseEntity.ok(Map.of("message", "Photo not found"));
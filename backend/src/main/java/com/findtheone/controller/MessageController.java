@@ -1,10 +1,12 @@
 package com.findtheone.controller;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
@@ -15,15 +17,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.findtheone.dto.MessageRequest;
 import com.findtheone.entity.Message;
 import com.findtheone.entity.User;
-import com.findtheone.repository.MessageRepository;
+import com.findtheone.messaging.SseEmitterRegistry;
+import com.findtheone.service.ChatAttachmentService;
 import com.findtheone.service.CoinService;
 import com.findtheone.service.MessageService;
+import com.findtheone.service.RealtimeService;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/messages")
@@ -37,7 +46,13 @@ public class MessageController {
     private CoinService coinService;
 
     @Autowired
-    private MessageRepository messageRepository;
+    private ChatAttachmentService chatAttachmentService;
+
+    @Autowired
+    private SseEmitterRegistry sseEmitterRegistry;
+
+    @Autowired
+    private RealtimeService realtimeService;
 
     @PostMapping("/send")
     public ResponseEntity<?> sendMessage(Authentication authentication, @RequestBody MessageRequest messageRequest) {
@@ -55,6 +70,44 @@ public class MessageController {
         }
     }
 
+    /**
+     * Send an image message. The image is the raw request body (Content-Type
+     * image/jpeg, png, gif or webp) so it is streamed straight to disk instead
+     * of going through multipart buffering.
+     */
+    @PostMapping("/attachment")
+    public ResponseEntity<?> sendImageMessage(Authentication authentication,
+            @RequestParam Long receiverId,
+            @RequestParam(required = false) String caption,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            HttpServletRequest request) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
+        }
+
+        if (!ChatAttachmentService.isSupportedType(contentType)) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of(
+                    "error", "Only image/jpeg, image/png, image/gif and image/webp are allowed"));
+        }
+
+        if (request.getContentLengthLong() > chatAttachmentService.getMaxAttachmentSize()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "Attachment too large"));
+        }
+
+        User user = (User) authentication.getPrincipal();
+        try {
+            Message message = chatAttachmentService.sendImageMessage(user.getId(), receiverId, contentType,
+                    request.getInputStream(), caption);
+            return ResponseEntity.ok(message);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to store attachment: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/conversation/{otherUserId}")
     public ResponseEntity<List<Message>> getConversation(Authentication authentication,
             @PathVariable Long otherUserId) {
@@ -76,60 +129,79 @@ public class MessageController {
         User user = (User) authentication.getPrincipal();
         Long messageId = Long.valueOf(request.get("messageId").toString());
 
-        // Check if message exists and user can access it
-        Optional<Message> messageOpt = messageRepository.findById(messageId);
-        if (messageOpt.isEmpty()) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "error", "invalid request",
-                    "message", "Message not found"));
-        }
-
-        Message message = messageOpt.get();
-
-        // Check if user is trying to unlock their own sent message
-        if (message.getSender().getId().equals(user.getId())) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "error", "invalid request",
-                    "message", "Cannot unlock your own sent messages"));
+        switch (messageService.unlockMessage(messageId, user.getId())) {
+            case UNLOCKED:
+                return ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "Message unlocked and marked as read"));
+            case ALREADY_UNLOCKED:
+                return ResponseEntity.ok(Map.of(
+                        "success", true,
+                        "message", "Message already unlocked",
+                        "alreadyUnlocked", true));
+            case INSUFFICIENT_COINS:
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "insufficient coins",
+                        "message", "You need at least 1 coin to unlock this message",
+                        "coinsNeeded", MessageService.MESSAGE_UNLOCK_COST,
+                        "currentCoins", coinService.getUserCoins(user.getId())));
+            case NOT_FOUND:
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "invalid request",
+                        "message", "Message not found"));
+            case OWN_MESSAGE:
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "invalid request",
+                        "message", "Cannot unlock your own sent messages"));
+            default:
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "invalid request",
+                        "message", "Access denied - not your message"));
         }
+    }
 
-        // Check if user is the receiver
-        if (!message.getReceiver().getId().equals(user.getId())) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "error", "invalid request",
-                    "message", "Access denied - not your message"));
+    /**
+     * Unlock every locked message received from the other user in one charge
+     */
+    @PostMapping("/unlock/conversation/{otherUserId}")
+    public ResponseEntity<?> unlockConversation(Authentication authentication, @PathVariable Long otherUserId) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
         }
 
-        // Check if message is already unlocked (avoid double processing)
-        if (message.getIsUnlocked()) {
-            // Already unlocked, just mark as read
-            messageService.markMessageAsRead(messageId);
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Message already unlocked",
-                    "alreadyUnlocked", true));
-        }
+        User user = (User) authentication.getPrincipal();
+        MessageService.ConversationUnlockResult result = messageService.unlockConversation(user.getId(), otherUserId);
 
-        // Now check if user has enough coins for unlocking
-        if (!coinService.canAffordMessage(user.getId())) {
+        if (result.getResult() == MessageService.UnlockResult.INSUFFICIENT_COINS) {
             return ResponseEntity.badRequest().body(Map.of(
                     "error", "insufficient coins",
-                    "message", "You need at least 1 coin to unlock this message",
-                    "coinsNeeded", 1,
+                    "message", "You need " + result.getMessageCount() + " coins to unlock this conversation",
+                    "coinsNeeded", result.getMessageCount() * MessageService.MESSAGE_UNLOCK_COST,
                     "currentCoins", coinService.getUserCoins(user.getId())));
         }
 
-        boolean success = messageService.unlockAndReadMessage(messageId, user.getId());
+        return ResponseEntity.ok(Map.of(
+                "success", true,
+                "unlockedCount", result.getMessageCount(),
+                "coinsSpent", result.getMessageCount() * MessageService.MESSAGE_UNLOCK_COST));
+    }
 
-        if (success) {
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Message unlocked and marked as read"));
-        } else {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "error", "invalid request",
-                    "message", "Failed to unlock message"));
+    /**
+     * Server-Sent Events inbox for clients that cannot use STOMP. Emits
+     * "message", "unread-count" and "match" events; the current unread count
+     * is sent as soon as the stream opens. EventSource cannot set headers, so
+     * the JWT may also be passed as ?token=
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamInbox(Authentication authentication) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
+            return ResponseEntity.status(401).body(Map.of("error", "Authentication required"));
         }
+
+        User user = (User) authentication.getPrincipal();
+        SseEmitter emitter = sseEmitterRegistry.register(user.getId());
+        realtimeService.sendUnreadCount(user.getId());
+        return ResponseEntity.ok(emitter);
     }
 
     @GetMapping("/unread")
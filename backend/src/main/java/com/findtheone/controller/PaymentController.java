@@ -2,25 +2,33 @@ package com.findtheone.controller;
 
 import com.findtheone.entity.Transaction;
 import com.findtheone.entity.User;
+import com.findtheone.payment.PurchaseResult;
 import com.findtheone.service.CoinService;
+import com.findtheone.service.PaymentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payment")
 @CrossOrigin(origins = "*", maxAge = 3600)
 public class PaymentController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private CoinService coinService;
 
+    @Autowired
+    private PaymentService paymentService;
+
     @GetMapping("/coins")
     public ResponseEntity<Map<String, Object>> getUserCoins(Authentication authentication) {
         // Temporary fix: use hardcoded user ID 1 when authentication is null
@@ -39,52 +47,52 @@ public class PaymentController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Buy a coin package. The response is produced asynchronously once the
+     * gateway answers, so the request thread is released while waiting. Send an
+     * Idempotency-Key header to make retries safe - a repeated key returns the
+     * original transaction instead of charging again.
+     */
     @PostMapping("/purchase")
-    public ResponseEntity<Map<String, Object>> purchaseCoins(
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> purchaseCoins(
             Authentication authentication,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Map<String, Object> purchaseRequest) {
 
         User user = (User) authentication.getPrincipal();
-
-        // Extract purchase details
         String packageType = (String) purchaseRequest.get("package");
 
-        // Define coin packages
-        Map<String, Map<String, Object>> packages = new HashMap<>();
-        packages.put("starter", Map.of("coins", 25, "price", new BigDecimal("4.99")));
-        packages.put("popular", Map.of("coins", 60, "price", new BigDecimal("9.99")));
-        packages.put("premium", Map.of("coins", 150, "price", new BigDecimal("19.99")));
-        packages.put("ultimate", Map.of("coins", 350, "price", new BigDecimal("39.99")));
-
-        if (!packages.containsKey(packageType)) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid package type"));
-        }
-
-        Map<String, Object> selectedPackage = packages.get(packageType);
-        Integer coinAmount = (Integer) selectedPackage.get("coins");
-        BigDecimal price = (BigDecimal) selectedPackage.get("price");
-
-        try {
-            // Simulate fake payment processing
-            Thread.sleep(1000); // Simulate payment processing time
-
-            Transaction transaction = coinService.purchaseCoins(user.getId(), coinAmount, price);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Purchase successful!");
-            response.put("transaction", Map.of(
-                    "id", transaction.getId(),
-                    "coinAmount", transaction.getCoinAmount(),
-                    "moneyAmount", transaction.getMoneyAmount(),
-                    "paymentId", transaction.getPaymentId()));
-            response.put("newCoinBalance", coinService.getUserCoins(user.getId()));
-
-            return ResponseEntity.ok(response);
+        return paymentService.purchase(user.getId(), packageType, idempotencyKey)
+                .thenApply(result -> toResponse(user.getId(), result));
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().body(Map.of(
-                    "error", "Payment processing failed: " + e.getMessage()));
+    private ResponseEntity<Map<String, Object>> toResponse(Long userId, PurchaseResult result) {
+        switch (result.getStatus()) {
+            case COMPLETED:
+            case REPLAYED:
+                Transaction transaction = result.getTransaction();
+                Map<String, Object> response = new HashMap<>();
+                response.put("success", true);
+                response.put("message", "Purchase successful!");
+                response.put("replayed", result.getStatus() == PurchaseResult.Status.REPLAYED);
+                response.put("transaction", Map.of(
+                        "id", transaction.getId(),
+                        "coinAmount", transaction.getCoinAmount(),
+                        "moneyAmount", transaction.getMoneyAmount(),
+                        "paymentId", transaction.getPaymentId()));
+                response.put("newCoinBalance", coinService.getUserCoins(userId));
+                return ResponseEntity.ok(response);
+            case CHARGED:
+                return ResponseEntity.accepted().body(Map.of("message", result.getMessage()));
+            case INVALID_PACKAGE:
+                return ResponseEntity.badRequest().body(Map.of("error", result.getMessage()));
+            case IN_PROGRESS:
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", result.getMessage()));
+            case KEY_REUSED:
+                return ResponseEntity.unprocessableEntity().body(Map.of("error", result.getMessage()));
+            default:
+                return ResponseEntity.status(HttpStatus.PAYMENT_REQUIRED).body(Map.of(
+                        "error", "Payment processing failed: " + result.getMessage()));
         }
     }
 
@@ -119,11 +127,24 @@ public class PaymentController {
         return ResponseEntity.ok(packages);
     }
 
+    /**
+     * The ledger, newest first, as a JSON array as before. Pages are keyset
+     * based: when more entries follow, X-Next-Cursor holds the id to pass as
+     * beforeId for the next page.
+     */
     @GetMapping("/history")
-    public ResponseEntity<List<Transaction>> getTransactionHistory(Authentication authentication) {
+    public ResponseEntity<List<Transaction>> getTransactionHistory(
+            Authentication authentication,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "" + CoinService.MAX_HISTORY_PAGE_SIZE) int limit) {
         User user = (User) authentication.getPrincipal();
-        List<Transaction> transactions = coinService.getUserTransactionHistory(user.getId());
-        return ResponseEntity.ok(transactions);
+        List<Transaction> transactions = coinService.getTransactionHistory(user.getId(), beforeId, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!transactions.isEmpty() && transactions.size() >= Math.min(limit, CoinService.MAX_HISTORY_PAGE_SIZE)) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(transactions.get(transactions.size() - 1).getId()));
+        }
+        return response.body(transactions);
     }
 
     @PostMapping("/unlock-message")
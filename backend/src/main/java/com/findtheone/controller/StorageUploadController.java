@@ -0,0 +1,65 @@
+package com.findtheone.controller;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.findtheone.storage.LocalObjectStorage;
+import com.findtheone.storage.ObjectStorage;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Receives presigned uploads when media is stored locally. With S3 storage
+ * clients upload to the bucket and this endpoint answers 404.
+ */
+@RestController
+public class StorageUploadController {
+
+    @Autowired
+    private ObjectStorage objectStorage;
+
+    @Value("${app.storage.max-object-size:10485760}")
+    private long maxObjectSize;
+
+    @PutMapping(LocalObjectStorage.UPLOAD_PATH + "**")
+    public ResponseEntity<?> putObject(
+            @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader(value = "Content-Type", required = false) String contentType,
+            HttpServletRequest request) {
+        if (!(objectStorage instanceof LocalObjectStorage local)) {
+            return ResponseEntity.notFound().build();
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String key = URLDecoder.decode(path.substring(LocalObjectStorage.UPLOAD_PATH.length()), StandardCharsets.UTF_8);
+        if (!local.verifyUpload(key, contentType, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Upload URL is invalid or expired"));
+        }
+        if (request.getContentLengthLong() > maxObjectSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of(
+                    "error", "Object exceeds " + maxObjectSize + " bytes"));
+        }
+        try {
+            local.write(key, request.getInputStream(), maxObjectSize);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (FileAlreadyExistsException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Object has already been uploaded"));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Failed to store object: " + e.getMessage()));
+        }
+    }
+}
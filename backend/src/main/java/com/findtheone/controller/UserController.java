@@ -60,10 +60,11 @@ public class UserController {
             // If no profile photo URL is set, set a default one
             if (response.getProfilePhotoUrl() == null || response.getProfilePhotoUrl().trim().isEmpty()) {
                 response.setProfilePhotoUrl("/avatars/avatar1.svg");
-                // Also update the database
-                User userEntity = (User) authentication.getPrincipal();
-                userEntity.setProfilePhotoUrl("/avatars/avatar1.svg");
-                userService.updateUser(userEntity.getId(), userEntity);
+                // Also update the database - the principal is a detached snapshot, so load the entity
+                userService.findById(user.getId()).ifPresent(userEntity -> {
+                    userEntity.setProfilePhotoUrl("/avatars/avatar1.svg");
+                    userService.saveUser(userEntity);
+                });
             }
             return ResponseEntity.ok(response);
         } else {
@@ -152,9 +153,7 @@ public class UserController {
 
         Optional<User> userOptional = userService.findById(user.getId());
         if (userOptional.isPresent()) {
-            User userToUpdate = userOptional.get();
-            userToUpdate.setProfilePhotoUrl(photoUrl);
-            User updatedUser = userService.saveUser(userToUpdate);
+            User updatedUser = userService.updateProfilePhoto(userOptional.get(), photoUrl);
             return ResponseEntity.ok(Map.of(
                     "message", "Profile picture updated successfully",
                     "profilePhotoUrl", updatedUser.getProfilePhotoUrl()));
@@ -1,13 +1,16 @@
 package com.findtheone.controller;
 
+import com.findtheone.dto.PhotoSummaryDTO;
 import com.findtheone.entity.User;
 import com.findtheone.entity.UserPhoto;
 import com.findtheone.service.UserPhotoService;
+import com.findtheone.storage.PresignedUpload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -25,6 +28,22 @@ public class UserPhotoController {
         return ResponseEntity.ok(photos);
     }
 
+    /**
+     * Active photos of several users at once, for rendering a page of profile
+     * cards: GET /batch?userIds=1,2,3. Both answers carry maxUsers, the most
+     * ids one request may ask for.
+     */
+    @GetMapping("/batch")
+    public ResponseEntity<?> getPhotosForUsers(@RequestParam List<Long> userIds) {
+        int maxUsers = userPhotoService.getMaxBatchUsers();
+        try {
+            Map<Long, List<PhotoSummaryDTO>> photos = userPhotoService.getActivePhotosForUsers(userIds);
+            return ResponseEntity.ok(Map.of("photos", photos, "maxUsers", maxUsers));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage(), "maxUsers", maxUsers));
+        }
+    }
+
     @GetMapping("/my-photos")
     public ResponseEntity<List<UserPhoto>> getMyPhotos(Authentication authentication) {
         if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
@@ -36,6 +55,38 @@ public class UserPhotoController {
         return ResponseEntity.ok(photos);
     }
 
+    /**
+     * Get a presigned URL to upload a photo straight to storage. Send the
+     * file there with the returned method and headers, then POST /add with
+     * the objectKey.
+     */
+    @PostMapping("/upload-url")
+    public ResponseEntity<?> createUploadUrl(Authentication authentication, @RequestBody Map<String, Object> request) {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
+            return ResponseEntity.status(401).build();
+        }
+
+        User user = (User) authentication.getPrincipal();
+        Object contentType = request.get("contentType");
+        Object size = request.get("size");
+        if (!(contentType instanceof String) || !(size instanceof Number)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "contentType and size are required"));
+        }
+
+        try {
+            PresignedUpload upload = userPhotoService.presignPhotoUpload(user.getId(), (String) contentType,
+                    ((Number) size).longValue());
+            return ResponseEntity.ok(Map.of(
+                    "objectKey", upload.getKey(),
+                    "uploadUrl", upload.getUrl(),
+                    "method", upload.getMethod(),
+                    "headers", upload.getHeaders(),
+                    "expiresAt", upload.getExpiresAt().toString()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @PostMapping("/add")
     public ResponseEntity<?> addPhoto(Authentication authentication, @RequestBody Map<String, String> request) {
         if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
@@ -46,14 +97,18 @@ public class UserPhotoController {
         Long userId = user.getId();
 
         String photoUrl = request.get("photoUrl");
+        String objectKey = request.get("objectKey");
         String caption = request.get("caption");
 
-        if (photoUrl == null || photoUrl.trim().isEmpty()) {
+        if ((photoUrl == null || photoUrl.trim().isEmpty()) && objectKey == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "Photo URL is required"));
         }
 
         try {
-            UserPhoto photo = userPhotoService.addUserPhoto(userId, photoUrl, caption);
+            // A direct upload is identified by its key; its URL comes from storage, not the client
+            UserPhoto photo = objectKey != null
+                    ? userPhotoService.addUploadedPhoto(userId, objectKey, caption)
+                    : userPhotoService.addUserPhoto(userId, photoUrl, caption);
             if (photo != null) {
                 return ResponseEntity.ok(photo);
             } else {
@@ -61,6 +116,9 @@ public class UserPhotoController {
             }
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to check upload: " + e.getMessage()));
         }
     }
 
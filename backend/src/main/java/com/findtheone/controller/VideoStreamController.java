@@ -0,0 +1,132 @@
+package com.findtheone.controller;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.findtheone.entity.User;
+import com.findtheone.entity.UserVideo;
+import com.findtheone.entity.VideoVerification;
+import com.findtheone.repository.UserVideoRepository;
+import com.findtheone.repository.VideoVerificationRepository;
+import com.findtheone.service.VideoStreamService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Range-capable video streaming. Profile videos are public like other
+ * uploads; verification videos are only served to their owner and admins.
+ */
+@RestController
+@RequestMapping("/api/videos")
+@CrossOrigin(origins = "*", maxAge = 3600)
+public class VideoStreamController {
+
+    private static final String PROFILE_VIDEO_PREFIX = "/uploads/videos/";
+    private static final String VERIFICATION_VIDEO_PREFIX = "/verification-videos/";
+
+    @Autowired
+    private UserVideoRepository userVideoRepository;
+
+    @Autowired
+    private VideoVerificationRepository videoVerificationRepository;
+
+    @Autowired
+    private VideoStreamService videoStreamService;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @RequestMapping(value = "/profile/{videoId}", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void streamProfileVideo(@PathVariable Long videoId, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Optional<UserVideo> video = userVideoRepository.findById(videoId)
+                .filter(v -> Boolean.TRUE.equals(v.getIsActive()));
+        Path file = video.map(v -> resolve(v.getVideoUrl(), PROFILE_VIDEO_PREFIX, Paths.get(uploadDir, "videos")))
+                .orElse(null);
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        UserVideo userVideo = video.get();
+        long uploadedAt = toMillis(userVideo.getUploadedAt());
+        long size = userVideo.getFileSizeBytes() != null ? userVideo.getFileSizeBytes() : file.toFile().length();
+        videoStreamService.stream(file, contentType(userVideo.getMimeType(), file),
+                VideoStreamService.strongETag("p", userVideo.getId(), size, uploadedAt), uploadedAt,
+                "public, max-age=86400", request, response);
+    }
+
+    @RequestMapping(value = "/verification/{verificationId}", method = { RequestMethod.GET, RequestMethod.HEAD })
+    public void streamVerificationVideo(@PathVariable Long verificationId, Authentication authentication,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (authentication == null || !(authentication.getPrincipal() instanceof User)) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        User user = (User) authentication.getPrincipal();
+
+        Optional<VideoVerification> verification = videoVerificationRepository.findById(verificationId);
+        if (verification.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        VideoVerification videoVerification = verification.get();
+        if (user.getRole() != User.Role.ADMIN && !videoVerification.getUser().getId().equals(user.getId())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        Path file = resolve(videoVerification.getVideoUrl(), VERIFICATION_VIDEO_PREFIX,
+                Paths.get(uploadDir, "verification-videos"));
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long submittedAt = toMillis(videoVerification.getSubmittedAt());
+        videoStreamService.stream(file, contentType(null, file),
+                VideoStreamService.strongETag("v", videoVerification.getId(), file.toFile().length(), submittedAt),
+                submittedAt, "private, max-age=3600", request, response);
+    }
+
+    /**
+     * File for a stored URL, or null if it is not directly inside the directory
+     */
+    private static Path resolve(String url, String prefix, Path directory) {
+        if (url == null || !url.startsWith(prefix)) {
+            return null;
+        }
+        String filename = url.substring(prefix.length());
+        if (filename.isEmpty() || filename.contains("/") || filename.contains("\\") || filename.contains("..")) {
+            return null;
+        }
+        return directory.resolve(filename);
+    }
+
+    private static String contentType(String storedType, Path file) {
+        if (storedType != null && storedType.startsWith("video/")) {
+            return storedType;
+        }
+        return MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+    }
+}
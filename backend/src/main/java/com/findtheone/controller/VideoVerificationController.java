@@ -1,30 +1,46 @@
 package com.findtheone.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.findtheone.entity.UploadSession;
 import com.findtheone.entity.User;
 import com.findtheone.entity.VideoVerification;
 import com.findtheone.entity.VideoVerification.VerificationStatus;
 import com.findtheone.repository.UserRepository;
 import com.findtheone.repository.VideoVerificationRepository;
+import com.findtheone.service.ResumableUploadService;
+import com.findtheone.util.VideoMetadataReader;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/verification")
@@ -37,9 +53,22 @@ public class VideoVerificationController {
     @Autowired
     private UserRepository userRepository;
 
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_CHECKSUM = "Upload-Checksum";
+    private static final String UPLOAD_EXPIRES = "Upload-Expires";
+    // Not a standard status; the tus protocol uses it for a failed chunk checksum
+    private static final int CHECKSUM_MISMATCH = 460;
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
+    @Value("${app.videos.max-metadata-size:4194304}")
+    private int maxVideoMetadataSize;
+
     @PostMapping("/submit")
     public ResponseEntity<?> submitVideoVerification(
             @RequestParam("video") MultipartFile videoFile,
@@ -52,8 +81,7 @@ public class VideoVerificationController {
                     .orElseThrow(() -> new RuntimeException("User not found"));
 
             // Check if user already has a pending or approved verification
-            if (videoVerificationRepository.existsByUserIdAndStatusAndIsActiveTrue(user.getId(), VerificationStatus.PENDING) ||
-                videoVerificationRepository.existsByUserIdAndStatusAndIsActiveTrue(user.getId(), VerificationStatus.APPROVED)) {
+            if (hasOpenVerification(user)) {
                 return ResponseEntity.badRequest().body(Map.of(
                         "error", "You already have a pending or approved video verification"));
             }
@@ -63,39 +91,29 @@ public class VideoVerificationController {
                 return ResponseEntity.badRequest().body(Map.of("error", "Video file is required"));
             }
 
-            String contentType = videoFile.getContentType();
-            if (contentType == null || !contentType.startsWith("video/")) {
-                return ResponseEntity.badRequest().body(Map.of("error", "File must be a video"));
-            }
-
             // Check file size (max 50MB)
             if (videoFile.getSize() > 50 * 1024 * 1024) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Video file must be less than 50MB"));
             }
 
+            // Identify the container from its bytes rather than the client's content type;
+            // only box headers and the moov box are read
+            VideoMetadataReader.VideoMetadata metadata;
+            try (InputStream in = videoFile.getInputStream()) {
+                metadata = VideoMetadataReader.read(in, videoFile.getSize(), maxVideoMetadataSize);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+
             // Create upload directory if it doesn't exist
             Path uploadPath = Paths.get(uploadDir, "verification-videos");
             Files.createDirectories(uploadPath);
 
-            // Generate unique filename
-            String originalFilename = videoFile.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                    ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                    : ".mp4";
-            String filename = "verification_" + user.getId() + "_" + UUID.randomUUID().toString() + extension;
-
             // Save file
-            Path filePath = uploadPath.resolve(filename);
-            videoFile.transferTo(filePath.toFile());
-
-            // Create verification record
-            VideoVerification verification = new VideoVerification(user, "/verification-videos/" + filename);
-            videoVerificationRepository.save(verification);
+            String filename = verificationFilename(user, metadata);
+            videoFile.transferTo(uploadPath.resolve(filename).toFile());
 
-            return ResponseEntity.ok(Map.of(
-                    "message", "Video verification submitted successfully! It will be reviewed by an admin.",
-                    "verificationId", verification.getId(),
-                    "status", verification.getStatus().toString()));
+            return verificationSubmitted(createVerification(user, metadata, filename));
 
         } catch (IOException e) {
             return ResponseEntity.internalServerError().body(Map.of(
@@ -106,6 +124,145 @@ public class VideoVerificationController {
         }
     }
 
+    /**
+     * Start a resumable upload of a verification video. The client then
+     * PATCHes chunks to the returned location and POSTs to its /complete.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> createUpload(
+            @RequestHeader(UPLOAD_LENGTH) long uploadLength,
+            Authentication authentication) {
+        try {
+            User user = userRepository.findByEmail(authentication.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            if (hasOpenVerification(user)) {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "You already have a pending or approved video verification"));
+            }
+
+            UploadSession session = resumableUploadService.create(user.getId(), uploadLength);
+            return ResponseEntity.created(URI.create("/api/verification/uploads/" + session.getId()))
+                    .headers(uploadHeaders(session))
+                    .body(Map.of(
+                            "uploadId", session.getId(),
+                            "offset", session.getUploadOffset(),
+                            "maxChunkSize", resumableUploadService.getMaxChunkSize(),
+                            "expiresAt", session.getExpiresAt()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to start upload: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Where to resume from
+     */
+    @RequestMapping(value = "/uploads/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getUploadOffset(@PathVariable String uploadId, Authentication authentication) {
+        return findUpload(uploadId, authentication)
+                .map(session -> ResponseEntity.ok().headers(uploadHeaders(session)).<Void>build())
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Write one chunk at Upload-Offset. The body is streamed straight into the
+     * upload's file; an optional Upload-Checksum ("sha256 &lt;base64&gt;") is
+     * verified before the offset moves.
+     */
+    @PatchMapping(value = "/uploads/{uploadId}", consumes = "application/offset+octet-stream")
+    public ResponseEntity<?> appendChunk(
+            @PathVariable String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            @RequestHeader(value = UPLOAD_CHECKSUM, required = false) String checksum,
+            HttpServletRequest request,
+            Authentication authentication) {
+        Optional<UploadSession> found = findUpload(uploadId, authentication);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        UploadSession session = found.get();
+        try {
+            resumableUploadService.append(session, offset, checksum, request.getContentLengthLong(),
+                    request.getInputStream());
+            return ResponseEntity.noContent().headers(uploadHeaders(session)).build();
+        } catch (ResumableUploadService.OffsetConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(UPLOAD_OFFSET, Long.toString(e.getCurrentOffset()))
+                    .body(Map.of("error", e.getMessage(), "offset", e.getCurrentOffset()));
+        } catch (ResumableUploadService.ChecksumMismatchException e) {
+            return ResponseEntity.status(CHECKSUM_MISMATCH).headers(uploadHeaders(session))
+                    .body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            // Usually the client dropping the connection; it resumes from HEAD
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to write chunk: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Turn a fully received upload into a verification submission. The file
+     * is renamed into place, not copied.
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId, Authentication authentication) {
+        try {
+            User user = userRepository.findByEmail(authentication.getName())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+            Optional<UploadSession> found = resumableUploadService.find(uploadId, user.getId());
+            if (found.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            UploadSession session = found.get();
+            if (!session.isComplete()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).headers(uploadHeaders(session))
+                        .body(Map.of("error", "Upload is incomplete", "offset", session.getUploadOffset()));
+            }
+            if (hasOpenVerification(user)) {
+                resumableUploadService.abort(session);
+                return ResponseEntity.badRequest().body(Map.of(
+                        "error", "You already have a pending or approved video verification"));
+            }
+
+            VideoMetadataReader.VideoMetadata metadata;
+            Path part = resumableUploadService.getPartFile(session);
+            try (InputStream in = Files.newInputStream(part)) {
+                metadata = VideoMetadataReader.read(in, session.getUploadLength(), maxVideoMetadataSize);
+            } catch (IllegalArgumentException e) {
+                resumableUploadService.abort(session);
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+
+            String filename = verificationFilename(user, metadata);
+            resumableUploadService.complete(session, Paths.get(uploadDir, "verification-videos", filename));
+            return verificationSubmitted(createVerification(user, metadata, filename));
+
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to save video file: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId, Authentication authentication) {
+        Optional<UploadSession> found = findUpload(uploadId, authentication);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            resumableUploadService.abort(found.get());
+            return ResponseEntity.noContent().build();
+        } catch (IOException e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                    "error", "Failed to delete upload: " + e.getMessage()));
+        }
+    }
+
     @GetMapping("/status")
     public ResponseEntity<?> getVerificationStatus(Authentication authentication) {
         try {
@@ -135,4 +292,44 @@ public class VideoVerificationController {
                     "error", "Failed to get verification status: " + e.getMessage()));
         }
     }
+
+    private boolean hasOpenVerification(User user) {
+        return videoVerificationRepository.existsByUserIdAndStatusAndIsActiveTrue(user.getId(), VerificationStatus.PENDING) ||
+                videoVerificationRepository.existsByUserIdAndStatusAndIsActiveTrue(user.getId(), VerificationStatus.APPROVED);
+    }
+
+    private static String verificationFilename(User user, VideoMetadataReader.VideoMetadata metadata) {
+        return "verification_" + user.getId() + "_" + UUID.randomUUID().toString() + metadata.getExtension();
+    }
+
+    private VideoVerification createVerification(User user, VideoMetadataReader.VideoMetadata metadata,
+            String filename) {
+        VideoVerification verification = new VideoVerification(user, "/verification-videos/" + filename);
+        verification.setDurationSeconds(metadata.getDurationSeconds());
+        verification.setWidth(metadata.getWidth());
+        verification.setHeight(metadata.getHeight());
+        verification.setVideoCodec(metadata.getVideoCodec());
+        return videoVerificationRepository.save(verification);
+    }
+
+    private static ResponseEntity<?> verificationSubmitted(VideoVerification verification) {
+        return ResponseEntity.ok(Map.of(
+                "message", "Video verification submitted successfully! It will be reviewed by an admin.",
+                "verificationId", verification.getId(),
+                "status", verification.getStatus().toString()));
+    }
+
+    private Optional<UploadSession> findUpload(String uploadId, Authentication authentication) {
+        return userRepository.findByEmail(authentication.getName())
+                .flatMap(user -> resumableUploadService.find(uploadId, user.getId()));
+    }
+
+    private static HttpHeaders uploadHeaders(UploadSession session) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(UPLOAD_OFFSET, Long.toString(session.getUploadOffset()));
+        headers.set(UPLOAD_LENGTH, Long.toString(session.getUploadLength()));
+        headers.set(UPLOAD_EXPIRES, session.getExpiresAt().toString());
+        headers.setCacheControl(CacheControl.noStore());
+        return headers;
+    }
 }
@@ -6,6 +6,7 @@ public class AuthResponse {
     private Long id;
     private String email;
     private String name;
+    private String refreshToken;
     
     public AuthResponse() {}
     
@@ -16,6 +17,11 @@ public class AuthResponse {
         this.name = name;
     }
     
+    public AuthResponse(String token, String refreshToken, Long id, String email, String name) {
+        this(token, id, email, name);
+        this.refreshToken = refreshToken;
+    }
+    
     public String getToken() {
         return token;
     }
@@ -55,4 +61,12 @@ public class AuthResponse {
     public void setName(String name) {
         this.name = name;
     }
+    
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+    
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
 }
@@ -10,6 +10,7 @@ public class MatchDTO {
     private String bio;
     private String location;
     private String profilePhotoUrl;
+    private String profilePhotoThumbnailUrl; // null until the variant exists
     private String gender;
     private String interests;
     private LocalDateTime matchedAt;
@@ -111,4 +112,12 @@ public class MatchDTO {
     public void setMatchedAt(LocalDateTime matchedAt) {
         this.matchedAt = matchedAt;
     }
+
+    public String getProfilePhotoThumbnailUrl() {
+        return profilePhotoThumbnailUrl;
+    }
+
+    public void setProfilePhotoThumbnailUrl(String profilePhotoThumbnailUrl) {
+        this.profilePhotoThumbnailUrl = profilePhotoThumbnailUrl;
+    }
 }
@@ -10,6 +10,9 @@ public class MessageResponse {
     private String content;
     private LocalDateTime sentAt;
     private Boolean isRead;
+    private String messageType;
+    private String attachmentUrl;
+    private String thumbnailUrl;
     
     public MessageResponse() {}
     
@@ -80,4 +83,28 @@ public class MessageResponse {
     public void setIsRead(Boolean isRead) {
         this.isRead = isRead;
     }
+    
+    public String getMessageType() {
+        return messageType;
+    }
+    
+    public void setMessageType(String messageType) {
+        this.messageType = messageType;
+    }
+    
+    public String getAttachmentUrl() {
+        return attachmentUrl;
+    }
+    
+    public void setAttachmentUrl(String attachmentUrl) {
+        this.attachmentUrl = attachmentUrl;
+    }
+    
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+    
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
 }
@@ -0,0 +1,55 @@
+package com.findtheone.dto;
+
+/**
+ * The fields a profile card needs from a photo, read without loading the
+ * UserPhoto entity or its user
+ */
+public class PhotoSummaryDTO {
+    private final Long id;
+    private final Long userId;
+    private final String photoUrl;
+    private final String thumbnailUrl;
+    private final String mediumUrl;
+    private final Integer photoOrder;
+    private final String caption;
+
+    public PhotoSummaryDTO(Long id, Long userId, String photoUrl, String thumbnailUrl, String mediumUrl,
+            Integer photoOrder, String caption) {
+        this.id = id;
+        this.userId = userId;
+        this.photoUrl = photoUrl;
+        this.thumbnailUrl = thumbnailUrl;
+        this.mediumUrl = mediumUrl;
+        this.photoOrder = photoOrder;
+        this.caption = caption;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public String getMediumUrl() {
+        return mediumUrl;
+    }
+
+    public Integer getPhotoOrder() {
+        return photoOrder;
+    }
+
+    public String getCaption() {
+        return caption;
+    }
+}
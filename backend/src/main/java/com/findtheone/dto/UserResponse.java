@@ -12,6 +12,9 @@ public class UserResponse {
     private String interests;
     private String bio;
     private String profilePhotoUrl;
+    // Downscaled variants, null until generated
+    private String profilePhotoThumbnailUrl;
+    private String profilePhotoMediumUrl;
     private Integer coins;
 
     public UserResponse() {
@@ -111,4 +114,20 @@ public class UserResponse {
     public void setCoins(Integer coins) {
         this.coins = coins;
     }
+
+    public String getProfilePhotoThumbnailUrl() {
+        return profilePhotoThumbnailUrl;
+    }
+
+    public void setProfilePhotoThumbnailUrl(String profilePhotoThumbnailUrl) {
+        this.profilePhotoThumbnailUrl = profilePhotoThumbnailUrl;
+    }
+
+    public String getProfilePhotoMediumUrl() {
+        return profilePhotoMediumUrl;
+    }
+
+    public void setProfilePhotoMediumUrl(String profilePhotoMediumUrl) {
+        this.profilePhotoMediumUrl = profilePhotoMediumUrl;
+    }
 }
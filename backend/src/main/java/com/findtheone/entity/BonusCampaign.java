@@ -0,0 +1,178 @@
+package com.findtheone.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A promotional coin grant to a segment of users. Progress is checkpointed as
+ * the highest user id processed, committed together with each chunk's ledger
+ * rows, so a restarted campaign resumes exactly where it stopped.
+ */
+@Entity
+@Table(name = "bonus_campaigns")
+public class BonusCampaign {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(nullable = false)
+    private Integer coinAmount;
+
+    @Column(columnDefinition = "TEXT")
+    private String description; // Ledger description shown to users
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Segment segment = Segment.ALL_ACTIVE;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    private Long lastUserId = 0L; // Checkpoint
+
+    @Column(nullable = false)
+    private Long grantedCount = 0L;
+
+    @Column(nullable = false)
+    private Integer chunkSize = 1000;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime completedAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    public BonusCampaign() {
+    }
+
+    public BonusCampaign(String name, Integer coinAmount, String description, Segment segment) {
+        this.name = name;
+        this.coinAmount = coinAmount;
+        this.description = description;
+        this.segment = segment;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getCoinAmount() {
+        return coinAmount;
+    }
+
+    public void setCoinAmount(Integer coinAmount) {
+        this.coinAmount = coinAmount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Segment getSegment() {
+        return segment;
+    }
+
+    public void setSegment(Segment segment) {
+        this.segment = segment;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getLastUserId() {
+        return lastUserId;
+    }
+
+    public void setLastUserId(Long lastUserId) {
+        this.lastUserId = lastUserId;
+    }
+
+    public Long getGrantedCount() {
+        return grantedCount;
+    }
+
+    public void setGrantedCount(Long grantedCount) {
+        this.grantedCount = grantedCount;
+    }
+
+    public Integer getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(Integer chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public enum Segment {
+        ALL_ACTIVE, EMAIL_VERIFIED
+    }
+
+    public enum Status {
+        PENDING, RUNNING, PAUSED, COMPLETED, FAILED
+    }
+}
@@ -36,6 +36,12 @@ public class Message {
     @Column(nullable = false)
     private MessageType messageType = MessageType.TEXT;
 
+    @Column(name = "attachment_url")
+    private String attachmentUrl; // Original upload for IMAGE messages
+
+    @Column(name = "thumbnail_url")
+    private String thumbnailUrl; // Downscaled preview, filled in asynchronously
+
     public Message() {
     }
 
@@ -110,6 +116,22 @@ public class Message {
         this.messageType = messageType;
     }
 
+    public String getAttachmentUrl() {
+        return attachmentUrl;
+    }
+
+    public void setAttachmentUrl(String attachmentUrl) {
+        this.attachmentUrl = attachmentUrl;
+    }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
     public enum MessageType {
         TEXT, IMAGE, EMOJI
     }
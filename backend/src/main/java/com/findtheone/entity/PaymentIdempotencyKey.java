@@ -0,0 +1,142 @@
+package com.findtheone.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Remembers each client-supplied Idempotency-Key so that a retried purchase
+ * returns the original transaction instead of charging again. Purchases
+ * without one get a server-generated key, so every charge has a row the
+ * reconciliation sweep can find.
+ */
+@Entity
+@Table(name = "payment_idempotency_keys", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_payment_idempotency_user_key", columnNames = { "user_id", "idempotency_key" })
+})
+public class PaymentIdempotencyKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String packageType; // Detects the same key reused for a different purchase
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    private Long transactionId;
+
+    @Column(length = 100)
+    private String paymentId; // Set once the gateway charged, so a failed credit can be reconciled
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(nullable = false)
+    private LocalDateTime claimedAt = LocalDateTime.now(); // Last time a request took ownership of the key
+
+    private LocalDateTime completedAt;
+
+    public PaymentIdempotencyKey() {
+    }
+
+    public PaymentIdempotencyKey(Long userId, String idempotencyKey, String packageType) {
+        this.userId = userId;
+        this.idempotencyKey = idempotencyKey;
+        this.packageType = packageType;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getPackageType() {
+        return packageType;
+    }
+
+    public void setPackageType(String packageType) {
+        this.packageType = packageType;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Long getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(Long transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public String getPaymentId() {
+        return paymentId;
+    }
+
+    public void setPaymentId(String paymentId) {
+        this.paymentId = paymentId;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public enum Status {
+        PENDING, CHARGED, COMPLETED, FAILED
+    }
+}
@@ -0,0 +1,69 @@
+package com.findtheone.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Maps a legacy flat upload name (uploads/photos/&lt;uuid&gt;.jpg) to the
+ * content-addressed blob it was migrated into, so old URLs keep resolving.
+ */
+@Entity
+@Table(name = "photo_aliases")
+public class PhotoAlias {
+
+    @Id
+    @Column(length = 128)
+    private String legacyName;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false, length = 160)
+    private String path;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public PhotoAlias() {
+    }
+
+    public PhotoAlias(String legacyName, String sha256, String path) {
+        this.legacyName = legacyName;
+        this.sha256 = sha256;
+        this.path = path;
+    }
+
+    // Getters and Setters
+    public String getLegacyName() {
+        return legacyName;
+    }
+
+    public void setLegacyName(String legacyName) {
+        this.legacyName = legacyName;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,105 @@
+package com.findtheone.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed photo file. The SHA-256 of the content is the key and
+ * the file lives at uploads/photos/&lt;path&gt;. refCount counts the active
+ * UserPhoto rows pointing at it; a blob at zero is kept until it is swept.
+ */
+@Entity
+@Table(name = "photo_blobs")
+public class PhotoBlob {
+
+    @Id
+    @Column(length = 64)
+    private String sha256;
+
+    @Column(nullable = false, length = 160)
+    private String path;
+
+    @Column(nullable = false, length = 32)
+    private String contentType;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(nullable = false)
+    private Integer refCount = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Bumped on every upload of this content, including deduplicated ones
+    @Column(nullable = false)
+    private LocalDateTime lastUploadedAt = LocalDateTime.now();
+
+    public PhotoBlob() {
+    }
+
+    public PhotoBlob(String sha256, String path, String contentType, Long size) {
+        this.sha256 = sha256;
+        this.path = path;
+        this.contentType = contentType;
+        this.size = size;
+    }
+
+    // Getters and Setters
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Integer getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Integer refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getLastUploadedAt() {
+        return lastUploadedAt;
+    }
+
+    public void setLastUploadedAt(LocalDateTime lastUploadedAt) {
+        this.lastUploadedAt = lastUploadedAt;
+    }
+}
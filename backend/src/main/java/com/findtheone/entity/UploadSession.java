@@ -0,0 +1,101 @@
+package com.findtheone.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resumable upload in progress. The bytes live in a single part file that
+ * chunks are written into at their offset; uploadOffset is the number of
+ * bytes the server has confirmed, and is what a client resumes from.
+ */
+@Entity
+@Table(name = "upload_sessions", indexes = {
+        @Index(name = "idx_upload_sessions_user", columnList = "user_id"),
+        @Index(name = "idx_upload_sessions_expires", columnList = "expires_at")
+})
+public class UploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long uploadLength;
+
+    @Column(nullable = false)
+    private Long uploadOffset = 0L;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Pushed forward by every accepted chunk
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public UploadSession() {
+    }
+
+    public UploadSession(String id, Long userId, Long uploadLength, LocalDateTime expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.uploadLength = uploadLength;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isComplete() {
+        return uploadOffset != null && uploadOffset.equals(uploadLength);
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUploadLength() {
+        return uploadLength;
+    }
+
+    public void setUploadLength(Long uploadLength) {
+        this.uploadLength = uploadLength;
+    }
+
+    public Long getUploadOffset() {
+        return uploadOffset;
+    }
+
+    public void setUploadOffset(Long uploadOffset) {
+        this.uploadOffset = uploadOffset;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -32,6 +32,15 @@ public class UserPhoto {
 
     private String caption;
 
+    // Downscaled JPEG variants, filled in by PhotoDerivativeService
+    private String thumbnailUrl;
+
+    private String mediumUrl;
+
+    // Key in the object store for photos uploaded directly to it; photoUrl is derived from it
+    @Column(length = 255)
+    private String objectKey;
+
     public UserPhoto() {
     }
 
@@ -104,4 +113,28 @@ public class UserPhoto {
     public void setCaption(String caption) {
         this.caption = caption;
     }
+
+    public String getThumbnailUrl() {
+        return thumbnailUrl;
+    }
+
+    public void setThumbnailUrl(String thumbnailUrl) {
+        this.thumbnailUrl = thumbnailUrl;
+    }
+
+    public String getMediumUrl() {
+        return mediumUrl;
+    }
+
+    public void setMediumUrl(String mediumUrl) {
+        this.mediumUrl = mediumUrl;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public void setObjectKey(String objectKey) {
+        this.objectKey = objectKey;
+    }
 }
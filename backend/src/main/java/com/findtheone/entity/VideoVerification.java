@@ -40,6 +40,16 @@ public class VideoVerification {
     @Column(nullable = false)
     private Boolean isActive = true;
 
+    // Read from the container on upload; null for WebM recordings
+    private Integer durationSeconds;
+
+    private Integer width;
+
+    private Integer height;
+
+    @Column(length = 16)
+    private String videoCodec;
+
     // Constructors
     public VideoVerification() {
     }
@@ -123,6 +133,38 @@ public class VideoVerification {
         this.isActive = isActive;
     }
 
+    public Integer getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(Integer durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public Integer getWidth() {
+        return width;
+    }
+
+    public void setWidth(Integer width) {
+        this.width = width;
+    }
+
+    public Integer getHeight() {
+        return height;
+    }
+
+    public void setHeight(Integer height) {
+        this.height = height;
+    }
+
+    public String getVideoCodec() {
+        return videoCodec;
+    }
+
+    public void setVideoCodec(String videoCodec) {
+        this.videoCodec = videoCodec;
+    }
+
     public enum VerificationStatus {
         PENDING, APPROVED, REJECTED
     }
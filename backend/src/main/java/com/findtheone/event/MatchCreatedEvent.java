@@ -0,0 +1,19 @@
+package com.findtheone.event;
+
+import com.findtheone.entity.Match;
+
+/**
+ * Published after two users have liked each other and the match was stored
+ */
+public class MatchCreatedEvent {
+
+    private final Match match;
+
+    public MatchCreatedEvent(Match match) {
+        this.match = match;
+    }
+
+    public Match getMatch() {
+        return match;
+    }
+}
@@ -0,0 +1,19 @@
+package com.findtheone.event;
+
+import com.findtheone.entity.Message;
+
+/**
+ * Published after a chat message has been stored
+ */
+public class MessageSentEvent {
+
+    private final Message message;
+
+    public MessageSentEvent(Message message) {
+        this.message = message;
+    }
+
+    public Message getMessage() {
+        return message;
+    }
+}
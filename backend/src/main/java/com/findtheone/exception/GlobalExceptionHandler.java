@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -71,6 +72,20 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingBusy(
+            PasswordHashingBusyException ex, WebRequest request) {
+        ResponseEntity<Map<String, Object>> response = createErrorResponse(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            "SERVICE_BUSY",
+            ex.getMessage(),
+            request
+        );
+        return ResponseEntity.status(response.getStatusCode())
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(response.getBody());
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneral(
             Exception ex, WebRequest request) {
@@ -0,0 +1,11 @@
+package com.findtheone.exception;
+
+/**
+ * Thrown when the password hashing pool is saturated and the request should
+ * be retried later rather than queued behind a credential-stuffing burst
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package com.findtheone.messaging;
+
+/**
+ * Publishes STOMP messages so that they reach subscribers on every application node,
+ * not only the node that produced them.
+ */
+public interface BrokerRelay {
+
+    /**
+     * Send a payload to a broker destination (e.g. /topic/user.42.messages)
+     */
+    void send(String destination, Object payload);
+}
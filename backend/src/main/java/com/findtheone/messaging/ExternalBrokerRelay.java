@@ -0,0 +1,22 @@
+package com.findtheone.messaging;
+
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+/**
+ * Relay used when the application is connected to an external STOMP broker.
+ * The broker itself fans messages out to the node holding each subscription,
+ * so publishing once through the local broker channel is enough.
+ */
+public class ExternalBrokerRelay implements BrokerRelay {
+
+    private final SimpMessageSendingOperations brokerTemplate;
+
+    public ExternalBrokerRelay(SimpMessageSendingOperations brokerTemplate) {
+        this.brokerTemplate = brokerTemplate;
+    }
+
+    @Override
+    public void send(String destination, Object payload) {
+        brokerTemplate.convertAndSend(destination, payload);
+    }
+}
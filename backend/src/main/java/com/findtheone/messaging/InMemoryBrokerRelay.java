@@ -0,0 +1,37 @@
+package com.findtheone.messaging;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+
+/**
+ * Embedded relay used with the in-JVM simple broker.
+ * Every application context started in this JVM registers its local broker, and each
+ * send is fanned out to all of them. This is the local and test stand-in for an external
+ * broker; it does not reach nodes running in other JVMs.
+ */
+public class InMemoryBrokerRelay implements BrokerRelay, DisposableBean {
+
+    private static final Set<SimpMessageSendingOperations> NODES = new CopyOnWriteArraySet<>();
+
+    private final SimpMessageSendingOperations localBroker;
+
+    public InMemoryBrokerRelay(SimpMessageSendingOperations localBroker) {
+        this.localBroker = localBroker;
+        NODES.add(localBroker);
+    }
+
+    @Override
+    public void send(String destination, Object payload) {
+        for (SimpMessageSendingOperations node : NODES) {
+            node.convertAndSend(destination, payload);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        NODES.remove(localBroker);
+    }
+}
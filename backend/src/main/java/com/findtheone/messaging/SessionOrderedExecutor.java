@@ -0,0 +1,123 @@
+package com.findtheone.messaging;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+/**
+ * Outbound channel executor that runs the frames of one session in the order
+ * they were published, one at a time, while different sessions share the
+ * pool. Frames waiting for their session stay visible to the channel's
+ * interceptors as queued, unlike with preservePublishOrder, whose decorator
+ * holds them back before the channel sees them.
+ */
+public class SessionOrderedExecutor implements TaskExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionOrderedExecutor.class);
+
+    private final Executor delegate;
+
+    // Head of each queue is the frame being sent; a session has an entry only while it has frames
+    private final Map<String, ArrayDeque<Runnable>> queues = new ConcurrentHashMap<>();
+
+    public SessionOrderedExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = sessionId(task);
+        if (sessionId == null) {
+            delegate.execute(task);
+            return;
+        }
+
+        boolean[] idle = new boolean[1];
+        queues.compute(sessionId, (id, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                idle[0] = true;
+            }
+            queue.add(task);
+            return queue;
+        });
+        if (idle[0]) {
+            try {
+                delegate.execute(() -> drain(sessionId));
+            } catch (RejectedExecutionException e) {
+                queues.remove(sessionId);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sessions with frames queued or being sent
+     */
+    public int getActiveSessions() {
+        return queues.size();
+    }
+
+    private void drain(String sessionId) {
+        while (true) {
+            Runnable task = head(sessionId);
+            if (task == null) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.warn("Outbound send to session {} failed: {}", sessionId, e.getMessage());
+            }
+            if (!advance(sessionId)) {
+                return;
+            }
+            // Hand the thread back between frames so one busy session cannot hold it
+            try {
+                delegate.execute(() -> drain(sessionId));
+                return;
+            } catch (RejectedExecutionException e) {
+                // Pool saturated: keep sending on this thread
+            }
+        }
+    }
+
+    private Runnable head(String sessionId) {
+        Runnable[] head = new Runnable[1];
+        queues.computeIfPresent(sessionId, (id, queue) -> {
+            head[0] = queue.peek();
+            return queue;
+        });
+        return head[0];
+    }
+
+    /**
+     * Remove the frame just sent
+     *
+     * @return true if more frames are waiting
+     */
+    private boolean advance(String sessionId) {
+        boolean[] more = new boolean[1];
+        queues.computeIfPresent(sessionId, (id, queue) -> {
+            queue.poll();
+            more[0] = !queue.isEmpty();
+            return more[0] ? queue : null;
+        });
+        return more[0];
+    }
+
+    private static String sessionId(Runnable task) {
+        if (task instanceof MessageHandlingRunnable runnable) {
+            return SimpMessageHeaderAccessor.getSessionId(runnable.getMessage().getHeaders());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,164 @@
+package com.findtheone.messaging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+/**
+ * Outbound channel interceptor that bounds the number of frames queued per WebSocket session.
+ * Droppable events (typing, presence) are discarded first once a session starts falling behind;
+ * when the hard limit is reached the configured overflow policy either drops the frame or
+ * disconnects the session. Queue depth, drops and send latency are tracked for monitoring.
+ */
+public class SessionOutboundGuard implements ExecutorChannelInterceptor, ApplicationListener<SessionDisconnectEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionOutboundGuard.class);
+
+    private static final String ENQUEUED_AT_HEADER = "findtheone.enqueuedAt";
+
+    public enum OverflowPolicy {
+        DROP, // Discard frames beyond the limit, keep the session
+        DISCONNECT // Close the session, the client reconnects and resyncs over REST
+    }
+
+    private final int maxQueuedMessages;
+    private final int droppableThreshold;
+    private final OverflowPolicy overflowPolicy;
+    private final WebSocketSessionRegistry sessionRegistry;
+
+    private final Map<String, AtomicInteger> pendingBySession = new ConcurrentHashMap<>();
+
+    // Sessions being closed as slow consumers; their frames are dropped until the disconnect event
+    private final Set<String> closingSessions = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder droppedDroppable = new LongAdder();
+    private final LongAdder droppedOverflow = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+    private final LongAdder sendLatencyNanos = new LongAdder();
+    private final LongAccumulator maxSendLatencyNanos = new LongAccumulator(Math::max, 0);
+
+    public SessionOutboundGuard(int maxQueuedMessages, int droppableThreshold, OverflowPolicy overflowPolicy,
+            WebSocketSessionRegistry sessionRegistry) {
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.droppableThreshold = droppableThreshold;
+        this.overflowPolicy = overflowPolicy;
+        this.sessionRegistry = sessionRegistry;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+
+        if (sessionId == null || type != SimpMessageType.MESSAGE) {
+            return message;
+        }
+
+        if (closingSessions.contains(sessionId)) {
+            droppedOverflow.increment();
+            return null;
+        }
+
+        AtomicInteger pending = pendingBySession.computeIfAbsent(sessionId, id -> new AtomicInteger());
+        int queued = pending.get();
+
+        if (queued >= droppableThreshold && isDroppable(message)) {
+            droppedDroppable.increment();
+            return null;
+        }
+
+        if (queued >= maxQueuedMessages) {
+            if (overflowPolicy == OverflowPolicy.DISCONNECT && closingSessions.add(sessionId)) {
+                disconnects.increment();
+                logger.warn("Disconnecting slow WebSocket session {} with {} queued frames", sessionId, queued);
+                sessionRegistry.disconnect(sessionId, CloseStatus.SESSION_NOT_RELIABLE);
+            }
+            droppedOverflow.increment();
+            return null;
+        }
+
+        pending.incrementAndGet();
+        enqueued.increment();
+
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(ENQUEUED_AT_HEADER, System.nanoTime());
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler,
+            Exception ex) {
+        Long enqueuedAt = message.getHeaders().get(ENQUEUED_AT_HEADER, Long.class);
+        if (enqueuedAt == null) {
+            return;
+        }
+
+        AtomicInteger pending = pendingBySession.get(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()));
+        if (pending != null) {
+            pending.decrementAndGet();
+        }
+
+        long latency = System.nanoTime() - enqueuedAt;
+        delivered.increment();
+        sendLatencyNanos.add(latency);
+        maxSendLatencyNanos.accumulate(latency);
+    }
+
+    @Override
+    public void onApplicationEvent(SessionDisconnectEvent event) {
+        pendingBySession.remove(event.getSessionId());
+        closingSessions.remove(event.getSessionId());
+    }
+
+    /**
+     * Ephemeral events that the client can afford to miss
+     */
+    private boolean isDroppable(Message<?> message) {
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        return destination != null && (destination.endsWith(".typing") || destination.endsWith(".presence"));
+    }
+
+    public Map<String, Object> getStats() {
+        long queued = 0;
+        int maxSessionQueue = 0;
+        for (AtomicInteger pending : pendingBySession.values()) {
+            int value = pending.get();
+            queued += value;
+            maxSessionQueue = Math.max(maxSessionQueue, value);
+        }
+
+        long deliveredCount = delivered.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("trackedSessions", pendingBySession.size());
+        stats.put("queuedFrames", queued);
+        stats.put("maxSessionQueue", maxSessionQueue);
+        stats.put("enqueued", enqueued.sum());
+        stats.put("delivered", deliveredCount);
+        stats.put("droppedDroppable", droppedDroppable.sum());
+        stats.put("droppedOverflow", droppedOverflow.sum());
+        stats.put("slowConsumerDisconnects", disconnects.sum());
+        stats.put("avgSendLatencyMs", deliveredCount > 0 ? sendLatencyNanos.sum() / deliveredCount / 1_000_000.0 : 0.0);
+        stats.put("maxSendLatencyMs", maxSendLatencyNanos.get() / 1_000_000.0);
+        return stats;
+    }
+}
@@ -0,0 +1,193 @@
+package com.findtheone.messaging;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Per-user registry of open Server-Sent Events streams. Connections are held
+ * as async requests, so an idle stream costs a socket and a small object but
+ * no servlet thread. Writes happen on a small bounded pool so a stalled client
+ * never blocks the publisher, and a periodic comment keeps proxies from
+ * closing idle streams and flushes out dead ones. Keepalives are written in
+ * batches on their own single thread and queue, so however many streams are
+ * idle they never take space from real events; a batch that finds its queue
+ * full is skipped until the next tick.
+ */
+public class SseEmitterRegistry implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseEmitterRegistry.class);
+
+    private static final int HEARTBEAT_BATCH_SIZE = 500;
+    private static final int HEARTBEAT_QUEUE_BATCHES = 100;
+
+    private final long timeoutMs;
+    private final Map<Long, List<SseEmitter>> emittersByUser = new ConcurrentHashMap<>();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService heartbeat;
+    private final ThreadPoolExecutor heartbeatWriter;
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder skippedHeartbeats = new LongAdder();
+
+    public SseEmitterRegistry(long timeoutMs, long heartbeatMs, int dispatchThreads, int dispatchQueueCapacity) {
+        this.timeoutMs = timeoutMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(dispatchQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "sse-dispatch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.heartbeatWriter = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(HEARTBEAT_QUEUE_BATCHES), runnable -> {
+                    Thread thread = new Thread(runnable, "sse-heartbeat-write");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.heartbeat.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open a new stream for the user. The emitter removes itself when the
+     * client goes away, times out or a write fails.
+     */
+    public SseEmitter register(Long userId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        // Added inside the map operation, so a concurrent remove cannot drop the list under us
+        emittersByUser.compute(userId, (id, emitters) -> {
+            List<SseEmitter> list = emitters != null ? emitters : new CopyOnWriteArrayList<>();
+            list.add(emitter);
+            return list;
+        });
+        connectionCount.incrementAndGet();
+
+        Runnable cleanup = () -> remove(userId, emitter);
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+        return emitter;
+    }
+
+    public boolean isConnected(Long userId) {
+        return emittersByUser.containsKey(userId);
+    }
+
+    /**
+     * Queue an event for every stream the user has open. Returns immediately.
+     */
+    public void send(Long userId, String eventName, Object payload) {
+        List<SseEmitter> emitters = emittersByUser.get(userId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            dispatch(userId, emitter, SseEmitter.event().name(eventName).data(payload));
+        }
+    }
+
+    private void dispatch(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            dispatcher.execute(() -> {
+                if (write(userId, emitter, event)) {
+                    sent.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+        }
+    }
+
+    private boolean write(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client disconnected - completing triggers the cleanup callback
+            remove(userId, emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void sendHeartbeats() {
+        try {
+            List<Map.Entry<Long, SseEmitter>> batch = new ArrayList<>(HEARTBEAT_BATCH_SIZE);
+            emittersByUser.forEach((userId, emitters) -> {
+                for (SseEmitter emitter : emitters) {
+                    batch.add(Map.entry(userId, emitter));
+                    if (batch.size() == HEARTBEAT_BATCH_SIZE) {
+                        submitHeartbeats(new ArrayList<>(batch));
+                        batch.clear();
+                    }
+                }
+            });
+            if (!batch.isEmpty()) {
+                submitHeartbeats(batch);
+            }
+        } catch (Exception e) {
+            logger.warn("SSE heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    private void submitHeartbeats(List<Map.Entry<Long, SseEmitter>> batch) {
+        try {
+            heartbeatWriter.execute(() -> batch.forEach(entry ->
+                    write(entry.getKey(), entry.getValue(), SseEmitter.event().comment("keepalive"))));
+        } catch (RejectedExecutionException e) {
+            skippedHeartbeats.add(batch.size());
+        }
+    }
+
+    private void remove(Long userId, SseEmitter emitter) {
+        emittersByUser.computeIfPresent(userId, (id, emitters) -> {
+            if (emitters.remove(emitter)) {
+                connectionCount.decrementAndGet();
+            }
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "connections", connectionCount.get(),
+                "users", emittersByUser.size(),
+                "sent", sent.sum(),
+                "dropped", dropped.sum(),
+                "skippedHeartbeats", skippedHeartbeats.sum(),
+                "dispatchQueue", dispatcher.getQueue().size());
+    }
+
+    @Override
+    public void destroy() {
+        heartbeat.shutdownNow();
+        heartbeatWriter.shutdownNow();
+        dispatcher.shutdownNow();
+        emittersByUser.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        emittersByUser.clear();
+    }
+}
@@ -0,0 +1,102 @@
+package com.findtheone.messaging;
+
+import java.security.Principal;
+import java.util.function.Function;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+
+import com.findtheone.entity.User;
+import com.findtheone.service.RealtimeService;
+
+/**
+ * Inbound channel interceptor that keeps per-user topics private. A session
+ * may only subscribe to /topic/user.{id}.* for its own id, wildcard
+ * subscriptions under /topic are refused, and clients cannot publish to
+ * /topic directly. Sessions whose handshake carried no user can
+ * authenticate with an Authorization header on the STOMP CONNECT frame.
+ */
+public class UserDestinationInterceptor implements ChannelInterceptor {
+
+    private static final String TOPIC_PREFIX = "/topic/";
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final Function<String, Authentication> tokenAuthenticator;
+
+    /**
+     * @param tokenAuthenticator resolves a bearer token to an authentication,
+     *                           or null if it is not valid; may be null to
+     *                           only trust the handshake user
+     */
+    public UserDestinationInterceptor(Function<String, Authentication> tokenAuthenticator) {
+        this.tokenAuthenticator = tokenAuthenticator;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if (command == StompCommand.CONNECT) {
+            authenticate(accessor);
+        } else if (command == StompCommand.SUBSCRIBE) {
+            checkSubscription(accessor.getDestination(), accessor.getUser());
+        } else if (command == StompCommand.SEND) {
+            String destination = accessor.getDestination();
+            if (destination != null && destination.startsWith(TOPIC_PREFIX)) {
+                throw new AccessDeniedException("Clients cannot publish to " + destination);
+            }
+        }
+        return message;
+    }
+
+    private void authenticate(StompHeaderAccessor accessor) {
+        if (accessor.getUser() != null || tokenAuthenticator == null) {
+            return;
+        }
+        String header = accessor.getFirstNativeHeader("Authorization");
+        if (header != null && header.startsWith(BEARER_PREFIX)) {
+            Authentication authentication = tokenAuthenticator.apply(header.substring(BEARER_PREFIX.length()));
+            if (authentication != null) {
+                accessor.setUser(authentication);
+            }
+        }
+    }
+
+    private void checkSubscription(String destination, Principal principal) {
+        if (destination == null || !destination.startsWith(TOPIC_PREFIX)) {
+            return;
+        }
+        // Both the simple broker and external brokers expand these into patterns
+        if (destination.chars().anyMatch(c -> c == '*' || c == '#' || c == '?' || c == '{')) {
+            throw new AccessDeniedException("Wildcard subscriptions are not allowed");
+        }
+        if (!destination.startsWith(RealtimeService.USER_DESTINATION_PREFIX)) {
+            return;
+        }
+        String rest = destination.substring(RealtimeService.USER_DESTINATION_PREFIX.length());
+        int dot = rest.indexOf('.');
+        String owner = dot >= 0 ? rest.substring(0, dot) : rest;
+        Long userId = userId(principal);
+        if (userId == null || !owner.equals(userId.toString())) {
+            throw new AccessDeniedException("Cannot subscribe to another user's destination");
+        }
+    }
+
+    private static Long userId(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof User user) {
+            return user.getId();
+        }
+        return null;
+    }
+}
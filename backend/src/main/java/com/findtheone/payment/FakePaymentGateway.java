@@ -0,0 +1,53 @@
+package com.findtheone.payment;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-process stand-in for a real provider. The simulated latency is a timer,
+ * not a sleeping thread, so any number of charges can be in flight at once.
+ */
+@Component
+public class FakePaymentGateway implements PaymentGateway, DisposableBean {
+
+    private final long latencyMs;
+    private final double failureRate;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fake-payment-gateway");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FakePaymentGateway(@Value("${app.payment.fake.latency-ms:1000}") long latencyMs,
+            @Value("${app.payment.fake.failure-rate:0}") double failureRate) {
+        this.latencyMs = latencyMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public CompletableFuture<PaymentResult> charge(Long userId, BigDecimal amount, String reference) {
+        CompletableFuture<PaymentResult> result = new CompletableFuture<>();
+        timer.schedule(() -> {
+            if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+                result.complete(PaymentResult.failure("Card declined"));
+            } else {
+                result.complete(PaymentResult.success("FAKE_PAY_" + UUID.randomUUID().toString().substring(0, 8)));
+            }
+        }, latencyMs, TimeUnit.MILLISECONDS);
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        timer.shutdownNow();
+    }
+}
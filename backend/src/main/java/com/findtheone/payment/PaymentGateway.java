@@ -0,0 +1,14 @@
+package com.findtheone.payment;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Charges a user through an external payment provider. Implementations must
+ * not block the calling thread - the returned future completes when the
+ * provider answers.
+ */
+public interface PaymentGateway {
+
+    CompletableFuture<PaymentResult> charge(Long userId, BigDecimal amount, String reference);
+}
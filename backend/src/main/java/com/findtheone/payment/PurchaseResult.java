@@ -0,0 +1,49 @@
+package com.findtheone.payment;
+
+import com.findtheone.entity.Transaction;
+
+/**
+ * Outcome of a coin purchase, including idempotent replays
+ */
+public class PurchaseResult {
+
+    public enum Status {
+        COMPLETED, // Charged and credited now
+        CHARGED, // Charged, but the credit failed and is left to reconciliation
+        REPLAYED, // Same Idempotency-Key seen before, original transaction returned
+        IN_PROGRESS, // Same Idempotency-Key is still being processed
+        KEY_REUSED, // Same Idempotency-Key was used for a different package
+        INVALID_PACKAGE,
+        PAYMENT_FAILED
+    }
+
+    private final Status status;
+    private final Transaction transaction;
+    private final String message;
+
+    private PurchaseResult(Status status, Transaction transaction, String message) {
+        this.status = status;
+        this.transaction = transaction;
+        this.message = message;
+    }
+
+    public static PurchaseResult of(Status status, Transaction transaction) {
+        return new PurchaseResult(status, transaction, null);
+    }
+
+    public static PurchaseResult error(Status status, String message) {
+        return new PurchaseResult(status, null, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
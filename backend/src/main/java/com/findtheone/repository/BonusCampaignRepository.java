@@ -0,0 +1,29 @@
+package com.findtheone.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.findtheone.entity.BonusCampaign;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface BonusCampaignRepository extends JpaRepository<BonusCampaign, Long> {
+
+    /**
+     * Locks the campaign row for one chunk so two nodes can never grant the same range
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM BonusCampaign c WHERE c.id = :id")
+    Optional<BonusCampaign> findForUpdate(@Param("id") Long id);
+
+    List<BonusCampaign> findByStatus(BonusCampaign.Status status);
+
+    List<BonusCampaign> findAllByOrderByCreatedAtDesc();
+}
@@ -0,0 +1,41 @@
+package com.findtheone.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.findtheone.entity.CoinBalanceSnapshot;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface CoinBalanceSnapshotRepository extends JpaRepository<CoinBalanceSnapshot, Long> {
+
+    /**
+     * Row lock that serialises debits (and folding) for a single user
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CoinBalanceSnapshot s WHERE s.userId = :userId")
+    Optional<CoinBalanceSnapshot> findForUpdate(@Param("userId") Long userId);
+
+    /**
+     * Shared lock taken by ledger writers. Writers of the same user do not
+     * block each other, but folding waits until their entries are committed.
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM CoinBalanceSnapshot s WHERE s.userId = :userId")
+    Optional<CoinBalanceSnapshot> findForShare(@Param("userId") Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT s FROM CoinBalanceSnapshot s WHERE s.userId IN :userIds ORDER BY s.userId")
+    List<CoinBalanceSnapshot> findAllForShare(@Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT MIN(s.lastTransactionId) FROM CoinBalanceSnapshot s")
+    Long findMinLastTransactionId();
+}
@@ -1,12 +1,17 @@
 package com.findtheone.repository;
 
 import com.findtheone.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
@@ -22,4 +27,38 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     
     @Query("SELECT COUNT(m) FROM Message m WHERE m.receiver.id = :userId AND m.isRead = false")
     Long countUnreadMessagesByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Message m SET m.thumbnailUrl = :thumbnailUrl WHERE m.id = :messageId")
+    int updateThumbnailUrl(@Param("messageId") Long messageId, @Param("thumbnailUrl") String thumbnailUrl);
+
+    /**
+     * Image messages older than the cutoff that still have no preview, oldest first
+     */
+    @Query("SELECT m FROM Message m WHERE m.messageType = :type AND m.attachmentUrl IS NOT NULL " +
+            "AND m.thumbnailUrl IS NULL AND m.sentAt < :before ORDER BY m.id ASC")
+    List<Message> findMissingThumbnails(@Param("type") Message.MessageType type,
+            @Param("before") LocalDateTime before, Pageable pageable);
+
+    /**
+     * Unlock and mark read in one statement; only matches a locked message owned by the receiver
+     */
+    @Modifying
+    @Query("UPDATE Message m SET m.isUnlocked = true, m.isRead = true " +
+           "WHERE m.id = :messageId AND m.receiver.id = :receiverId AND m.isUnlocked = false")
+    int unlockForReceiver(@Param("messageId") Long messageId, @Param("receiverId") Long receiverId);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.isRead = true " +
+           "WHERE m.id = :messageId AND m.receiver.id = :receiverId AND m.isUnlocked = true")
+    int markUnlockedAsRead(@Param("messageId") Long messageId, @Param("receiverId") Long receiverId);
+
+    @Modifying
+    @Query("UPDATE Message m SET m.isUnlocked = true, m.isRead = true " +
+           "WHERE m.receiver.id = :receiverId AND m.sender.id = :senderId AND m.isUnlocked = false")
+    int unlockConversationForReceiver(@Param("receiverId") Long receiverId, @Param("senderId") Long senderId);
+
+    @Query("SELECT m.sender.id FROM Message m WHERE m.id = :messageId")
+    Optional<Long> findSenderIdById(@Param("messageId") Long messageId);
 }
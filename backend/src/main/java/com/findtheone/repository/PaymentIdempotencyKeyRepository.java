@@ -0,0 +1,67 @@
+package com.findtheone.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.findtheone.entity.PaymentIdempotencyKey;
+
+@Repository
+public interface PaymentIdempotencyKeyRepository extends JpaRepository<PaymentIdempotencyKey, Long> {
+
+    Optional<PaymentIdempotencyKey> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    List<PaymentIdempotencyKey> findByStatusAndClaimedAtBefore(PaymentIdempotencyKey.Status status,
+            LocalDateTime cutoff);
+
+    /**
+     * Record that the gateway took the money, before the credit is attempted
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentIdempotencyKey k SET k.status = 'CHARGED', k.paymentId = :paymentId " +
+           "WHERE k.id = :id AND k.status = 'PENDING'")
+    int markCharged(@Param("id") Long id, @Param("paymentId") String paymentId);
+
+    /**
+     * Only a CHARGED key can complete, so a charge is credited once even when
+     * the completion and the reconciliation sweep race
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentIdempotencyKey k SET k.status = 'COMPLETED', k.transactionId = :transactionId, " +
+           "k.completedAt = CURRENT_TIMESTAMP WHERE k.id = :id AND k.status = 'CHARGED'")
+    int markCompleted(@Param("id") Long id, @Param("transactionId") Long transactionId);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentIdempotencyKey k SET k.status = 'FAILED', k.completedAt = CURRENT_TIMESTAMP " +
+           "WHERE k.id = :id AND k.status = 'PENDING'")
+    int markFailed(@Param("id") Long id);
+
+    /**
+     * Claim a failed key for a retry - only one concurrent retry can win
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentIdempotencyKey k SET k.status = 'PENDING', k.completedAt = null, " +
+           "k.claimedAt = :now WHERE k.id = :id AND k.status = 'FAILED'")
+    int reclaimFailed(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    /**
+     * Take over a key whose owner never reported back (e.g. the node crashed
+     * before the gateway answered)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentIdempotencyKey k SET k.claimedAt = :now " +
+           "WHERE k.id = :id AND k.status = 'PENDING' AND k.claimedAt < :cutoff")
+    int reclaimStale(@Param("id") Long id, @Param("cutoff") LocalDateTime cutoff, @Param("now") LocalDateTime now);
+}
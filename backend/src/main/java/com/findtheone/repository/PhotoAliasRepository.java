@@ -0,0 +1,33 @@
+package com.findtheone.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.findtheone.entity.PhotoAlias;
+
+import jakarta.persistence.LockModeType;
+
+@Repository
+public interface PhotoAliasRepository extends JpaRepository<PhotoAlias, String> {
+
+    /**
+     * Locking read, so a reference change waits for a migration that is
+     * publishing this alias instead of missing it
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Transactional
+    @Query("SELECT a FROM PhotoAlias a WHERE a.legacyName = :legacyName")
+    Optional<PhotoAlias> findForShare(@Param("legacyName") String legacyName);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PhotoAlias a WHERE a.sha256 = :sha256")
+    int deleteBySha256(@Param("sha256") String sha256);
+}
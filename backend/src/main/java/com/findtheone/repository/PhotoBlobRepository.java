@@ -0,0 +1,35 @@
+package com.findtheone.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.findtheone.entity.PhotoBlob;
+
+@Repository
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlob, String> {
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PhotoBlob b SET b.refCount = b.refCount + :delta WHERE b.sha256 = :sha256 AND b.refCount + :delta >= 0")
+    int adjustRefCount(@Param("sha256") String sha256, @Param("delta") int delta);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE PhotoBlob b SET b.lastUploadedAt = :now WHERE b.sha256 = :sha256")
+    int touch(@Param("sha256") String sha256, @Param("now") LocalDateTime now);
+
+    /**
+     * Remove the row only if nothing references the blob and nobody has
+     * uploaded its content since the cutoff
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PhotoBlob b WHERE b.sha256 = :sha256 AND b.refCount = 0 AND b.lastUploadedAt < :cutoff")
+    int deleteUnreferenced(@Param("sha256") String sha256, @Param("cutoff") LocalDateTime cutoff);
+}
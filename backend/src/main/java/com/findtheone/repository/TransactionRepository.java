@@ -2,18 +2,47 @@ package com.findtheone.repository;
 
 import com.findtheone.entity.Transaction;
 import com.findtheone.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     List<Transaction> findByUserOrderByCreatedAtDesc(User user);
 
+    List<Transaction> findByUserIdOrderByCreatedAtDesc(Long userId);
+
+    Optional<Transaction> findFirstByPaymentId(String paymentId);
+
+    /**
+     * Keyset page of a user's ledger, newest first - pass the last id of the previous page
+     */
+    List<Transaction> findByUserIdAndIdLessThanOrderByIdDesc(Long userId, Long beforeId, Pageable pageable);
+
+    @Query("SELECT COALESCE(SUM(t.coinAmount), 0) FROM Transaction t " +
+           "WHERE t.user.id = :userId AND t.id > :afterId AND t.status = 'COMPLETED'")
+    long sumCompletedAfter(@Param("userId") Long userId, @Param("afterId") Long afterId);
+
+    @Query("SELECT COALESCE(SUM(t.coinAmount), 0) FROM Transaction t " +
+           "WHERE t.user.id = :userId AND t.id > :afterId AND t.id <= :upToId AND t.status = 'COMPLETED'")
+    long sumCompletedBetween(@Param("userId") Long userId, @Param("afterId") Long afterId,
+            @Param("upToId") Long upToId);
+
+    @Query("SELECT DISTINCT t.user.id FROM Transaction t WHERE t.id > :afterId AND t.id <= :upToId")
+    List<Long> findUserIdsWithEntriesBetween(@Param("afterId") Long afterId, @Param("upToId") Long upToId);
+
+    @Query("SELECT MAX(t.id) FROM Transaction t")
+    Long findMaxId();
+
+    @Query("SELECT MAX(t.id) FROM Transaction t WHERE t.user.id = :userId")
+    Long findMaxIdByUserId(@Param("userId") Long userId);
+
     List<Transaction> findByUserAndTypeOrderByCreatedAtDesc(User user, Transaction.TransactionType type);
 
     @Query("SELECT SUM(t.coinAmount) FROM Transaction t WHERE t.user = :user AND t.type = :type AND t.status = 'COMPLETED'")
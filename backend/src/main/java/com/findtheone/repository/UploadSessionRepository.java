@@ -0,0 +1,33 @@
+package com.findtheone.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.findtheone.entity.UploadSession;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    long countByUserId(Long userId);
+
+    /**
+     * Move the confirmed offset forward only if nobody else has since the caller read it
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.uploadOffset = :newOffset, s.expiresAt = :expiresAt "
+            + "WHERE s.id = :id AND s.uploadOffset = :expectedOffset")
+    int advanceOffset(@Param("id") String id, @Param("expectedOffset") long expectedOffset,
+            @Param("newOffset") long newOffset, @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Query("SELECT s FROM UploadSession s WHERE s.expiresAt < :now ORDER BY s.expiresAt")
+    List<UploadSession> findExpired(@Param("now") LocalDateTime now, Pageable pageable);
+}
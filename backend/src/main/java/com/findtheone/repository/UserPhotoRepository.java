@@ -1,11 +1,16 @@
 package com.findtheone.repository;
 
+import com.findtheone.dto.PhotoSummaryDTO;
 import com.findtheone.entity.UserPhoto;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,12 +20,50 @@ public interface UserPhotoRepository extends JpaRepository<UserPhoto, Long> {
     @Query("SELECT up FROM UserPhoto up WHERE up.user.id = :userId AND up.isActive = true ORDER BY up.photoOrder ASC")
     List<UserPhoto> findActivePhotosByUserId(@Param("userId") Long userId);
 
+    /**
+     * Active photos of several users in one query, ordered by user then photo order
+     */
+    @Query("SELECT new com.findtheone.dto.PhotoSummaryDTO(up.id, up.user.id, up.photoUrl, up.thumbnailUrl, " +
+            "up.mediumUrl, up.photoOrder, up.caption) FROM UserPhoto up " +
+            "WHERE up.user.id IN :userIds AND up.isActive = true ORDER BY up.user.id ASC, up.photoOrder ASC")
+    List<PhotoSummaryDTO> findActivePhotoSummariesByUserIds(@Param("userIds") Collection<Long> userIds);
+
     @Query("SELECT up FROM UserPhoto up WHERE up.user.id = :userId AND up.photoOrder = 1 AND up.isActive = true")
     Optional<UserPhoto> findPrimaryPhotoByUserId(@Param("userId") Long userId);
 
     @Query("SELECT COUNT(up) FROM UserPhoto up WHERE up.user.id = :userId AND up.isActive = true")
     Long countActivePhotosByUserId(@Param("userId") Long userId);
 
+    boolean existsByObjectKey(String objectKey);
+
     @Query("SELECT MAX(up.photoOrder) FROM UserPhoto up WHERE up.user.id = :userId AND up.isActive = true")
     Optional<Integer> findMaxPhotoOrderByUserId(@Param("userId") Long userId);
+
+    /**
+     * Record generated variants on every row that points at the original
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UserPhoto up SET up.thumbnailUrl = :thumbnailUrl, up.mediumUrl = :mediumUrl WHERE up.photoUrl = :photoUrl")
+    int updateDerivatives(@Param("photoUrl") String photoUrl, @Param("thumbnailUrl") String thumbnailUrl,
+            @Param("mediumUrl") String mediumUrl);
+
+    /**
+     * Rows with recorded variants for any of the photo URLs - lets listings
+     * read variant URLs without touching the filesystem
+     */
+    @Query("SELECT up FROM UserPhoto up WHERE up.photoUrl IN :photoUrls AND up.thumbnailUrl IS NOT NULL")
+    List<UserPhoto> findRecordedDerivatives(@Param("photoUrls") Collection<String> photoUrls);
+
+    /**
+     * Keyset page of photos still missing variants, for the backfill job
+     */
+    @Query("SELECT up FROM UserPhoto up WHERE up.id > :afterId AND up.isActive = true AND up.thumbnailUrl IS NULL ORDER BY up.id ASC")
+    List<UserPhoto> findMissingDerivatives(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Active rows referencing a legacy upload by name, whatever host prefix the URL was saved with
+     */
+    @Query("SELECT COUNT(up) FROM UserPhoto up WHERE up.isActive = true AND up.photoUrl LIKE CONCAT('%/uploads/photos/', :filename)")
+    long countActiveByFilename(@Param("filename") String filename);
 }
@@ -3,12 +3,15 @@ package com.findtheone.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.findtheone.entity.User;
+import com.findtheone.security.UserSnapshot;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -17,6 +20,13 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
        boolean existsByEmail(String email);
 
+       /**
+        * Only the columns request authentication needs - no TEXT columns
+        */
+       @Query("SELECT new com.findtheone.security.UserSnapshot(u.id, u.email, u.name, u.role, u.isActive, " +
+                     "u.isEmailVerified, u.profilePhotoUrl) FROM User u WHERE u.id = :userId")
+       Optional<UserSnapshot> findSnapshotById(@Param("userId") Long userId);
+
        @Query("SELECT u FROM User u WHERE u.id != :userId AND u.isActive = true " +
                      "AND u.id NOT IN (SELECT l.liked.id FROM Like l WHERE l.liker.id = :userId)")
        List<User> findPotentialMatches(@Param("userId") Long userId);
@@ -24,4 +34,32 @@ public interface UserRepository extends JpaRepository<User, Long> {
        @Query("SELECT u FROM User u WHERE u.id != :userId AND u.location = :location " +
                      "AND u.isActive = true AND u.id NOT IN (SELECT l.liked.id FROM Like l WHERE l.liker.id = :userId)")
        List<User> findPotentialMatchesByLocation(@Param("userId") Long userId, @Param("location") String location);
+
+       /**
+        * Refresh the denormalised coins column from the ledger snapshot
+        */
+       @Modifying
+       @Query("UPDATE User u SET u.coins = :coins WHERE u.id = :userId")
+       int syncCoins(@Param("userId") Long userId, @Param("coins") int coins);
+
+       @Modifying
+       @Query("UPDATE User u SET u.password = :password WHERE u.id = :userId")
+       int updatePassword(@Param("userId") Long userId, @Param("password") String password);
+
+       @Query("SELECT u.coins FROM User u WHERE u.id = :userId")
+       Optional<Integer> findCoinsById(@Param("userId") Long userId);
+
+       /**
+        * Profile pictures pointing at a flat legacy photo, for the storage migration
+        */
+       @Query("SELECT COUNT(u) FROM User u WHERE u.profilePhotoUrl LIKE CONCAT('%/uploads/photos/', :filename)")
+       long countByProfilePhotoFilename(@Param("filename") String filename);
+
+       // Keyset scans used by bulk jobs - pass the last id of the previous chunk
+       @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.isActive = true ORDER BY u.id")
+       List<Long> findActiveIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+       @Query("SELECT u.id FROM User u WHERE u.id > :afterId AND u.isActive = true " +
+                     "AND u.isEmailVerified = true ORDER BY u.id")
+       List<Long> findVerifiedIdsAfter(@Param("afterId") Long afterId, Pageable pageable);
 }
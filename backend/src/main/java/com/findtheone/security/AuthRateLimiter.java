@@ -0,0 +1,112 @@
+package com.findtheone.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Throttles sign-in and email-verification attempts per client IP and per
+ * email before any BCrypt, database or SMTP work is done. Sign-in has a tight
+ * (IP, email) window plus a looser per-email cap, so one client cannot lock a
+ * victim out while rotating addresses still cannot hammer a single account.
+ * An attempt only counts when every window admits it. Counters are in-memory
+ * per node.
+ */
+@Component
+public class AuthRateLimiter {
+
+    private final SlidingWindowRateLimiter signinByIp;
+    private final SlidingWindowRateLimiter signinByIpAndEmail;
+    private final SlidingWindowRateLimiter signinByEmail;
+    private final SlidingWindowRateLimiter verifyByIp;
+    private final SlidingWindowRateLimiter verifyByEmail;
+    private final SlidingWindowRateLimiter resendByIp;
+    private final SlidingWindowRateLimiter resendByEmail;
+
+    public AuthRateLimiter(
+            @Value("${app.rate-limit.max-keys:100000}") int maxKeys,
+            @Value("${app.rate-limit.signin.per-ip:30}") int signinPerIp,
+            @Value("${app.rate-limit.signin.per-ip-email:5}") int signinPerIpAndEmail,
+            @Value("${app.rate-limit.signin.per-email:20}") int signinPerEmail,
+            @Value("${app.rate-limit.signin.window-ms:60000}") long signinWindowMs,
+            @Value("${app.rate-limit.verify.per-ip:20}") int verifyPerIp,
+            @Value("${app.rate-limit.verify.per-email:5}") int verifyPerEmail,
+            @Value("${app.rate-limit.verify.window-ms:900000}") long verifyWindowMs,
+            @Value("${app.rate-limit.resend.per-ip:10}") int resendPerIp,
+            @Value("${app.rate-limit.resend.per-email:3}") int resendPerEmail,
+            @Value("${app.rate-limit.resend.window-ms:900000}") long resendWindowMs) {
+        this.signinByIp = new SlidingWindowRateLimiter(signinPerIp, signinWindowMs, maxKeys);
+        this.signinByIpAndEmail = new SlidingWindowRateLimiter(signinPerIpAndEmail, signinWindowMs, maxKeys);
+        this.signinByEmail = new SlidingWindowRateLimiter(signinPerEmail, signinWindowMs, maxKeys);
+        this.verifyByIp = new SlidingWindowRateLimiter(verifyPerIp, verifyWindowMs, maxKeys);
+        this.verifyByEmail = new SlidingWindowRateLimiter(verifyPerEmail, verifyWindowMs, maxKeys);
+        this.resendByIp = new SlidingWindowRateLimiter(resendPerIp, resendWindowMs, maxKeys);
+        this.resendByEmail = new SlidingWindowRateLimiter(resendPerEmail, resendWindowMs, maxKeys);
+    }
+
+    /**
+     * @return 0 if the attempt may proceed, otherwise seconds to wait
+     */
+    public long checkSignin(String clientIp, String email) {
+        String normalized = normalize(email);
+        return check(new SlidingWindowRateLimiter[] { signinByIp, signinByIpAndEmail, signinByEmail },
+                clientIp, normalized != null && clientIp != null ? clientIp + "|" + normalized : null, normalized);
+    }
+
+    public long checkVerifyEmail(String clientIp, String email) {
+        return check(new SlidingWindowRateLimiter[] { verifyByIp, verifyByEmail }, clientIp, normalize(email));
+    }
+
+    public long checkResendVerification(String clientIp, String email) {
+        return check(new SlidingWindowRateLimiter[] { resendByIp, resendByEmail }, clientIp, normalize(email));
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        signinByIp.evictIdle();
+        signinByIpAndEmail.evictIdle();
+        signinByEmail.evictIdle();
+        verifyByIp.evictIdle();
+        verifyByEmail.evictIdle();
+        resendByIp.evictIdle();
+        resendByEmail.evictIdle();
+    }
+
+    /** Windows and keys pair up by position; a null key skips its window. */
+    private long check(SlidingWindowRateLimiter[] windows, String... keys) {
+        // Look first, so an attempt one window refuses is not charged to the others
+        long retryAfter = 0;
+        for (int i = 0; i < windows.length; i++) {
+            if (keys[i] != null) {
+                retryAfter = Math.max(retryAfter, windows[i].retryAfter(keys[i]));
+            }
+        }
+        if (retryAfter > 0) {
+            return retryAfter;
+        }
+
+        List<Integer> acquired = new ArrayList<>(windows.length);
+        for (int i = 0; i < windows.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            retryAfter = windows[i].tryAcquire(keys[i]);
+            if (retryAfter > 0) {
+                for (int a : acquired) {
+                    windows[a].release(keys[a]); // Lost a race for the last slot of a later window
+                }
+                return retryAfter;
+            }
+            acquired.add(i);
+        }
+        return 0;
+    }
+
+    private static String normalize(String email) {
+        return email != null && !email.isBlank() ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+}
@@ -7,42 +7,49 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import com.findtheone.service.UserDetailsServiceImpl;
+import com.findtheone.entity.User;
+import com.findtheone.service.TokenRevocationService;
+
+import io.jsonwebtoken.Claims;
 
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+/**
+ * Authenticates requests from the bearer token without loading the User
+ * entity: tokens of revoked users are rejected from an in-memory set, and
+ * the token's userId claim keys a cached {@link UserSnapshot} for the
+ * principal.
+ */
 public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private UserSnapshotCache userSnapshotCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
+    // EventSource cannot send an Authorization header, so the SSE stream accepts ?token=
+    private static final String SSE_STREAM_PATH = "/api/messages/stream";
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication =
-                        new UsernamePasswordAuthenticationToken(userDetails,
-                                null,
-                                userDetails.getAuthorities());
+            UsernamePasswordAuthenticationToken authentication = jwt != null ? authenticate(jwt) : null;
+            if (authentication != null) {
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-
                 SecurityContextHolder.getContext().setAuthentication(authentication);
             }
         } catch (Exception e) {
@@ -52,6 +59,28 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Authenticate a bearer token outside the servlet filter chain, e.g. on
+     * a STOMP CONNECT frame
+     *
+     * @return the authentication, or null if the token is invalid, revoked
+     *         or belongs to an inactive user
+     */
+    public UsernamePasswordAuthenticationToken authenticate(String jwt) {
+        Claims claims = jwtUtils.parseClaims(jwt);
+        if (claims == null || JwtUtils.STATUS_INACTIVE.equals(claims.get(JwtUtils.CLAIM_STATUS))) {
+            return null;
+        }
+        Long userId = JwtUtils.getUserId(claims);
+        boolean revoked = userId == null || tokenRevocationService.isRevoked(userId, claims.getIssuedAt());
+        UserSnapshot snapshot = !revoked ? userSnapshotCache.get(userId) : null;
+        if (snapshot == null || !snapshot.isActive() || !snapshot.getEmail().equals(claims.getSubject())) {
+            return null;
+        }
+        User principal = snapshot.toPrincipal();
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -59,6 +88,13 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             return headerAuth.substring(7);
         }
 
+        if (SSE_STREAM_PATH.equals(request.getRequestURI())) {
+            String tokenParam = request.getParameter("token");
+            if (StringUtils.hasText(tokenParam)) {
+                return tokenParam;
+            }
+        }
+
         return null;
     }
 }
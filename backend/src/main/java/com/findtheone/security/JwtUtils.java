@@ -1,7 +1,14 @@
 package com.findtheone.security;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,66 +19,168 @@ import org.springframework.stereotype.Component;
 
 import com.findtheone.entity.User;
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
+/**
+ * Issues and verifies access tokens. The HMAC key and parser are built once;
+ * recently verified tokens are remembered by SHA-256 digest until they
+ * expire, so a client polling with the same token skips the Base64, JSON
+ * and HMAC work on every request after the first. Lookups are lock-free;
+ * when the cache is full expired entries are swept, and while it is still
+ * full new tokens are simply verified without being remembered.
+ */
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    public static final String CLAIM_USER_ID = "userId";
+    public static final String CLAIM_ROLE = "role";
+    public static final String CLAIM_STATUS = "status";
+    public static final String STATUS_ACTIVE = "ACTIVE";
+    public static final String STATUS_INACTIVE = "INACTIVE";
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private int jwtExpirationMs;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    @Value("${app.jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize;
+
+    private Key signingKey;
+    private JwtParser parser;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    // Token digest -> verified claims, evicted once expired
+    private final ConcurrentHashMap<ByteBuffer, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile long nextSweepAt;
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
     }
 
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
         
         // Get the User object to access the ID
-        User user = (User) userPrincipal;
-        
+        return generateJwtToken((User) userPrincipal);
+    }
+
+    /**
+     * Short-lived access token; clients renew it with their refresh token
+     */
+    public String generateJwtToken(User user) {
         return Jwts.builder()
-                .setSubject((userPrincipal.getUsername()))
-                .claim("userId", user.getId())
+                .setSubject(user.getUsername())
+                .claim(CLAIM_USER_ID, user.getId())
+                .claim(CLAIM_ROLE, user.getRole() != null ? user.getRole().name() : User.Role.USER.name())
+                .claim(CLAIM_STATUS, Boolean.TRUE.equals(user.getIsActive()) ? STATUS_ACTIVE : STATUS_INACTIVE)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verify the token and return its claims in one parse, or null if it is
+     * invalid or expired. The returned claims may be shared - do not modify them.
+     */
+    public Claims parseClaims(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        ByteBuffer digest = ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            verifiedTokens.remove(digest, cached);
+        }
+
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            if (expiration != null && hasRoom(now)) {
+                verifiedTokens.put(digest, new VerifiedToken(claims, expiration.getTime()));
+            }
+            return claims;
+        } catch (ExpiredJwtException e) {
+            logger.debug("JWT token is expired: {}", e.getMessage());
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.error("Invalid JWT token: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Make room by dropping expired tokens; one thread sweeps at a time and the
+     * others just skip caching until it is done
+     */
+    private boolean hasRoom(long now) {
+        if (verifiedTokens.size() < verifiedCacheSize) {
+            return true;
+        }
+        // Nothing can have expired before the earliest expiry seen by the last sweep
+        if (now >= nextSweepAt && sweeping.compareAndSet(false, true)) {
+            try {
+                long earliest = Long.MAX_VALUE;
+                for (Iterator<VerifiedToken> it = verifiedTokens.values().iterator(); it.hasNext();) {
+                    long expiresAt = it.next().expiresAt;
+                    if (expiresAt <= now) {
+                        it.remove();
+                    } else {
+                        earliest = Math.min(earliest, expiresAt);
+                    }
+                }
+                nextSweepAt = earliest;
+            } finally {
+                sweeping.set(false);
+            }
+        }
+        return verifiedTokens.size() < verifiedCacheSize;
+    }
+
+    public static Long getUserId(Claims claims) {
+        Object userId = claims.get(CLAIM_USER_ID);
+        return userId instanceof Number ? ((Number) userId).longValue() : null;
+    }
+
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        Claims claims = parseClaims(token);
+        return claims != null ? claims.getSubject() : null;
     }
 
     public boolean validateJwtToken(String authToken) {
-        try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(authToken);
-            return true;
-        } catch (SecurityException e) {
-            logger.error("Invalid JWT signature: {}", e.getMessage());
-        } catch (MalformedJwtException e) {
-            logger.error("Invalid JWT token: {}", e.getMessage());
-        } catch (ExpiredJwtException e) {
-            logger.error("JWT token is expired: {}", e.getMessage());
-        } catch (UnsupportedJwtException e) {
-            logger.error("JWT token is unsupported: {}", e.getMessage());
-        } catch (IllegalArgumentException e) {
-            logger.error("JWT claims string is empty: {}", e.getMessage());
+        return parseClaims(authToken) != null;
+    }
+
+    private static class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAt;
+
+        VerifiedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
         }
-        return false;
     }
 }
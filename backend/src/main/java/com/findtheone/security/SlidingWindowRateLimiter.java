@@ -0,0 +1,152 @@
+package com.findtheone.security;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-key sliding-window counter. The window is split into slots; each slot
+ * packs its slot number and hit count into one long that is updated with
+ * CAS, so counting takes no locks. Keys idle for a whole window are dropped
+ * by {@link #evictIdle()}.
+ */
+public class SlidingWindowRateLimiter {
+
+    private static final int SLOTS = 10;
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+    private final int limit;
+    private final long slotMs;
+    private final int maxKeys;
+    // Slots are numbered from construction so the number fits beside the count
+    private final long startMs = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public SlidingWindowRateLimiter(int limit, long windowMs, int maxKeys) {
+        this.limit = limit;
+        this.slotMs = Math.max(1, windowMs / SLOTS);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Count one attempt for the key.
+     *
+     * @return 0 if allowed, otherwise the seconds until an attempt frees up
+     */
+    public long tryAcquire(String key) {
+        long now = System.currentTimeMillis() - startMs;
+        long slot = now / slotMs;
+
+        Window window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxKeys) {
+                evictIdle();
+            }
+            window = windows.computeIfAbsent(key, k -> new Window());
+        }
+        window.lastSlot = slot;
+
+        window.increment(slot);
+        if (window.count(slot) <= limit) {
+            return 0;
+        }
+        window.decrement(slot);
+        return secondsUntilFree(window, slot, now);
+    }
+
+    /**
+     * Check the key without counting an attempt.
+     *
+     * @return 0 if an attempt would be allowed, otherwise the seconds until one frees up
+     */
+    public long retryAfter(String key) {
+        Window window = windows.get(key);
+        if (window == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis() - startMs;
+        long slot = now / slotMs;
+        return window.count(slot) < limit ? 0 : secondsUntilFree(window, slot, now);
+    }
+
+    /**
+     * Give back an attempt counted by {@link #tryAcquire(String)} that did not go ahead
+     */
+    public void release(String key) {
+        Window window = windows.get(key);
+        if (window != null) {
+            window.decrement((System.currentTimeMillis() - startMs) / slotMs);
+        }
+    }
+
+    /**
+     * Drop keys with no attempt in the last full window
+     */
+    public void evictIdle() {
+        long slot = (System.currentTimeMillis() - startMs) / slotMs;
+        windows.values().removeIf(window -> window.lastSlot <= slot - SLOTS);
+    }
+
+    private long secondsUntilFree(Window window, long slot, long now) {
+        return Math.max(1, (window.oldestCountedSlot(slot) + SLOTS) * slotMs - now + 999) / 1000;
+    }
+
+    public int size() {
+        return windows.size();
+    }
+
+    private static class Window {
+        // Each entry: slot number in the high bits, hits in the low COUNT_BITS
+        private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+        private volatile long lastSlot;
+
+        void increment(long slot) {
+            int index = (int) (slot % SLOTS);
+            while (true) {
+                long current = slots.get(index);
+                long updated = (current >>> COUNT_BITS) == slot
+                        ? current + 1
+                        : (slot << COUNT_BITS) | 1;
+                if (slots.compareAndSet(index, current, updated)) {
+                    return;
+                }
+            }
+        }
+
+        void decrement(long slot) {
+            int index = (int) (slot % SLOTS);
+            while (true) {
+                long current = slots.get(index);
+                if ((current >>> COUNT_BITS) != slot || (current & COUNT_MASK) == 0) {
+                    return;
+                }
+                if (slots.compareAndSet(index, current, current - 1)) {
+                    return;
+                }
+            }
+        }
+
+        int count(long slot) {
+            int total = 0;
+            for (int i = 0; i < SLOTS; i++) {
+                long value = slots.get(i);
+                if ((value >>> COUNT_BITS) > slot - SLOTS) {
+                    total += (int) (value & COUNT_MASK);
+                }
+            }
+            return total;
+        }
+
+        long oldestCountedSlot(long slot) {
+            long oldest = slot;
+            for (int i = 0; i < SLOTS; i++) {
+                long value = slots.get(i);
+                long valueSlot = value >>> COUNT_BITS;
+                if (valueSlot > slot - SLOTS && (value & COUNT_MASK) > 0) {
+                    oldest = Math.min(oldest, valueSlot);
+                }
+            }
+            return oldest;
+        }
+    }
+}
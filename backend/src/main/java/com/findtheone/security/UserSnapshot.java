@@ -0,0 +1,74 @@
+package com.findtheone.security;
+
+import com.findtheone.entity.User;
+
+/**
+ * The handful of user fields request authentication needs, loaded without
+ * the TEXT columns and cached by {@link UserSnapshotCache}
+ */
+public class UserSnapshot {
+
+    private final Long id;
+    private final String email;
+    private final String name;
+    private final User.Role role;
+    private final boolean active;
+    private final boolean emailVerified;
+    private final String profilePhotoUrl;
+
+    public UserSnapshot(Long id, String email, String name, User.Role role, Boolean active, Boolean emailVerified,
+            String profilePhotoUrl) {
+        this.id = id;
+        this.email = email;
+        this.name = name;
+        this.role = role;
+        this.active = Boolean.TRUE.equals(active);
+        this.emailVerified = Boolean.TRUE.equals(emailVerified);
+        this.profilePhotoUrl = profilePhotoUrl;
+    }
+
+    /**
+     * A detached User carrying only the snapshot fields, so controllers can keep
+     * reading the principal as a User. Load the entity before changing and saving it.
+     */
+    public User toPrincipal() {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName(name);
+        user.setRole(role);
+        user.setIsActive(active);
+        user.setIsEmailVerified(emailVerified);
+        user.setProfilePhotoUrl(profilePhotoUrl);
+        return user;
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public User.Role getRole() {
+        return role;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public boolean isEmailVerified() {
+        return emailVerified;
+    }
+
+    public String getProfilePhotoUrl() {
+        return profilePhotoUrl;
+    }
+}
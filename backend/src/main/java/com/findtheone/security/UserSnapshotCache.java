@@ -0,0 +1,104 @@
+package com.findtheone.security;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Bounded, time-limited cache of {@link UserSnapshot}s keyed by user id.
+ * Writers of name, photo, role, status or verification call
+ * {@link #invalidate(Long)}; the TTL bounds staleness for changes made on
+ * other nodes.
+ */
+@Component
+public class UserSnapshotCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${app.security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.security.user-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    // Bumped on every invalidation so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+
+    // Access-ordered, so the eldest entry is the least recently used
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /**
+     * The cached snapshot, loaded with a single slim query on a miss. Null if
+     * the user no longer exists.
+     */
+    public UserSnapshot get(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(userId);
+            if (entry != null && entry.expiresAt > now) {
+                return entry.snapshot;
+            }
+        }
+
+        long loadGeneration = generation.get();
+        UserSnapshot snapshot = userRepository.findSnapshotById(userId).orElse(null);
+        if (snapshot != null) {
+            synchronized (entries) {
+                if (generation.get() == loadGeneration) {
+                    entries.put(userId, new Entry(snapshot, now + ttlMs));
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Drop the user's snapshot. Inside a transaction it is dropped again after
+     * commit, so a request that reloads it before then cannot cache the old row.
+     */
+    public void invalidate(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(Long userId) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(userId);
+        }
+    }
+
+    private static class Entry {
+        private final UserSnapshot snapshot;
+        private final long expiresAt;
+
+        Entry(UserSnapshot snapshot, long expiresAt) {
+            this.snapshot = snapshot;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
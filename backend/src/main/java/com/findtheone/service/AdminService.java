@@ -18,6 +18,7 @@ import com.findtheone.repository.MatchRepository;
 import com.findtheone.repository.MessageRepository;
 import com.findtheone.repository.UserRepository;
 import com.findtheone.repository.VideoVerificationRepository;
+import com.findtheone.security.UserSnapshotCache;
 
 @Service
 @Transactional
@@ -38,6 +39,15 @@ public class AdminService {
     @Autowired
     private VideoVerificationRepository videoVerificationRepository;
 
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
     public Map<String, Object> getDashboardData() {
         Map<String, Object> data = new HashMap<>();
         
@@ -77,7 +87,11 @@ public class AdminService {
         user.setRole(newRole);
         user.setUpdatedAt(LocalDateTime.now());
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSnapshotCache.invalidate(userId);
+        // Outstanding access tokens carry the old role claim
+        tokenRevocationService.revokeUser(userId, "ROLE_CHANGED");
+        return saved;
     }
 
     public User updateUserStatus(Long userId, Boolean isActive) {
@@ -87,7 +101,13 @@ public class AdminService {
         user.setIsActive(isActive);
         user.setUpdatedAt(LocalDateTime.now());
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSnapshotCache.invalidate(userId);
+        if (!Boolean.TRUE.equals(isActive)) {
+            tokenRevocationService.revokeUser(userId, "DEACTIVATED");
+            refreshTokenService.revokeAllForUser(userId);
+        }
+        return saved;
     }
 
     public void deleteUser(Long userId) {
@@ -100,6 +120,9 @@ public class AdminService {
         }
         
         userRepository.delete(user);
+        userSnapshotCache.invalidate(userId);
+        tokenRevocationService.revokeUser(userId, "DELETED");
+        refreshTokenService.revokeAllForUser(userId);
     }
 
     public List<Map<String, Object>> getVideoVerifications() {
@@ -0,0 +1,226 @@
+package com.findtheone.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.findtheone.entity.BonusCampaign;
+import com.findtheone.repository.BonusCampaignRepository;
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Runs bonus-coin campaigns in the background. Each chunk is one transaction:
+ * lock the campaign row, read the next user ids after the checkpoint, bulk
+ * insert the ledger rows and advance the checkpoint. A crash therefore loses
+ * at most an uncommitted chunk, and campaigns left RUNNING are resumed on
+ * startup.
+ */
+@Service
+public class BonusCampaignService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(BonusCampaignService.class);
+
+    @Autowired
+    private BonusCampaignRepository campaignRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CoinService coinService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final ExecutorService runner = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bonus-campaign");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Live progress of campaigns running on this node
+    private final Map<Long, RunStats> runStats = new ConcurrentHashMap<>();
+
+    public BonusCampaignService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public BonusCampaign createCampaign(String name, int coinAmount, String description,
+            BonusCampaign.Segment segment, Integer chunkSize) {
+        if (coinAmount <= 0) {
+            throw new RuntimeException("Coin amount must be positive");
+        }
+        BonusCampaign campaign = new BonusCampaign(name, coinAmount,
+                description != null ? description : name, segment != null ? segment : BonusCampaign.Segment.ALL_ACTIVE);
+        if (chunkSize != null) {
+            campaign.setChunkSize(Math.max(1, Math.min(chunkSize, 10000)));
+        }
+        return campaignRepository.save(campaign);
+    }
+
+    public BonusCampaign startCampaign(Long campaignId) {
+        BonusCampaign campaign = transactionTemplate.execute(status -> {
+            BonusCampaign locked = campaignRepository.findForUpdate(campaignId)
+                    .orElseThrow(() -> new RuntimeException("Campaign not found"));
+            if (locked.getStatus() == BonusCampaign.Status.COMPLETED) {
+                throw new RuntimeException("Campaign already completed");
+            }
+            locked.setStatus(BonusCampaign.Status.RUNNING);
+            locked.setLastError(null);
+            if (locked.getStartedAt() == null) {
+                locked.setStartedAt(LocalDateTime.now());
+            }
+            return campaignRepository.save(locked);
+        });
+        submit(campaignId);
+        return campaign;
+    }
+
+    /**
+     * Stop after the current chunk; starting again resumes from the checkpoint
+     */
+    public BonusCampaign pauseCampaign(Long campaignId) {
+        return transactionTemplate.execute(status -> {
+            BonusCampaign locked = campaignRepository.findForUpdate(campaignId)
+                    .orElseThrow(() -> new RuntimeException("Campaign not found"));
+            if (locked.getStatus() == BonusCampaign.Status.RUNNING) {
+                locked.setStatus(BonusCampaign.Status.PAUSED);
+            }
+            return campaignRepository.save(locked);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRunningCampaigns() {
+        for (BonusCampaign campaign : campaignRepository.findByStatus(BonusCampaign.Status.RUNNING)) {
+            logger.info("Resuming bonus campaign {} from user #{}", campaign.getId(), campaign.getLastUserId());
+            submit(campaign.getId());
+        }
+    }
+
+    private void submit(Long campaignId) {
+        runStats.putIfAbsent(campaignId, new RunStats());
+        runner.execute(() -> run(campaignId));
+    }
+
+    private void run(Long campaignId) {
+        RunStats stats = runStats.computeIfAbsent(campaignId, id -> new RunStats());
+        try {
+            while (true) {
+                long chunkStart = System.nanoTime();
+                Integer granted = transactionTemplate.execute(status -> processChunk(campaignId));
+                if (granted == null || granted < 0) {
+                    break; // Paused, completed or gone
+                }
+                stats.record(granted, System.nanoTime() - chunkStart);
+            }
+        } catch (Exception e) {
+            logger.error("Bonus campaign {} failed: {}", campaignId, e.getMessage());
+            transactionTemplate.executeWithoutResult(status -> campaignRepository.findForUpdate(campaignId)
+                    .ifPresent(campaign -> {
+                        campaign.setStatus(BonusCampaign.Status.FAILED);
+                        campaign.setLastError(e.getMessage());
+                        campaignRepository.save(campaign);
+                    }));
+        }
+    }
+
+    /**
+     * Grant one chunk. Returns the number of users granted, or -1 when the
+     * campaign should stop.
+     */
+    private int processChunk(Long campaignId) {
+        BonusCampaign campaign = campaignRepository.findForUpdate(campaignId).orElse(null);
+        if (campaign == null || campaign.getStatus() != BonusCampaign.Status.RUNNING) {
+            return -1;
+        }
+
+        PageRequest chunk = PageRequest.of(0, campaign.getChunkSize());
+        List<Long> userIds = campaign.getSegment() == BonusCampaign.Segment.EMAIL_VERIFIED
+                ? userRepository.findVerifiedIdsAfter(campaign.getLastUserId(), chunk)
+                : userRepository.findActiveIdsAfter(campaign.getLastUserId(), chunk);
+
+        if (userIds.isEmpty()) {
+            campaign.setStatus(BonusCampaign.Status.COMPLETED);
+            campaign.setCompletedAt(LocalDateTime.now());
+            campaignRepository.save(campaign);
+            logger.info("Bonus campaign {} completed, {} users granted", campaignId, campaign.getGrantedCount());
+            return -1;
+        }
+
+        coinService.grantBonusCoins(userIds, campaign.getCoinAmount(), campaign.getDescription());
+
+        campaign.setLastUserId(userIds.get(userIds.size() - 1));
+        campaign.setGrantedCount(campaign.getGrantedCount() + userIds.size());
+        campaignRepository.save(campaign);
+        return userIds.size();
+    }
+
+    public Map<String, Object> getProgress(BonusCampaign campaign) {
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("id", campaign.getId());
+        progress.put("name", campaign.getName());
+        progress.put("status", campaign.getStatus());
+        progress.put("segment", campaign.getSegment());
+        progress.put("coinAmount", campaign.getCoinAmount());
+        progress.put("grantedCount", campaign.getGrantedCount());
+        progress.put("lastUserId", campaign.getLastUserId());
+        progress.put("startedAt", campaign.getStartedAt());
+        progress.put("completedAt", campaign.getCompletedAt());
+        progress.put("lastError", campaign.getLastError());
+
+        RunStats stats = runStats.get(campaign.getId());
+        if (stats != null) {
+            progress.put("usersPerSecond", stats.usersPerSecond());
+            progress.put("lastChunkUsersPerSecond", stats.lastChunkUsersPerSecond());
+            progress.put("chunksThisRun", stats.chunks);
+        }
+        return progress;
+    }
+
+    @Override
+    public void destroy() {
+        runner.shutdownNow();
+    }
+
+    /**
+     * Throughput since this node started (or resumed) the campaign
+     */
+    private static class RunStats {
+        private final long startedNanos = System.nanoTime();
+        private volatile long users;
+        private volatile long chunks;
+        private volatile long lastChunkUsers;
+        private volatile long lastChunkNanos;
+
+        synchronized void record(int granted, long elapsedNanos) {
+            users += granted;
+            chunks++;
+            lastChunkUsers = granted;
+            lastChunkNanos = elapsedNanos;
+        }
+
+        double usersPerSecond() {
+            long elapsed = System.nanoTime() - startedNanos;
+            return elapsed > 0 ? users / (elapsed / 1e9) : 0.0;
+        }
+
+        double lastChunkUsersPerSecond() {
+            return lastChunkNanos > 0 ? lastChunkUsers / (lastChunkNanos / 1e9) : 0.0;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.findtheone.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.findtheone.entity.Message;
+import com.findtheone.entity.User;
+import com.findtheone.event.MessageSentEvent;
+import com.findtheone.repository.MessageRepository;
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Chat image attachments. The request body is streamed to disk by
+ * ImageUploadService (never held in memory as a whole), the IMAGE message is created
+ * immediately, and the preview is generated in the background by
+ * ThumbnailService. Jobs the worker queue rejected are picked up again by a
+ * periodic sweep; an image that cannot be decoded gets the original as its
+ * preview so it is not retried.
+ */
+@Service
+public class ChatAttachmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatAttachmentService.class);
+
+    private static final int RETRY_BATCH_SIZE = 50;
+
+    public static final String ATTACHMENT_DIR = "uploads/chat/";
+    public static final String ATTACHMENT_URL_PREFIX = "/uploads/chat/";
+    public static final String THUMBNAIL_DIR = ATTACHMENT_DIR + "thumbs/";
+    public static final String THUMBNAIL_URL_PREFIX = ATTACHMENT_URL_PREFIX + "thumbs/";
+
+    private static final Map<String, String> EXTENSIONS_BY_TYPE = Map.of(
+            "image/jpeg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp");
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ThumbnailService thumbnailService;
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private RealtimeService realtimeService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.chat.attachment.max-size:20971520}")
+    private long maxAttachmentSize;
+
+    // Previews younger than this may still be in the worker queue
+    @Value("${app.chat.thumbnail-retry-delay-ms:60000}")
+    private long thumbnailRetryDelayMs;
+
+    private Path attachmentDir = Paths.get(ATTACHMENT_DIR);
+
+    // Messages with a thumbnail job queued or running, so the sweep never submits one twice
+    private final Set<Long> pendingThumbnails = ConcurrentHashMap.newKeySet();
+
+    public static boolean isSupportedType(String contentType) {
+        return contentType != null && EXTENSIONS_BY_TYPE.containsKey(normalizeType(contentType));
+    }
+
+    public long getMaxAttachmentSize() {
+        return maxAttachmentSize;
+    }
+
+    /**
+     * Stream the attachment to disk and create the IMAGE message.
+     *
+     * @throws IllegalArgumentException if the body exceeds the size limit, is
+     *                                  not an image or either user does not exist
+     */
+    public Message sendImageMessage(Long senderId, Long receiverId, String contentType, InputStream body,
+            String caption) throws IOException {
+        Optional<User> sender = userRepository.findById(senderId);
+        Optional<User> receiver = userRepository.findById(receiverId);
+        if (sender.isEmpty() || receiver.isEmpty()) {
+            throw new IllegalArgumentException("User not found");
+        }
+
+        // The stored extension follows the file's signature, not the declared type
+        ImageUploadService.StoredImage stored = imageUploadService.store(body, attachmentDir, maxAttachmentSize);
+        String filename = stored.getFilename();
+
+        Message message = new Message(sender.get(), receiver.get(),
+                caption != null && !caption.isBlank() ? caption : "[Image]");
+        message.setMessageType(Message.MessageType.IMAGE);
+        message.setAttachmentUrl(ATTACHMENT_URL_PREFIX + filename);
+        Message savedMessage = messageRepository.save(message);
+        eventPublisher.publishEvent(new MessageSentEvent(savedMessage));
+
+        scheduleThumbnail(savedMessage);
+        return savedMessage;
+    }
+
+    /**
+     * Resubmit previews that were never generated, e.g. because the worker
+     * queue was full. Stops as soon as the queue rejects again.
+     */
+    @Scheduled(fixedDelayString = "${app.chat.thumbnail-retry-interval-ms:60000}")
+    public void retryMissingThumbnails() {
+        LocalDateTime before = LocalDateTime.now().minus(Duration.ofMillis(thumbnailRetryDelayMs));
+        int retried = 0;
+        for (Message message : messageRepository.findMissingThumbnails(Message.MessageType.IMAGE, before,
+                PageRequest.of(0, RETRY_BATCH_SIZE))) {
+            if (pendingThumbnails.contains(message.getId())) {
+                continue;
+            }
+            if (!scheduleThumbnail(message)) {
+                break;
+            }
+            retried++;
+        }
+        if (retried > 0) {
+            logger.info("Resubmitted {} chat thumbnails", retried);
+        }
+    }
+
+    /**
+     * @return false if the worker queue rejected the job
+     */
+    private boolean scheduleThumbnail(Message message) {
+        Long messageId = message.getId();
+        String attachmentUrl = message.getAttachmentUrl();
+        String filename = attachmentUrl.substring(attachmentUrl.lastIndexOf('/') + 1);
+        Path source = attachmentDir.resolve(filename);
+        if (!Files.exists(source)) {
+            // Nothing left to preview; record the original so the sweep moves on
+            publishThumbnail(message, attachmentUrl);
+            return true;
+        }
+        if (!pendingThumbnails.add(messageId)) {
+            return true;
+        }
+
+        String thumbnailName = filename.replaceFirst("\\.[^.]+$", "") + ".jpg";
+        Path thumbnailPath = attachmentDir.resolve("thumbs").resolve(thumbnailName);
+        boolean queued = thumbnailService.submit(source, thumbnailPath, written -> {
+            pendingThumbnails.remove(messageId);
+            publishThumbnail(message, THUMBNAIL_URL_PREFIX + thumbnailName);
+        }, error -> {
+            pendingThumbnails.remove(messageId);
+            // Undecodable: the client shows the original, which is what it would fall back to anyway
+            publishThumbnail(message, attachmentUrl);
+        });
+        if (!queued) {
+            pendingThumbnails.remove(messageId);
+        }
+        return queued;
+    }
+
+    private void publishThumbnail(Message message, String thumbnailUrl) {
+        messageRepository.updateThumbnailUrl(message.getId(), thumbnailUrl);
+
+        Map<String, Object> update = Map.of("messageId", message.getId(), "thumbnailUrl", thumbnailUrl);
+        realtimeService.sendToUser(message.getSender().getId(), RealtimeService.ATTACHMENTS_CHANNEL, update);
+        realtimeService.sendToUser(message.getReceiver().getId(), RealtimeService.ATTACHMENTS_CHANNEL, update);
+    }
+
+    private static String normalizeType(String contentType) {
+        int separator = contentType.indexOf(';');
+        return (separator >= 0 ? contentType.substring(0, separator) : contentType).trim().toLowerCase();
+    }
+}
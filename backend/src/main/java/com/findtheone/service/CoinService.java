@@ -1,78 +1,133 @@
 package com.findtheone.service;
 
+import com.findtheone.entity.CoinBalanceSnapshot;
 import com.findtheone.entity.Transaction;
-import com.findtheone.entity.User;
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
 import com.findtheone.repository.TransactionRepository;
 import com.findtheone.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Coin balances on top of an append-only ledger. Every change is an insert
+ * into transactions; the balance is the user's CoinBalanceSnapshot plus the
+ * completed entries after it. Credits take a shared lock on the user's
+ * snapshot row, debits and folding an exclusive one, and users.coins is a
+ * cache refreshed by the snapshotter.
+ *
+ * Ledger ids are allocated at insert but commit in any order. Because every
+ * writer holds the shared lock until it commits, a fold holding the
+ * exclusive lock sees all of the user's entries committed, and any later
+ * entry gets a higher id - so it can fold up to the user's current maximum
+ * id without relying on how long transactions take.
+ */
 @Service
 public class CoinService {
 
+    public static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // Seeds a snapshot from the legacy users.coins column the first time a user's ledger is touched
+    private static final String BOOTSTRAP_SNAPSHOT_SQL =
+            "INSERT INTO coin_balance_snapshots (user_id, balance, last_transaction_id, updated_at) " +
+            "SELECT u.id, u.coins, COALESCE((SELECT MAX(t.id) FROM transactions t WHERE t.user_id = u.id), 0), " +
+            "CURRENT_TIMESTAMP FROM users u WHERE u.id = ? " +
+            "AND NOT EXISTS (SELECT 1 FROM coin_balance_snapshots s WHERE s.user_id = ?)";
+
+    private static final String BULK_BOOTSTRAP_SNAPSHOT_SQL =
+            "INSERT INTO coin_balance_snapshots (user_id, balance, last_transaction_id, updated_at) " +
+            "SELECT u.id, u.coins, COALESCE((SELECT MAX(t.id) FROM transactions t WHERE t.user_id = u.id), 0), " +
+            "CURRENT_TIMESTAMP FROM users u WHERE u.id IN (%s) " +
+            "AND NOT EXISTS (SELECT 1 FROM coin_balance_snapshots s WHERE s.user_id = u.id)";
+
+    private static final String INSERT_LEDGER_SQL =
+            "INSERT INTO transactions (user_id, type, coin_amount, description, created_at, status) " +
+            "VALUES (?, ?, ?, ?, ?, 'COMPLETED')";
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Users whose snapshot row is known to be committed, to skip the bootstrap statement
+    private final Set<Long> bootstrappedUsers = ConcurrentHashMap.newKeySet();
+
     public Integer getUserCoins(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        return userOpt.map(User::getCoins).orElse(0);
+        Optional<CoinBalanceSnapshot> snapshot = snapshotRepository.findById(userId);
+        if (snapshot.isEmpty()) {
+            // Ledger never touched since the migration - the legacy column is still authoritative
+            return userRepository.findCoinsById(userId).orElse(0);
+        }
+        return balanceOf(snapshot.get());
     }
 
+    /**
+     * Debit coins if the balance covers the amount. Returns false when the user
+     * does not exist or has insufficient coins; nothing is written in that case.
+     */
     @Transactional
     public boolean spendCoins(Long userId, Integer amount, String description) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return false;
+        if (!ensureSnapshot(userId)) {
+            return false; // Unknown user
         }
 
-        User user = userOpt.get();
-        if (user.getCoins() < amount) {
+        CoinBalanceSnapshot snapshot = snapshotRepository.findForUpdate(userId).orElseThrow();
+        if (balanceOf(snapshot) < amount) {
             return false; // Insufficient coins
         }
 
-        // Deduct coins
-        user.setCoins(user.getCoins() - amount);
-        userRepository.save(user);
-
         // Record transaction
-        Transaction transaction = new Transaction(
-                user,
+        transactionRepository.save(new Transaction(
+                userRepository.getReferenceById(userId),
                 Transaction.TransactionType.SPEND,
                 -amount,
-                description);
-        transactionRepository.save(transaction);
+                description));
 
         return true;
     }
 
     @Transactional
     public Transaction purchaseCoins(Long userId, Integer coinAmount, BigDecimal moneyAmount) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            throw new RuntimeException("User not found");
-        }
-
-        User user = userOpt.get();
-
         // Simulate fake payment processing
         String paymentId = "FAKE_PAY_" + UUID.randomUUID().toString().substring(0, 8);
+        return purchaseCoins(userId, coinAmount, moneyAmount, paymentId);
+    }
 
-        // Add coins to user
-        user.setCoins(user.getCoins() + coinAmount);
-        userRepository.save(user);
+    /**
+     * Credit coins for a payment the gateway has already confirmed
+     */
+    @Transactional
+    public Transaction purchaseCoins(Long userId, Integer coinAmount, BigDecimal moneyAmount, String paymentId) {
+        if (!ensureSnapshot(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        snapshotRepository.findForShare(userId);
 
         // Record transaction
         Transaction transaction = new Transaction(
-                user,
+                userRepository.getReferenceById(userId),
                 Transaction.TransactionType.PURCHASE,
                 coinAmount,
                 moneyAmount,
@@ -84,31 +139,62 @@ public class CoinService {
 
     @Transactional
     public void addBonusCoins(Long userId, Integer amount, String description) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
+        if (!ensureSnapshot(userId)) {
             return;
         }
-
-        User user = userOpt.get();
-        user.setCoins(user.getCoins() + amount);
-        userRepository.save(user);
+        snapshotRepository.findForShare(userId);
 
         // Record transaction
-        Transaction transaction = new Transaction(
-                user,
+        transactionRepository.save(new Transaction(
+                userRepository.getReferenceById(userId),
                 Transaction.TransactionType.BONUS,
                 amount,
-                description);
-        transactionRepository.save(transaction);
+                description));
     }
 
-    public List<Transaction> getUserTransactionHistory(Long userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty()) {
-            return List.of();
+    /**
+     * Credit the same bonus to many users with one bootstrap statement and one
+     * JDBC batch of ledger inserts. Runs in the caller's transaction; user ids
+     * must exist.
+     */
+    @Transactional
+    public void grantBonusCoins(List<Long> userIds, int amount, String description) {
+        if (userIds.isEmpty()) {
+            return;
         }
 
-        return transactionRepository.findByUserOrderByCreatedAtDesc(userOpt.get());
+        List<Long> pending = userIds.stream().filter(id -> !bootstrappedUsers.contains(id)).toList();
+        if (!pending.isEmpty()) {
+            String placeholders = String.join(",", Collections.nCopies(pending.size(), "?"));
+            try {
+                jdbcTemplate.update(String.format(BULK_BOOTSTRAP_SNAPSHOT_SQL, placeholders), pending.toArray());
+            } catch (DuplicateKeyException e) {
+                // Raced with a single-user bootstrap - fall back to one row at a time
+                pending.forEach(this::ensureSnapshot);
+            }
+        }
+
+        snapshotRepository.findAllForShare(userIds);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String type = Transaction.TransactionType.BONUS.name();
+        jdbcTemplate.batchUpdate(INSERT_LEDGER_SQL, userIds, userIds.size(), (ps, userId) -> {
+            ps.setLong(1, userId);
+            ps.setString(2, type);
+            ps.setInt(3, amount);
+            ps.setString(4, description);
+            ps.setTimestamp(5, now);
+        });
+    }
+
+    /**
+     * One page of the user's ledger, newest first. Pass the id of the last
+     * entry of the previous page as beforeId, or null for the first page.
+     */
+    public List<Transaction> getTransactionHistory(Long userId, Long beforeId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        return transactionRepository.findByUserIdAndIdLessThanOrderByIdDesc(
+                userId, beforeId != null ? beforeId : Long.MAX_VALUE, PageRequest.of(0, pageSize));
     }
 
     public boolean canAffordMessage(Long userId) {
@@ -119,4 +205,64 @@ public class CoinService {
     public boolean unlockMessage(Long userId, String description) {
         return spendCoins(userId, 1, description); // 1 coin per message
     }
+
+    /**
+     * Fold all of the user's ledger entries into their snapshot and refresh
+     * users.coins. Waits for the user's in-flight ledger writes to commit.
+     */
+    @Transactional
+    public void foldLedger(Long userId) {
+        Optional<CoinBalanceSnapshot> locked = snapshotRepository.findForUpdate(userId);
+        if (locked.isEmpty()) {
+            return;
+        }
+
+        CoinBalanceSnapshot snapshot = locked.get();
+        Long upToId = transactionRepository.findMaxIdByUserId(userId);
+        if (upToId != null && upToId > snapshot.getLastTransactionId()) {
+            long delta = transactionRepository.sumCompletedBetween(userId, snapshot.getLastTransactionId(), upToId);
+            snapshot.setBalance(snapshot.getBalance() + (int) delta);
+            snapshot.setLastTransactionId(upToId);
+            snapshot.setUpdatedAt(LocalDateTime.now());
+            snapshotRepository.save(snapshot);
+        }
+
+        userRepository.syncCoins(userId, balanceOf(snapshot));
+    }
+
+    private int balanceOf(CoinBalanceSnapshot snapshot) {
+        return snapshot.getBalance()
+                + (int) transactionRepository.sumCompletedAfter(snapshot.getUserId(), snapshot.getLastTransactionId());
+    }
+
+    /**
+     * Make sure the user has a snapshot row before the first ledger write.
+     * Returns false if the user does not exist.
+     */
+    private boolean ensureSnapshot(Long userId) {
+        if (bootstrappedUsers.contains(userId)) {
+            return true;
+        }
+
+        try {
+            jdbcTemplate.update(BOOTSTRAP_SNAPSHOT_SQL, userId, userId);
+        } catch (DuplicateKeyException e) {
+            // Another transaction bootstrapped the same user first
+        }
+
+        if (!snapshotRepository.existsById(userId)) {
+            return false;
+        }
+
+        // Only cache once committed - a rollback would undo the bootstrap insert
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bootstrappedUsers.add(userId);
+                }
+            });
+        }
+        return true;
+    }
 }
@@ -0,0 +1,67 @@
+package com.findtheone.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
+import com.findtheone.repository.TransactionRepository;
+
+/**
+ * Periodically folds new ledger entries into the per-user balance snapshots so
+ * that balance reads only ever sum a short tail. Each fold is safe on its own
+ * (see {@link CoinService#foldLedger}); the watermark only decides which users
+ * to visit. An entry that was still uncommitted when its range was scanned is
+ * not lost - it stays in the user's tail until their next entry is folded.
+ */
+@Service
+public class CoinSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoinSnapshotService.class);
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    private Long watermark;
+
+    @Scheduled(fixedDelayString = "${app.coins.snapshot-interval-ms:30000}")
+    public synchronized void takeSnapshots() {
+        try {
+            Long maxId = transactionRepository.findMaxId();
+            if (maxId == null) {
+                return;
+            }
+
+            if (watermark == null) {
+                Long oldest = snapshotRepository.findMinLastTransactionId();
+                watermark = oldest != null ? oldest : 0L;
+            }
+            if (maxId <= watermark) {
+                return;
+            }
+
+            List<Long> userIds = transactionRepository.findUserIdsWithEntriesBetween(watermark, maxId);
+            for (Long userId : userIds) {
+                coinService.foldLedger(userId);
+            }
+            watermark = maxId;
+
+            if (!userIds.isEmpty()) {
+                logger.debug("Folded ledger up to #{} for {} users", maxId, userIds.size());
+            }
+        } catch (Exception e) {
+            // Watermark is unchanged, the next run retries the same range
+            logger.error("Coin snapshot run failed: {}", e.getMessage());
+        }
+    }
+}
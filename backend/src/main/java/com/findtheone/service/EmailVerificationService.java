@@ -2,6 +2,7 @@ package com.findtheone.service;
 
 import com.findtheone.entity.User;
 import com.findtheone.repository.UserRepository;
+import com.findtheone.security.UserSnapshotCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +20,9 @@ public class EmailVerificationService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
     private static final int CODE_LENGTH = 6;
     private static final int CODE_EXPIRY_HOURS = 24;
     private final SecureRandom random = new SecureRandom();
@@ -80,6 +84,7 @@ public class EmailVerificationService {
             user.setEmailVerificationCode(null);
             user.setEmailVerificationCodeExpiry(null);
             userRepository.save(user);
+            userSnapshotCache.invalidate(user.getId());
 
             // Send welcome email
             try {
@@ -0,0 +1,246 @@
+package com.findtheone.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.BiFunction;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes an uploaded image to disk in one pass over the request body. The
+ * same buffer is sniffed for a known image signature, fed to SHA-256 and
+ * written to a temp file next to the target, which is then atomically
+ * renamed to a random or content-addressed name. Nothing is spooled by the
+ * container and nothing is re-read.
+ */
+@Service
+public class ImageUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // Longest signature we need to see (RIFF....WEBP)
+    private static final int SNIFF_LENGTH = 12;
+
+    public enum ImageType {
+        JPEG("image/jpeg", ".jpg"),
+        PNG("image/png", ".png"),
+        GIF("image/gif", ".gif"),
+        WEBP("image/webp", ".webp");
+
+        private final String contentType;
+        private final String extension;
+
+        ImageType(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * The type a client declared, or null if it is not one we accept
+         */
+        public static ImageType fromContentType(String contentType) {
+            if (contentType == null) {
+                return null;
+            }
+            String normalized = contentType.split(";", 2)[0].trim().toLowerCase();
+            for (ImageType type : values()) {
+                if (type.contentType.equals(normalized)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Detect the type from the first bytes of the file, or null
+         */
+        public static ImageType sniff(ByteBuffer head) {
+            int n = head.remaining();
+            int p = head.position();
+            if (n >= 3 && u(head, p) == 0xFF && u(head, p + 1) == 0xD8 && u(head, p + 2) == 0xFF) {
+                return JPEG;
+            }
+            if (n >= 8 && u(head, p) == 0x89 && u(head, p + 1) == 'P' && u(head, p + 2) == 'N'
+                    && u(head, p + 3) == 'G' && u(head, p + 4) == 0x0D && u(head, p + 5) == 0x0A
+                    && u(head, p + 6) == 0x1A && u(head, p + 7) == 0x0A) {
+                return PNG;
+            }
+            if (n >= 6 && u(head, p) == 'G' && u(head, p + 1) == 'I' && u(head, p + 2) == 'F'
+                    && u(head, p + 3) == '8' && (u(head, p + 4) == '7' || u(head, p + 4) == '9')
+                    && u(head, p + 5) == 'a') {
+                return GIF;
+            }
+            if (n >= 12 && u(head, p) == 'R' && u(head, p + 1) == 'I' && u(head, p + 2) == 'F'
+                    && u(head, p + 3) == 'F' && u(head, p + 8) == 'W' && u(head, p + 9) == 'E'
+                    && u(head, p + 10) == 'B' && u(head, p + 11) == 'P') {
+                return WEBP;
+            }
+            return null;
+        }
+
+        private static int u(ByteBuffer buffer, int index) {
+            return buffer.get(index) & 0xFF;
+        }
+    }
+
+    public static class StoredImage {
+        private final Path path;
+        private final ImageType type;
+        private final long size;
+        private final String sha256;
+        private final boolean existing;
+
+        StoredImage(Path path, ImageType type, long size, String sha256, boolean existing) {
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.sha256 = sha256;
+            this.existing = existing;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getFilename() {
+            return path.getFileName().toString();
+        }
+
+        public ImageType getType() {
+            return type;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        /**
+         * True if identical content was already stored and this upload was discarded
+         */
+        public boolean isExisting() {
+            return existing;
+        }
+    }
+
+    /**
+     * Store the body under a random name in the directory, with the
+     * extension of the detected type.
+     *
+     * @throws IllegalArgumentException if the body is empty, too large or not
+     *                                  a JPEG, PNG, GIF or WebP image
+     */
+    public StoredImage store(InputStream body, Path directory, long maxSize) throws IOException {
+        return write(body, directory, maxSize,
+                (type, sha256) -> directory.resolve(UUID.randomUUID() + type.getExtension()));
+    }
+
+    /**
+     * Store the body under its SHA-256 in a two-level shard tree below root,
+     * e.g. root/3f/a2/3fa2....jpg. If identical content is already stored the
+     * upload is discarded and the existing file is returned.
+     *
+     * @throws IllegalArgumentException if the body is empty, too large or not
+     *                                  a JPEG, PNG, GIF or WebP image
+     */
+    public StoredImage storeContentAddressed(InputStream body, Path root, long maxSize) throws IOException {
+        return write(body, root, maxSize,
+                (type, sha256) -> root.resolve(contentPath(sha256, type.getExtension())));
+    }
+
+    /**
+     * Relative path of a content-addressed file, e.g. 3f/a2/3fa2....jpg
+     */
+    public static String contentPath(String sha256, String extension) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + extension;
+    }
+
+    private StoredImage write(InputStream body, Path directory, long maxSize,
+            BiFunction<ImageType, String, Path> naming)
+            throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "upload-", ".part");
+        try {
+            MessageDigest digest = newSha256();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            ImageType type = null;
+            long total = 0;
+
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                    FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                boolean eof = false;
+                while (!eof) {
+                    int read = in.read(buffer);
+                    eof = read == -1;
+                    if (read > 0) {
+                        total += read;
+                        if (total > maxSize) {
+                            throw new IllegalArgumentException("File exceeds " + maxSize + " bytes");
+                        }
+                    }
+                    // Hold the first bytes back until the signature can be checked
+                    if (type == null && buffer.position() < SNIFF_LENGTH && !eof) {
+                        continue;
+                    }
+
+                    buffer.flip();
+                    if (type == null) {
+                        type = ImageType.sniff(buffer);
+                        if (type == null) {
+                            throw new IllegalArgumentException(total == 0
+                                    ? "File is empty"
+                                    : "Only JPEG, PNG, GIF and WebP images are allowed");
+                        }
+                    }
+                    digest.update(buffer.duplicate());
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            Path target = naming.apply(type, sha256);
+            boolean existing = Files.exists(target);
+            if (!existing) {
+                Files.createDirectories(target.getParent());
+                // A concurrent identical upload may win the rename; the content is the same either way
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            return new StoredImage(target, type, total, sha256, existing);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
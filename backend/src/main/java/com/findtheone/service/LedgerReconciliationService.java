@@ -0,0 +1,388 @@
+package com.findtheone.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.findtheone.entity.User;
+
+/**
+ * Verifies the coin ledger against the stored balances without loading it
+ * into memory. Every user's history must explain their balance: the implied
+ * opening balance (balance minus all ledger entries that produced it) has to
+ * equal the signup grant for the account's role, and no balance may be
+ * negative.
+ *
+ * The user-id space is split into ranges processed on a dedicated fork/join
+ * pool. Each range merge-joins two forward-only streams ordered by user id -
+ * users joined with their snapshot, and completed ledger rows - so only one
+ * user's running sums are ever held. Candidates are re-checked one by one in
+ * a consistent read before being reported, which filters out writes that
+ * landed between the two streams.
+ */
+@Service
+public class LedgerReconciliationService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LedgerReconciliationService.class);
+
+    private static final String USERS_SQL =
+            "SELECT u.id, u.coins, s.balance, s.last_transaction_id, u.role FROM users u " +
+            "LEFT JOIN coin_balance_snapshots s ON s.user_id = u.id " +
+            "WHERE u.id BETWEEN ? AND ? ORDER BY u.id";
+
+    private static final String LEDGER_SQL =
+            "SELECT t.user_id, t.id, t.coin_amount FROM transactions t " +
+            "WHERE t.user_id BETWEEN ? AND ? AND t.id <= ? AND t.status = 'COMPLETED' ORDER BY t.user_id";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.coins.initial-balance:10}")
+    private int initialBalance;
+
+    @Value("${app.coins.admin-initial-balance:1000}")
+    private int adminInitialBalance;
+
+    @Value("${app.reconciliation.parallelism:2}")
+    private int parallelism;
+
+    @Value("${app.reconciliation.partition-size:200000}")
+    private long partitionSize;
+
+    @Value("${app.reconciliation.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${app.reconciliation.max-reported:1000}")
+    private int maxReported;
+
+    private final TransactionTemplate consistentRead;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "ledger-reconciliation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile ReconciliationReport lastReport;
+
+    public LedgerReconciliationService(PlatformTransactionManager transactionManager) {
+        this.consistentRead = new TransactionTemplate(transactionManager);
+        this.consistentRead.setReadOnly(true);
+        this.consistentRead.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Scheduled(cron = "${app.reconciliation.cron:-}")
+    public void scheduledRun() {
+        reconcile();
+    }
+
+    /**
+     * Start a pass in the background. Returns false if one is already running.
+     */
+    public boolean startAsync() {
+        if (running.get()) {
+            return false;
+        }
+        launcher.execute(() -> {
+            try {
+                reconcile();
+            } catch (Exception e) {
+                logger.error("Ledger reconciliation failed", e);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public ReconciliationReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Run a full pass. Returns null if a pass is already running on this node.
+     */
+    public ReconciliationReport reconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            ReconciliationReport report = new ReconciliationReport();
+            report.startedAt = LocalDateTime.now();
+            long start = System.nanoTime();
+
+            Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                    "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM users");
+            Long maxLedgerId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM transactions", Long.class);
+            report.maxLedgerId = maxLedgerId != null ? maxLedgerId : 0L;
+
+            PartitionResult result = new PartitionResult();
+            if (bounds.get("min_id") != null) {
+                long minId = ((Number) bounds.get("min_id")).longValue();
+                long maxId = ((Number) bounds.get("max_id")).longValue();
+                ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+                try {
+                    result = pool.invoke(new RangeTask(minId, maxId, report.maxLedgerId));
+                } finally {
+                    pool.shutdown();
+                }
+            }
+
+            report.usersChecked = result.users;
+            report.ledgerRows = result.ledgerRows;
+            report.orphanLedgerRows = result.orphanRows;
+            report.candidates = result.candidates.size();
+            for (Discrepancy candidate : result.candidates) {
+                Discrepancy confirmed = recheck(candidate.userId);
+                if (confirmed != null) {
+                    report.discrepancyCount++;
+                    if (report.discrepancies.size() < maxReported) {
+                        report.discrepancies.add(confirmed);
+                    }
+                }
+            }
+            report.truncated = result.candidatesTruncated || report.discrepancyCount > report.discrepancies.size();
+
+            report.durationMs = (System.nanoTime() - start) / 1_000_000;
+            report.rowsPerSecond = report.durationMs > 0 ? report.ledgerRows * 1000.0 / report.durationMs : 0;
+            report.finishedAt = LocalDateTime.now();
+            lastReport = report;
+
+            logger.info("Ledger reconciliation: {} users, {} ledger rows in {} ms, {} discrepancies",
+                    report.usersChecked, report.ledgerRows, report.durationMs, report.discrepancyCount);
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        launcher.shutdownNow();
+    }
+
+    /**
+     * Merge-join one user-id range. Memory use is independent of the number of rows.
+     */
+    private PartitionResult reconcileRange(long fromId, long toId, long maxLedgerId) {
+        PartitionResult result = new PartitionResult();
+        // Two connections: most drivers allow only one open streaming result per connection
+        try (Connection userConnection = dataSource.getConnection();
+                Connection ledgerConnection = dataSource.getConnection();
+                PreparedStatement users = prepareStreaming(userConnection, USERS_SQL);
+                PreparedStatement ledger = prepareStreaming(ledgerConnection, LEDGER_SQL)) {
+            users.setLong(1, fromId);
+            users.setLong(2, toId);
+            ledger.setLong(1, fromId);
+            ledger.setLong(2, toId);
+            ledger.setLong(3, maxLedgerId);
+
+            try (ResultSet userRows = users.executeQuery(); ResultSet ledgerRows = ledger.executeQuery()) {
+                boolean hasLedger = ledgerRows.next();
+                while (userRows.next()) {
+                    long userId = userRows.getLong(1);
+                    long coins = userRows.getLong(2);
+                    long snapshotBalance = userRows.getLong(3);
+                    boolean hasSnapshot = !userRows.wasNull();
+                    long lastTransactionId = userRows.getLong(4);
+                    String role = userRows.getString(5);
+
+                    // Ledger rows for ids with no user row (deleted users)
+                    while (hasLedger && ledgerRows.getLong(1) < userId) {
+                        result.orphanRows++;
+                        result.ledgerRows++;
+                        hasLedger = ledgerRows.next();
+                    }
+
+                    long total = 0;
+                    long folded = 0;
+                    while (hasLedger && ledgerRows.getLong(1) == userId) {
+                        long amount = ledgerRows.getInt(3);
+                        total += amount;
+                        if (ledgerRows.getLong(2) <= lastTransactionId) {
+                            folded += amount;
+                        }
+                        result.ledgerRows++;
+                        hasLedger = ledgerRows.next();
+                    }
+                    result.users++;
+
+                    Discrepancy discrepancy = evaluate(userId, role, coins, hasSnapshot, snapshotBalance, total, folded);
+                    if (discrepancy != null) {
+                        if (result.candidates.size() < maxReported * 2) {
+                            result.candidates.add(discrepancy);
+                        } else {
+                            result.candidatesTruncated = true;
+                        }
+                    }
+                }
+                while (hasLedger) {
+                    result.orphanRows++;
+                    result.ledgerRows++;
+                    hasLedger = ledgerRows.next();
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Reconciliation of users " + fromId + "-" + toId + " failed", e);
+        }
+        return result;
+    }
+
+    /**
+     * Precise single-user check in one consistent read
+     */
+    private Discrepancy recheck(Long userId) {
+        return consistentRead.execute(status -> {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "SELECT u.coins, s.balance, s.last_transaction_id, u.role FROM users u " +
+                    "LEFT JOIN coin_balance_snapshots s ON s.user_id = u.id WHERE u.id = ?", userId);
+            if (rows.isEmpty()) {
+                return null;
+            }
+            Map<String, Object> row = rows.get(0);
+            long coins = ((Number) row.get("coins")).longValue();
+            boolean hasSnapshot = row.get("balance") != null;
+            long snapshotBalance = hasSnapshot ? ((Number) row.get("balance")).longValue() : 0;
+            long lastTransactionId = hasSnapshot ? ((Number) row.get("last_transaction_id")).longValue() : 0;
+
+            Map<String, Object> sums = jdbcTemplate.queryForMap(
+                    "SELECT COALESCE(SUM(coin_amount), 0) AS total, " +
+                    "COALESCE(SUM(CASE WHEN id <= ? THEN coin_amount ELSE 0 END), 0) AS folded " +
+                    "FROM transactions WHERE user_id = ? AND status = 'COMPLETED'", lastTransactionId, userId);
+            return evaluate(userId, (String) row.get("role"), coins, hasSnapshot, snapshotBalance,
+                    ((Number) sums.get("total")).longValue(), ((Number) sums.get("folded")).longValue());
+        });
+    }
+
+    private Discrepancy evaluate(long userId, String role, long coins, boolean hasSnapshot, long snapshotBalance,
+            long total, long folded) {
+        long balance = hasSnapshot ? snapshotBalance + (total - folded) : coins;
+        long impliedOpening = hasSnapshot ? snapshotBalance - folded : coins - total;
+        // Admin accounts are created with their own grant
+        long expectedOpening = User.Role.ADMIN.name().equals(role) ? adminInitialBalance : initialBalance;
+
+        if (impliedOpening != expectedOpening || balance < 0) {
+            Discrepancy discrepancy = new Discrepancy();
+            discrepancy.userId = userId;
+            discrepancy.storedCoins = coins;
+            discrepancy.snapshotBalance = hasSnapshot ? snapshotBalance : null;
+            discrepancy.ledgerSum = total;
+            discrepancy.balance = balance;
+            discrepancy.impliedOpeningBalance = impliedOpening;
+            discrepancy.type = balance < 0 ? "NEGATIVE_BALANCE" : "OPENING_BALANCE_MISMATCH";
+            return discrepancy;
+        }
+        return null;
+    }
+
+    private PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        connection.setReadOnly(true);
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        // Connector/J only streams row by row with this sentinel; other drivers take a normal fetch size
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        return statement;
+    }
+
+    private class RangeTask extends RecursiveTask<PartitionResult> {
+        private final long fromId;
+        private final long toId;
+        private final long maxLedgerId;
+
+        RangeTask(long fromId, long toId, long maxLedgerId) {
+            this.fromId = fromId;
+            this.toId = toId;
+            this.maxLedgerId = maxLedgerId;
+        }
+
+        @Override
+        protected PartitionResult compute() {
+            if (toId - fromId < partitionSize) {
+                return reconcileRange(fromId, toId, maxLedgerId);
+            }
+            long middle = fromId + (toId - fromId) / 2;
+            RangeTask left = new RangeTask(fromId, middle, maxLedgerId);
+            RangeTask right = new RangeTask(middle + 1, toId, maxLedgerId);
+            left.fork();
+            PartitionResult result = right.compute();
+            return result.merge(left.join(), maxReported * 2);
+        }
+    }
+
+    private static class PartitionResult {
+        private long users;
+        private long ledgerRows;
+        private long orphanRows;
+        private boolean candidatesTruncated;
+        private final List<Discrepancy> candidates = new ArrayList<>();
+
+        PartitionResult merge(PartitionResult other, int maxCandidates) {
+            users += other.users;
+            ledgerRows += other.ledgerRows;
+            orphanRows += other.orphanRows;
+            candidatesTruncated |= other.candidatesTruncated;
+            for (Discrepancy candidate : other.candidates) {
+                if (candidates.size() < maxCandidates) {
+                    candidates.add(candidate);
+                } else {
+                    candidatesTruncated = true;
+                }
+            }
+            return this;
+        }
+    }
+
+    public static class Discrepancy {
+        public long userId;
+        public String type;
+        public long storedCoins;
+        public Long snapshotBalance;
+        public long ledgerSum;
+        public long balance;
+        public long impliedOpeningBalance;
+    }
+
+    public static class ReconciliationReport {
+        public LocalDateTime startedAt;
+        public LocalDateTime finishedAt;
+        public long durationMs;
+        public long maxLedgerId;
+        public long usersChecked;
+        public long ledgerRows;
+        public long orphanLedgerRows;
+        public double rowsPerSecond;
+        public long candidates;
+        public long discrepancyCount;
+        public boolean truncated;
+        public final List<Discrepancy> discrepancies = new ArrayList<>();
+    }
+}
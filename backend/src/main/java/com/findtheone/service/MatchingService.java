@@ -1,16 +1,21 @@
 package com.findtheone.service;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import com.findtheone.dto.MatchDTO;
 import com.findtheone.entity.Like;
 import com.findtheone.entity.Match;
 import com.findtheone.entity.User;
+import com.findtheone.entity.UserPhoto;
+import com.findtheone.event.MatchCreatedEvent;
 import com.findtheone.repository.LikeRepository;
 import com.findtheone.repository.MatchRepository;
 import com.findtheone.repository.UserRepository;
@@ -27,6 +32,12 @@ public class MatchingService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
     public boolean likeUser(Long likerId, Long likedId) {
         // Check if already liked
         if (likeRepository.existsByLikerIdAndLikedId(likerId, likedId)) {
@@ -65,7 +76,7 @@ public class MatchingService {
 
         if (!existingMatch.isPresent()) {
             Match match = new Match(user1, user2);
-            matchRepository.save(match);
+            eventPublisher.publishEvent(new MatchCreatedEvent(matchRepository.save(match)));
         }
     }
 
@@ -75,12 +86,15 @@ public class MatchingService {
 
     public List<MatchDTO> getUserMatchDTOs(Long userId) {
         List<Match> matches = matchRepository.findActiveMatchesByUserId(userId);
+        Map<String, UserPhoto> recorded = photoDerivativeService.findRecorded(matches.stream()
+                .map(match -> otherUser(match, userId).getProfilePhotoUrl())
+                .filter(Objects::nonNull)
+                .toList());
         return matches.stream()
                 .map(match -> {
-                    // Determine which user is the matched user (not the current user)
-                    User matchedUser = match.getUser1().getId().equals(userId) ? match.getUser2() : match.getUser1();
+                    User matchedUser = otherUser(match, userId);
 
-                    return new MatchDTO(
+                    MatchDTO dto = new MatchDTO(
                             match.getId(),                 // The match record ID
                             matchedUser.getId(),           // The matched user's ID
                             matchedUser.getName(),
@@ -91,10 +105,18 @@ public class MatchingService {
                             matchedUser.getGender() != null ? matchedUser.getGender().toString() : null,
                             matchedUser.getInterests(),
                             match.getMatchedAt());
+                    dto.setProfilePhotoThumbnailUrl(photoDerivativeService.variantUrl(
+                            matchedUser.getProfilePhotoUrl(), PhotoDerivativeService.Size.THUMBNAIL, recorded));
+                    return dto;
                 })
                 .collect(Collectors.toList());
     }
 
+    // The matched user is whichever side is not the current user
+    private static User otherUser(Match match, Long userId) {
+        return match.getUser1().getId().equals(userId) ? match.getUser2() : match.getUser1();
+    }
+
     public List<User> getUserSuggestions(Long userId) {
         // Return users that haven't been liked or disliked by the current user
         return userRepository.findPotentialMatches(userId);
@@ -0,0 +1,445 @@
+package com.findtheone.service;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.findtheone.repository.PhotoAliasRepository;
+import com.findtheone.repository.PhotoBlobRepository;
+import com.findtheone.util.LongHashSet;
+
+/**
+ * Mark-and-sweep collection of uploaded files nothing points at any more.
+ *
+ * Mark streams every media URL still referenced from the database (active
+ * photos and their variants, profile photos, active profile videos,
+ * verification videos and chat attachments) row by row into a LongHashSet
+ * of path hashes; nothing is materialised per row. A legacy photo name that
+ * has been migrated also marks the blob its alias points at. Sweep then walks the
+ * upload directories lazily and deletes files that are not in the set and
+ * are older than the grace period, so uploads whose row has not been
+ * written yet are left alone. A hash collision can only keep a file.
+ *
+ * Content-addressed photos are removed with their PhotoBlob row: the file
+ * is first renamed aside, the row is deleted only if its refCount is still
+ * zero and its content has not been uploaded again since the cutoff, and
+ * the file is put back if that fails. An upload racing the sweep therefore
+ * either sees the file missing and writes it again, or keeps the row alive.
+ *
+ * Deletions are paced to a configurable rate and every pass produces a
+ * report; a dry run reports what would be deleted without touching anything.
+ */
+@Service
+public class MediaGarbageCollector implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaGarbageCollector.class);
+
+    private static final String UPLOADS_URL_PREFIX = "/uploads/";
+    private static final String VERIFICATION_URL_PREFIX = "/verification-videos/";
+    private static final String TRASH_PREFIX = ".gc-";
+
+    private static final String[] REFERENCE_QUERIES = {
+        "SELECT photo_url, thumbnail_url, medium_url FROM user_photos WHERE is_active = true",
+        "SELECT profile_photo_url FROM users WHERE profile_photo_url IS NOT NULL",
+        "SELECT video_url, thumbnail_url FROM user_videos WHERE is_active = true",
+        "SELECT video_url FROM video_verifications",
+        "SELECT attachment_url, thumbnail_url FROM messages WHERE attachment_url IS NOT NULL"
+    };
+
+    public static class CollectionReport {
+        public boolean dryRun;
+        public LocalDateTime startedAt;
+        public LocalDateTime finishedAt;
+        public long durationMs;
+        public long referencedPaths;
+        public long filesScanned;
+        public long skippedRecent;
+        public long orphans;
+        public long deleted;
+        public long bytesReclaimed;
+        public long failures;
+        public boolean truncated;
+        public final List<String> orphanPaths = new ArrayList<>();
+    }
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PhotoBlobRepository photoBlobRepository;
+
+    @Autowired
+    private PhotoAliasRepository photoAliasRepository;
+
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Value("${app.media.gc.grace-period-hours:24}")
+    private long gracePeriodHours;
+
+    @Value("${app.media.gc.max-deletes-per-second:20}")
+    private int maxDeletesPerSecond;
+
+    @Value("${app.media.gc.fetch-size:5000}")
+    private int fetchSize;
+
+    @Value("${app.media.gc.max-reported:500}")
+    private int maxReported;
+
+    @Value("${app.media.gc.dry-run:true}")
+    private boolean scheduledDryRun;
+
+    private final Path uploadsRoot;
+    private final Path verificationRoot;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService launcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "media-gc");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private volatile CollectionReport lastReport;
+
+    @Autowired
+    public MediaGarbageCollector(@Value("${app.upload.dir:uploads}") String uploadDir) {
+        this(Paths.get("uploads"), Paths.get(uploadDir, "verification-videos"));
+    }
+
+    MediaGarbageCollector(Path uploadsRoot, Path verificationRoot) {
+        this.uploadsRoot = uploadsRoot.toAbsolutePath().normalize();
+        this.verificationRoot = verificationRoot.toAbsolutePath().normalize();
+    }
+
+    @Scheduled(cron = "${app.media.gc.cron:-}")
+    public void scheduledRun() {
+        collect(scheduledDryRun);
+    }
+
+    /**
+     * Start a pass in the background. Returns false if one is already running.
+     */
+    public boolean startAsync(boolean dryRun) {
+        if (running.get()) {
+            return false;
+        }
+        launcher.execute(() -> {
+            try {
+                collect(dryRun);
+            } catch (Exception e) {
+                logger.error("Media garbage collection failed", e);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public CollectionReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Run a full pass. Returns null if a pass is already running on this node.
+     */
+    public CollectionReport collect(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        CollectionReport report = new CollectionReport();
+        report.dryRun = dryRun;
+        report.startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        try {
+            // The cutoff is fixed before marking: anything written later is too young to sweep
+            Instant cutoff = Instant.now().minus(Duration.ofHours(gracePeriodHours));
+            LongHashSet referenced = mark();
+            report.referencedPaths = referenced.size();
+            sweep(referenced, cutoff, dryRun, report);
+            logger.info("Media garbage collection{}: {} scanned, {} orphans, {} deleted, {} bytes reclaimed",
+                    dryRun ? " (dry run)" : "", report.filesScanned, report.orphans, report.deleted,
+                    report.bytesReclaimed);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Media garbage collection interrupted");
+        } finally {
+            report.finishedAt = LocalDateTime.now();
+            report.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastReport = report;
+            running.set(false);
+        }
+        return report;
+    }
+
+    private LongHashSet mark() {
+        LongHashSet referenced = new LongHashSet(64 * 1024);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (String sql : REFERENCE_QUERIES) {
+            jdbcTemplate.query(connection -> prepareStreaming(connection, sql), (RowCallbackHandler) rs -> {
+                int columns = rs.getMetaData().getColumnCount();
+                for (int i = 1; i <= columns; i++) {
+                    markUrl(referenced, rs.getString(i));
+                }
+            });
+        }
+        return referenced;
+    }
+
+    void markUrl(LongHashSet referenced, String url) {
+        Path path = resolveUrl(url);
+        if (path == null) {
+            return;
+        }
+        referenced.add(key(path));
+        Path photos = uploadsRoot.resolve("photos");
+        if (photos.equals(path.getParent())) {
+            // A migrated legacy name is served from its blob, whatever the blob's refCount says
+            photoStorageService.findAliasPath(path.getFileName().toString())
+                    .ifPresent(blob -> referenced.add(key(photos.resolve(blob).normalize())));
+        }
+        // Variants are derived from the original's URL and may not be recorded yet
+        for (String variant : photoDerivativeService.variantUrls(url)) {
+            Path variantPath = resolveUrl(variant);
+            if (variantPath != null) {
+                referenced.add(key(variantPath));
+            }
+        }
+    }
+
+    void sweep(LongHashSet referenced, Instant cutoff, boolean dryRun, CollectionReport report)
+            throws InterruptedException {
+        long pauseNanos = maxDeletesPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / maxDeletesPerSecond : 0;
+        Set<Path> roots = new LinkedHashSet<>(List.of(
+                uploadsRoot.resolve("photos"),
+                uploadsRoot.resolve("videos"),
+                uploadsRoot.resolve("chat"),
+                verificationRoot));
+        for (Path root : roots) {
+            if (!Files.isDirectory(root)) {
+                continue;
+            }
+            try {
+                Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                        if (Thread.currentThread().isInterrupted()) {
+                            return FileVisitResult.TERMINATE;
+                        }
+                        if (attributes.isRegularFile()) {
+                            visit(file, attributes, referenced, cutoff, dryRun, pauseNanos, report);
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        if (!(e instanceof NoSuchFileException)) {
+                            report.failures++;
+                            logger.warn("Media GC could not read {}: {}", file, e.getMessage());
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                report.failures++;
+                logger.warn("Media GC could not walk {}: {}", root, e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    private void visit(Path file, BasicFileAttributes attributes, LongHashSet referenced, Instant cutoff,
+            boolean dryRun, long pauseNanos, CollectionReport report) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".part")) {
+            // In-flight uploads; their writers clean up after themselves
+            return;
+        }
+        report.filesScanned++;
+        Path path = file.toAbsolutePath().normalize();
+        if (name.startsWith(TRASH_PREFIX)) {
+            recoverTrash(path);
+            return;
+        }
+        if (referenced.contains(key(path))) {
+            return;
+        }
+        if (attributes.lastModifiedTime().toInstant().isAfter(cutoff)) {
+            report.skippedRecent++;
+            return;
+        }
+
+        report.orphans++;
+        String relative = uploadsRoot.relativize(path).toString().replace('\\', '/');
+        if (path.startsWith(verificationRoot)) {
+            relative = verificationRoot.getFileName() + "/" + verificationRoot.relativize(path);
+        }
+        if (report.orphanPaths.size() < maxReported) {
+            report.orphanPaths.add(relative);
+        } else {
+            report.truncated = true;
+        }
+        if (dryRun) {
+            return;
+        }
+
+        try {
+            boolean deleted = path.startsWith(uploadsRoot.resolve("photos"))
+                    ? deletePhoto(path, relative.substring("photos/".length()), cutoff)
+                    : Files.deleteIfExists(path);
+            if (deleted) {
+                report.deleted++;
+                report.bytesReclaimed += attributes.size();
+            }
+        } catch (IOException e) {
+            report.failures++;
+            logger.warn("Media GC could not delete {}: {}", relative, e.getMessage());
+        }
+        if (pauseNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(pauseNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Delete a photo file. Content-addressed files go together with their
+     * blob row, which must still be unreferenced at the moment it is removed.
+     */
+    private boolean deletePhoto(Path path, String relative, Instant cutoff) throws IOException {
+        String sha256 = PhotoStorageService.contentSha256(relative);
+        if (sha256 == null) {
+            return Files.deleteIfExists(path);
+        }
+        Path trash = path.resolveSibling(TRASH_PREFIX + path.getFileName());
+        try {
+            Files.move(path, trash, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        LocalDateTime cutoffTime = LocalDateTime.ofInstant(cutoff, ZoneId.systemDefault());
+        boolean unreferenced = !photoBlobRepository.existsById(sha256)
+                || photoBlobRepository.deleteUnreferenced(sha256, cutoffTime) > 0;
+        if (!unreferenced) {
+            // Still in use (refCount drift or a fresh upload); an upload may also have rewritten it
+            restore(trash, path);
+            return false;
+        }
+        photoAliasRepository.deleteBySha256(sha256);
+        Files.delete(trash);
+        return true;
+    }
+
+    /**
+     * A pass died between renaming a file aside and deciding its fate. Put it
+     * back; the next pass decides again.
+     */
+    private void recoverTrash(Path trash) {
+        Path original = trash.resolveSibling(trash.getFileName().toString().substring(TRASH_PREFIX.length()));
+        try {
+            restore(trash, original);
+        } catch (IOException e) {
+            logger.warn("Media GC could not restore {}: {}", trash, e.getMessage());
+        }
+    }
+
+    private static void restore(Path trash, Path original) throws IOException {
+        if (Files.exists(original)) {
+            // Rewritten meanwhile with the same content
+            Files.delete(trash);
+        } else {
+            Files.move(trash, original, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * File a stored URL points at, or null for avatars, external links and
+     * anything that escapes the upload directories
+     */
+    Path resolveUrl(String url) {
+        if (url == null || url.isBlank()) {
+            return null;
+        }
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            url = url.substring(0, query);
+        }
+        Path root;
+        String relative;
+        int uploads = url.indexOf(UPLOADS_URL_PREFIX);
+        if (uploads >= 0) {
+            root = uploadsRoot;
+            relative = url.substring(uploads + UPLOADS_URL_PREFIX.length());
+        } else if (url.startsWith(VERIFICATION_URL_PREFIX)) {
+            root = verificationRoot;
+            relative = url.substring(VERIFICATION_URL_PREFIX.length());
+        } else {
+            return null;
+        }
+        if (relative.isEmpty()) {
+            return null;
+        }
+        Path path = root.resolve(relative).normalize();
+        return path.startsWith(root) ? path : null;
+    }
+
+    private static long key(Path path) {
+        return LongHashSet.hash(path.toString());
+    }
+
+    private PreparedStatement prepareStreaming(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        // Connector/J only streams row by row with this sentinel; other drivers take a normal fetch size
+        boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : fetchSize);
+        return statement;
+    }
+
+    @Override
+    public void destroy() {
+        launcher.shutdownNow();
+    }
+}
@@ -4,12 +4,15 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import com.findtheone.dto.MessageRequest;
 import com.findtheone.entity.Message;
 import com.findtheone.entity.User;
+import com.findtheone.event.MessageSentEvent;
 import com.findtheone.repository.MessageRepository;
 import com.findtheone.repository.UserRepository;
 
@@ -25,13 +28,47 @@ public class MessageService {
     @Autowired
     private CoinService coinService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public static final int MESSAGE_UNLOCK_COST = 1;
+
+    public enum UnlockResult {
+        UNLOCKED,
+        ALREADY_UNLOCKED,
+        INSUFFICIENT_COINS,
+        NOT_FOUND,
+        OWN_MESSAGE,
+        NOT_RECEIVER
+    }
+
+    public static class ConversationUnlockResult {
+        private final UnlockResult result;
+        private final int messageCount; // Messages unlocked, or that would have been on INSUFFICIENT_COINS
+
+        public ConversationUnlockResult(UnlockResult result, int messageCount) {
+            this.result = result;
+            this.messageCount = messageCount;
+        }
+
+        public UnlockResult getResult() {
+            return result;
+        }
+
+        public int getMessageCount() {
+            return messageCount;
+        }
+    }
+
     public Message sendMessage(Long senderId, MessageRequest messageRequest) {
         Optional<User> sender = userRepository.findById(senderId);
         Optional<User> receiver = userRepository.findById(messageRequest.getReceiverId());
 
         if (sender.isPresent() && receiver.isPresent()) {
             Message message = new Message(sender.get(), receiver.get(), messageRequest.getContent());
-            return messageRepository.save(message);
+            Message savedMessage = messageRepository.save(message);
+            eventPublisher.publishEvent(new MessageSentEvent(savedMessage));
+            return savedMessage;
         }
         return null;
     }
@@ -73,39 +110,53 @@ public class MessageService {
         }
     }
 
+    /**
+     * Unlock a received message for 1 coin in a single short transaction: flip the
+     * message flags, debit the balance conditionally, append the ledger row. The
+     * conditional UPDATEs make concurrent double-unlocks and overdrafts impossible
+     * without loading the message or the user.
+     */
     @Transactional
-    public boolean unlockAndReadMessage(Long messageId, Long userId) {
-        Optional<Message> messageOpt = messageRepository.findById(messageId);
-        if (messageOpt.isEmpty()) {
-            return false;
+    public UnlockResult unlockMessage(Long messageId, Long userId) {
+        if (messageRepository.unlockForReceiver(messageId, userId) == 0) {
+            // Nothing flipped - find out why (only on the uncommon path)
+            if (messageRepository.markUnlockedAsRead(messageId, userId) > 0) {
+                return UnlockResult.ALREADY_UNLOCKED;
+            }
+            Optional<Long> senderId = messageRepository.findSenderIdById(messageId);
+            if (senderId.isEmpty()) {
+                return UnlockResult.NOT_FOUND;
+            }
+            return senderId.get().equals(userId) ? UnlockResult.OWN_MESSAGE : UnlockResult.NOT_RECEIVER;
         }
 
-        Message message = messageOpt.get();
-
-        // Check if user is the receiver
-        if (!message.getReceiver().getId().equals(userId)) {
-            return false;
+        if (!coinService.spendCoins(userId, MESSAGE_UNLOCK_COST, "Unlocked message #" + messageId)) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return UnlockResult.INSUFFICIENT_COINS;
         }
 
-        // If already unlocked, just mark as read
-        if (message.getIsUnlocked()) {
-            message.setIsRead(true);
-            messageRepository.save(message);
-            return true;
-        }
+        return UnlockResult.UNLOCKED;
+    }
 
-        // Try to spend coins to unlock
-        boolean unlocked = coinService.unlockMessage(userId,
-                "Unlocked message from " + message.getSender().getName());
+    /**
+     * Unlock every locked message the other user sent to this user, charging
+     * 1 coin each. All or nothing - if the balance cannot cover the whole
+     * conversation nothing is unlocked.
+     */
+    @Transactional
+    public ConversationUnlockResult unlockConversation(Long userId, Long otherUserId) {
+        int unlocked = messageRepository.unlockConversationForReceiver(userId, otherUserId);
+        if (unlocked == 0) {
+            return new ConversationUnlockResult(UnlockResult.ALREADY_UNLOCKED, 0);
+        }
 
-        if (unlocked) {
-            message.setIsUnlocked(true);
-            message.setIsRead(true);
-            messageRepository.save(message);
-            return true;
+        int cost = unlocked * MESSAGE_UNLOCK_COST;
+        if (!coinService.spendCoins(userId, cost, "Unlocked " + unlocked + " messages from user #" + otherUserId)) {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return new ConversationUnlockResult(UnlockResult.INSUFFICIENT_COINS, unlocked);
         }
 
-        return false; // Insufficient coins
+        return new ConversationUnlockResult(UnlockResult.UNLOCKED, unlocked);
     }
 
     public void markConversationAsRead(Long userId, Long otherUserId) {
@@ -0,0 +1,270 @@
+package com.findtheone.service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.findtheone.entity.PaymentIdempotencyKey;
+import com.findtheone.entity.Transaction;
+import com.findtheone.payment.PaymentGateway;
+import com.findtheone.payment.PaymentResult;
+import com.findtheone.payment.PurchaseResult;
+import com.findtheone.repository.PaymentIdempotencyKeyRepository;
+import com.findtheone.repository.TransactionRepository;
+
+/**
+ * Coin purchases. The gateway call is asynchronous so no request thread waits
+ * on the provider; only the short credit transaction runs on the completion
+ * pool. An optional Idempotency-Key makes client retries safe: the first
+ * request claims the key, later ones get the original transaction back.
+ * Purchases without one get a server-generated key, so every charge is
+ * recorded as CHARGED before it is credited; a charge whose credit fails
+ * stays CHARGED and is credited by the sweep.
+ */
+@Service
+public class PaymentService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
+    public static final Map<String, CoinPackage> COIN_PACKAGES = Map.of(
+            "starter", new CoinPackage(25, new BigDecimal("4.99")),
+            "popular", new CoinPackage(60, new BigDecimal("9.99")),
+            "premium", new CoinPackage(150, new BigDecimal("19.99")),
+            "ultimate", new CoinPackage(350, new BigDecimal("39.99")));
+
+    @Autowired
+    private PaymentGateway paymentGateway;
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private PaymentIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    // Longer than the gateway can take to answer, so a live attempt is never taken over
+    @Value("${app.payment.pending-timeout-ms:600000}")
+    private long pendingTimeoutMs;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolExecutor completionExecutor;
+
+    public PaymentService(PlatformTransactionManager transactionManager,
+            @Value("${app.payment.completion-threads:8}") int completionThreads,
+            @Value("${app.payment.completion-queue-capacity:10000}") int completionQueueCapacity) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        AtomicInteger threadCount = new AtomicInteger();
+        // CallerRuns: under overload the gateway callback thread does the work rather than dropping a paid charge
+        this.completionExecutor = new ThreadPoolExecutor(completionThreads, completionThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(completionQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "payment-completion-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    public CompletableFuture<PurchaseResult> purchase(Long userId, String packageType, String idempotencyKey) {
+        CoinPackage coinPackage = packageType != null ? COIN_PACKAGES.get(packageType) : null;
+        if (coinPackage == null) {
+            return CompletableFuture.completedFuture(
+                    PurchaseResult.error(PurchaseResult.Status.INVALID_PACKAGE, "Invalid package type"));
+        }
+
+        KeyClaim claim = idempotencyKey != null && !idempotencyKey.isBlank()
+                ? claimKey(userId, idempotencyKey, packageType)
+                : new KeyClaim(newServerKey(userId, packageType), true);
+        if (!claim.owned) {
+            return CompletableFuture.completedFuture(replay(claim.key, packageType));
+        }
+
+        Long keyId = claim.key.getId();
+        // Only a gateway failure may mark the key FAILED; once money moved the key must stay replayable
+        return paymentGateway.charge(userId, coinPackage.getPrice(), packageType)
+                .exceptionally(e -> {
+                    logger.error("Charge for user {} failed: {}", userId, e.getMessage());
+                    return PaymentResult.failure("Payment processing failed");
+                })
+                .thenApplyAsync(result -> complete(userId, packageType, keyId, result), completionExecutor);
+    }
+
+    private PurchaseResult complete(Long userId, String packageType, Long keyId, PaymentResult result) {
+        if (!result.isSuccess()) {
+            idempotencyKeyRepository.markFailed(keyId);
+            return PurchaseResult.error(PurchaseResult.Status.PAYMENT_FAILED, result.getFailureReason());
+        }
+
+        CoinPackage coinPackage = COIN_PACKAGES.get(packageType);
+        try {
+            // A key taken over as stale no longer belongs to this charge; record it under a key of its own
+            Long chargedKeyId = idempotencyKeyRepository.markCharged(keyId, result.getPaymentId()) > 0
+                    ? keyId
+                    : markCharged(newServerKey(userId, packageType), result.getPaymentId());
+            return PurchaseResult.of(PurchaseResult.Status.COMPLETED,
+                    credit(userId, coinPackage, chargedKeyId, result.getPaymentId()));
+        } catch (RuntimeException e) {
+            logger.error("Charge {} for user {} could not be credited, leaving it to reconciliation: {}",
+                    result.getPaymentId(), userId, e.getMessage());
+            return PurchaseResult.error(PurchaseResult.Status.CHARGED,
+                    "Payment received - your coins will be credited shortly");
+        }
+    }
+
+    /**
+     * A PENDING key for a purchase that came without an Idempotency-Key; the
+     * random value is never sent back, so nothing can replay it
+     */
+    private PaymentIdempotencyKey newServerKey(Long userId, String packageType) {
+        return idempotencyKeyRepository.saveAndFlush(
+                new PaymentIdempotencyKey(userId, "server-" + UUID.randomUUID(), packageType));
+    }
+
+    private Long markCharged(PaymentIdempotencyKey key, String paymentId) {
+        if (idempotencyKeyRepository.markCharged(key.getId(), paymentId) == 0) {
+            throw new IllegalStateException("Could not record charge " + paymentId);
+        }
+        return key.getId();
+    }
+
+    /**
+     * Credit and key completion commit together. A key someone else already
+     * completed rolls the credit back and returns their transaction.
+     */
+    private Transaction credit(Long userId, CoinPackage coinPackage, Long keyId, String paymentId) {
+        return transactionTemplate.execute(status -> {
+            Transaction credited = coinService.purchaseCoins(userId, coinPackage.getCoins(), coinPackage.getPrice(),
+                    paymentId);
+            if (idempotencyKeyRepository.markCompleted(keyId, credited.getId()) == 0) {
+                status.setRollbackOnly();
+                return idempotencyKeyRepository.findById(keyId)
+                        .map(PaymentIdempotencyKey::getTransactionId)
+                        .flatMap(transactionRepository::findById)
+                        .orElseThrow(() -> new RuntimeException("Idempotency key " + keyId + " was not charged"));
+            }
+            return credited;
+        });
+    }
+
+    /**
+     * Credit charges whose completion failed after the gateway took the money,
+     * e.g. a database error or a crash between charge and credit.
+     */
+    @Scheduled(fixedDelayString = "${app.payment.reconcile-interval-ms:60000}")
+    public void reconcileCharged() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(pendingTimeoutMs));
+        for (PaymentIdempotencyKey key : idempotencyKeyRepository
+                .findByStatusAndClaimedAtBefore(PaymentIdempotencyKey.Status.CHARGED, cutoff)) {
+            CoinPackage coinPackage = COIN_PACKAGES.get(key.getPackageType());
+            try {
+                Transaction existing = transactionRepository.findFirstByPaymentId(key.getPaymentId()).orElse(null);
+                if (existing != null) {
+                    idempotencyKeyRepository.markCompleted(key.getId(), existing.getId());
+                } else {
+                    credit(key.getUserId(), coinPackage, key.getId(), key.getPaymentId());
+                }
+                logger.info("Reconciled charge {} for user {}", key.getPaymentId(), key.getUserId());
+            } catch (RuntimeException e) {
+                logger.error("Reconciling charge {} for user {} failed: {}", key.getPaymentId(), key.getUserId(),
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Insert the key as PENDING and own it. If the key already exists this
+     * request only owns it when it re-claims a FAILED attempt, or a PENDING one
+     * whose owner went silent for longer than the pending timeout, for the same
+     * package; otherwise the stored row is returned for replay.
+     */
+    private KeyClaim claimKey(Long userId, String idempotencyKey, String packageType) {
+        try {
+            return new KeyClaim(idempotencyKeyRepository.saveAndFlush(
+                    new PaymentIdempotencyKey(userId, idempotencyKey, packageType)), true);
+        } catch (DataIntegrityViolationException e) {
+            PaymentIdempotencyKey existing = idempotencyKeyRepository
+                    .findByUserIdAndIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e);
+            LocalDateTime now = LocalDateTime.now();
+            boolean retry = existing.getPackageType().equals(packageType)
+                    && (idempotencyKeyRepository.reclaimFailed(existing.getId(), now) > 0
+                            || idempotencyKeyRepository.reclaimStale(existing.getId(),
+                                    now.minus(Duration.ofMillis(pendingTimeoutMs)), now) > 0);
+            return new KeyClaim(existing, retry);
+        }
+    }
+
+    private PurchaseResult replay(PaymentIdempotencyKey key, String packageType) {
+        if (!key.getPackageType().equals(packageType)) {
+            return PurchaseResult.error(PurchaseResult.Status.KEY_REUSED,
+                    "Idempotency-Key was already used for a different purchase");
+        }
+        if (key.getStatus() == PaymentIdempotencyKey.Status.COMPLETED && key.getTransactionId() != null) {
+            return transactionRepository.findById(key.getTransactionId())
+                    .map(transaction -> PurchaseResult.of(PurchaseResult.Status.REPLAYED, transaction))
+                    .orElseGet(() -> PurchaseResult.error(PurchaseResult.Status.PAYMENT_FAILED,
+                            "Original transaction not found"));
+        }
+        if (key.getStatus() == PaymentIdempotencyKey.Status.CHARGED) {
+            return PurchaseResult.error(PurchaseResult.Status.CHARGED,
+                    "Payment received - your coins will be credited shortly");
+        }
+        if (key.getStatus() == PaymentIdempotencyKey.Status.FAILED) {
+            return PurchaseResult.error(PurchaseResult.Status.IN_PROGRESS,
+                    "A retry with this Idempotency-Key is already in progress");
+        }
+        return PurchaseResult.error(PurchaseResult.Status.IN_PROGRESS,
+                "A purchase with this Idempotency-Key is still being processed");
+    }
+
+    @Override
+    public void destroy() {
+        completionExecutor.shutdown();
+    }
+
+    private static class KeyClaim {
+        private final PaymentIdempotencyKey key;
+        private final boolean owned;
+
+        private KeyClaim(PaymentIdempotencyKey key, boolean owned) {
+            this.key = key;
+            this.owned = owned;
+        }
+    }
+
+    public static class CoinPackage {
+        private final int coins;
+        private final BigDecimal price;
+
+        public CoinPackage(int coins, BigDecimal price) {
+            this.coins = coins;
+            this.price = price;
+        }
+
+        public int getCoins() {
+            return coins;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package com.findtheone.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.findtheone.entity.UserPhoto;
+import com.findtheone.repository.UserPhotoRepository;
+
+/**
+ * Generates fixed-size JPEG variants of uploaded profile photos so cards,
+ * match lists and chats don't download full-resolution originals. Variants
+ * live at a path derived from the original's URL
+ * (uploads/photos/thumb/NAME.jpg, uploads/photos/medium/NAME.jpg), so they
+ * can be resolved from any photo URL without a lookup; they are also
+ * recorded on UserPhoto, and listings read them from there.
+ *
+ * Live uploads go through a small bounded pool; when it is full the job is
+ * skipped and clients keep using the original. Existing photos are
+ * backfilled by a single low-priority thread that runs on a duty cycle and
+ * yields whenever live work is queued.
+ */
+@Service
+public class PhotoDerivativeService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoDerivativeService.class);
+
+    private static final int BACKFILL_PAGE_SIZE = 100;
+
+    public enum Size {
+        THUMBNAIL("thumb"),
+        MEDIUM("medium");
+
+        private final String directory;
+
+        Size(String directory) {
+            this.directory = directory;
+        }
+    }
+
+    @Autowired
+    private UserPhotoRepository userPhotoRepository;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    private final Path photoRoot;
+    private final int thumbnailSize;
+    private final int mediumSize;
+    private final float quality;
+    private final double backfillDutyCycle;
+    private final ThreadPoolExecutor executor;
+
+    // Originals with a job queued or running, so repeated triggers don't duplicate work
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicLong backfilled = new AtomicLong();
+    private volatile Thread backfillThread;
+
+    public PhotoDerivativeService(@Value("${app.photos.derivatives.thumbnail-size:200}") int thumbnailSize,
+            @Value("${app.photos.derivatives.medium-size:720}") int mediumSize,
+            @Value("${app.photos.derivatives.jpeg-quality:0.8}") float quality,
+            @Value("${app.photos.derivatives.workers:2}") int workers,
+            @Value("${app.photos.derivatives.queue-capacity:200}") int queueCapacity,
+            @Value("${app.photos.derivatives.backfill-duty-cycle:0.25}") double backfillDutyCycle) {
+        this(Paths.get(PhotoStorageService.PHOTO_DIR), thumbnailSize, mediumSize, quality, workers, queueCapacity, backfillDutyCycle);
+    }
+
+    PhotoDerivativeService(Path photoRoot, int thumbnailSize, int mediumSize, float quality, int workers,
+            int queueCapacity, double backfillDutyCycle) {
+        this.photoRoot = photoRoot;
+        this.thumbnailSize = thumbnailSize;
+        this.mediumSize = mediumSize;
+        this.quality = quality;
+        this.backfillDutyCycle = Math.min(1.0, Math.max(0.01, backfillDutyCycle));
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "photo-derivatives-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue variant generation for a photo URL. URLs that are not local
+     * uploads (avatars, external links) are ignored. If the variants already
+     * exist they are recorded on UserPhoto straight away.
+     *
+     * @return false if the URL is not eligible or the queue is full
+     */
+    public boolean submit(String photoUrl) {
+        // The job records onto the caller's UserPhoto row, which other threads only see once it commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submitNow(photoUrl);
+                }
+            });
+            return derivativeName(photoUrl) != null;
+        }
+        return submitNow(photoUrl);
+    }
+
+    private boolean submitNow(String photoUrl) {
+        String name = derivativeName(photoUrl);
+        Path source = name != null ? photoStorageService.resolveFile(photoUrl) : null;
+        if (source == null) {
+            return false;
+        }
+        if (derivativesExist(name)) {
+            record(photoUrl, name);
+            return true;
+        }
+        if (!inFlight.add(photoUrl)) {
+            // The running job records its result once it has written the files
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(photoUrl, name, source);
+                } finally {
+                    inFlight.remove(photoUrl);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(photoUrl);
+            rejected.increment();
+            logger.warn("Photo derivative queue full, skipping {}", photoUrl);
+            return false;
+        }
+    }
+
+    /**
+     * Variants recorded on UserPhoto for the given photo URLs, keyed by URL,
+     * in one query
+     */
+    public Map<String, UserPhoto> findRecorded(Collection<String> photoUrls) {
+        List<String> eligible = photoUrls.stream().filter(url -> derivativeName(url) != null).distinct().toList();
+        if (eligible.isEmpty()) {
+            return Map.of();
+        }
+        return userPhotoRepository.findRecordedDerivatives(eligible).stream()
+                .collect(Collectors.toMap(UserPhoto::getPhotoUrl, photo -> photo, (first, second) -> first));
+    }
+
+    /**
+     * URL of the variant from the recorded row, falling back to the
+     * filesystem only while nothing has been recorded yet
+     */
+    public String variantUrl(String photoUrl, Size size, Map<String, UserPhoto> recorded) {
+        UserPhoto photo = photoUrl != null ? recorded.get(photoUrl) : null;
+        String url = photo == null ? null : size == Size.THUMBNAIL ? photo.getThumbnailUrl() : photo.getMediumUrl();
+        return url != null ? url : resolve(photoUrl, size);
+    }
+
+    /**
+     * URL of the variant if it has been generated, otherwise null so the
+     * caller falls back to the original
+     */
+    public String resolve(String photoUrl, Size size) {
+        String name = derivativeName(photoUrl);
+        if (name == null) {
+            return null;
+        }
+        return Files.exists(derivativePath(name, size)) ? derivativeUrl(name, size) : null;
+    }
+
+    /**
+     * URLs every variant of the photo has or will have, whether or not it
+     * has been generated yet
+     */
+    public List<String> variantUrls(String photoUrl) {
+        String name = derivativeName(photoUrl);
+        if (name == null) {
+            return List.of();
+        }
+        return Arrays.stream(Size.values()).map(size -> derivativeUrl(name, size)).toList();
+    }
+
+    /**
+     * Remove the variants of a deleted original
+     */
+    public void deleteDerivatives(String photoUrl) {
+        String name = derivativeName(photoUrl);
+        if (name == null) {
+            return;
+        }
+        for (Size size : Size.values()) {
+            try {
+                Files.deleteIfExists(derivativePath(name, size));
+            } catch (IOException e) {
+                logger.warn("Failed to delete {} variant of {}: {}", size, photoUrl, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Start the backfill thread for photos without variants
+     *
+     * @return false if a backfill is already running
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runBackfill, "photo-derivatives-backfill");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        backfillThread = thread;
+        thread.start();
+        return true;
+    }
+
+    public boolean isBackfillRunning() {
+        return backfillRunning.get();
+    }
+
+    private void runBackfill() {
+        logger.info("Photo derivative backfill started");
+        try {
+            long afterId = 0;
+            List<UserPhoto> page;
+            do {
+                page = userPhotoRepository.findMissingDerivatives(afterId, PageRequest.of(0, BACKFILL_PAGE_SIZE));
+                for (UserPhoto photo : page) {
+                    afterId = photo.getId();
+                    waitForIdlePool();
+
+                    long started = System.nanoTime();
+                    String name = derivativeName(photo.getPhotoUrl());
+                    Path source = name != null ? photoStorageService.resolveFile(photo.getPhotoUrl()) : null;
+                    if (source != null && Files.exists(source)) {
+                        if (derivativesExist(name)) {
+                            record(photo.getPhotoUrl(), name);
+                        } else {
+                            generate(photo.getPhotoUrl(), name, source);
+                        }
+                        backfilled.incrementAndGet();
+                    }
+                    throttle(System.nanoTime() - started);
+                }
+            } while (!page.isEmpty());
+            logger.info("Photo derivative backfill finished, {} photos processed", backfilled.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Photo derivative backfill interrupted");
+        } catch (Exception e) {
+            logger.error("Photo derivative backfill failed: {}", e.getMessage(), e);
+        } finally {
+            backfillThread = null;
+            backfillRunning.set(false);
+        }
+    }
+
+    /**
+     * Live uploads take priority - don't compete with them for CPU
+     */
+    private void waitForIdlePool() throws InterruptedException {
+        while (executor.getActiveCount() > 0 || !executor.getQueue().isEmpty()) {
+            Thread.sleep(200);
+        }
+    }
+
+    /**
+     * Sleep so that work takes only dutyCycle of wall time on this thread
+     */
+    private void throttle(long workNanos) throws InterruptedException {
+        long sleepMillis = (long) (TimeUnit.NANOSECONDS.toMillis(workNanos) * (1 - backfillDutyCycle)
+                / backfillDutyCycle);
+        if (sleepMillis > 0) {
+            Thread.sleep(sleepMillis);
+        }
+    }
+
+    private void generate(String photoUrl, String name, Path source) {
+        try {
+            // Decode once at the larger size, derive the thumbnail from that
+            BufferedImage decoded = ThumbnailService.decodeSubsampled(source, mediumSize);
+            BufferedImage medium = ThumbnailService.scaleToFit(decoded, mediumSize);
+            ThumbnailService.writeJpeg(medium, derivativePath(name, Size.MEDIUM), quality);
+            ThumbnailService.writeJpeg(ThumbnailService.scaleToFit(medium, thumbnailSize),
+                    derivativePath(name, Size.THUMBNAIL), quality);
+            generated.increment();
+            record(photoUrl, name);
+        } catch (Exception e) {
+            failed.increment();
+            logger.warn("Failed to generate variants for {}: {}", photoUrl, e.getMessage());
+        }
+    }
+
+    private void record(String photoUrl, String name) {
+        userPhotoRepository.updateDerivatives(photoUrl, derivativeUrl(name, Size.THUMBNAIL),
+                derivativeUrl(name, Size.MEDIUM));
+    }
+
+    private boolean derivativesExist(String name) {
+        for (Size size : Size.values()) {
+            if (!Files.exists(derivativePath(name, size))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Variants are named after the original's URL rather than its current
+     * file, so a legacy photo keeps its variants when its file is migrated.
+     * Null if the URL is not a stored photo.
+     */
+    private static String derivativeName(String photoUrl) {
+        String relative = PhotoStorageService.relativePath(photoUrl);
+        if (relative == null) {
+            return null;
+        }
+        String filename = relative.substring(relative.lastIndexOf('/') + 1);
+        // Variants themselves live one level down under their size directory
+        for (Size size : Size.values()) {
+            if (relative.startsWith(size.directory + "/")) {
+                return null;
+            }
+        }
+        return filename.isEmpty() || filename.startsWith(".") ? null : filename.replaceFirst("\\.[^.]+$", "");
+    }
+
+    private Path derivativePath(String name, Size size) {
+        return photoRoot.resolve(size.directory).resolve(name + ".jpg");
+    }
+
+    private static String derivativeUrl(String name, Size size) {
+        return PhotoStorageService.PHOTO_URL_PREFIX + size.directory + "/" + name + ".jpg";
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "generated", generated.sum(),
+                "failed", failed.sum(),
+                "rejected", rejected.sum(),
+                "queued", executor.getQueue().size(),
+                "active", executor.getActiveCount(),
+                "backfillRunning", backfillRunning.get(),
+                "backfilled", backfilled.get());
+    }
+
+    @Override
+    public void destroy() {
+        Thread thread = backfillThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,358 @@
+package com.findtheone.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.findtheone.entity.PhotoAlias;
+import com.findtheone.entity.PhotoBlob;
+import com.findtheone.repository.PhotoAliasRepository;
+import com.findtheone.repository.PhotoBlobRepository;
+import com.findtheone.repository.UserPhotoRepository;
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Content-addressed photo storage. Uploads are named by their SHA-256 and
+ * spread over a two-level shard tree (uploads/photos/3f/a2/3fa2....jpg), so
+ * no directory grows without bound and identical uploads share one file.
+ * Each file has a PhotoBlob row counting the active UserPhoto rows and
+ * profile pictures that use it.
+ *
+ * Files from before this layout sit flat in uploads/photos/. The migration
+ * job moves them into the tree one at a time and records a PhotoAlias for
+ * the old name, which the /uploads resource handler consults, so old URLs
+ * stored in the database keep working while the migration runs.
+ */
+@Service
+public class PhotoStorageService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoStorageService.class);
+
+    public static final String PHOTO_DIR = "uploads/photos/";
+    public static final String PHOTO_URL_PREFIX = "/uploads/photos/";
+
+    private static final Pattern CONTENT_PATH = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/([0-9a-f]{64})\\.[a-z]+");
+    private static final Pattern LEGACY_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*\\.[A-Za-z0-9]+");
+
+    @Autowired
+    private ImageUploadService imageUploadService;
+
+    @Autowired
+    private PhotoBlobRepository photoBlobRepository;
+
+    @Autowired
+    private PhotoAliasRepository photoAliasRepository;
+
+    @Autowired
+    private UserPhotoRepository userPhotoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.photos.storage.migration-delay-ms:20}")
+    private long migrationDelayMs;
+
+    private final Path root;
+
+    private final AtomicBoolean migrationRunning = new AtomicBoolean();
+    private final AtomicLong migrated = new AtomicLong();
+    private final AtomicLong migrationSkipped = new AtomicLong();
+    private volatile Thread migrationThread;
+
+    public PhotoStorageService() {
+        this(Paths.get(PHOTO_DIR));
+    }
+
+    PhotoStorageService(Path root) {
+        this.root = root;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Stream an upload into the store. Identical content is stored once.
+     *
+     * @throws IllegalArgumentException if the body is empty, too large or not
+     *                                  a supported image
+     */
+    public ImageUploadService.StoredImage store(InputStream body, long maxSize) throws IOException {
+        ImageUploadService.StoredImage stored = imageUploadService.storeContentAddressed(body, root, maxSize);
+        ensureBlob(stored, 0);
+        return stored;
+    }
+
+    public String urlFor(ImageUploadService.StoredImage stored) {
+        return PHOTO_URL_PREFIX + relativize(stored.getPath());
+    }
+
+    /**
+     * A UserPhoto row started pointing at this URL
+     */
+    public void addReference(String photoUrl) {
+        adjustReferences(photoUrl, 1);
+    }
+
+    /**
+     * A UserPhoto row pointing at this URL was deactivated
+     */
+    public void removeReference(String photoUrl) {
+        adjustReferences(photoUrl, -1);
+    }
+
+    /**
+     * A user's profile picture changed from one URL to another; either may be null
+     */
+    public void replaceProfileReference(String oldUrl, String newUrl) {
+        if (Objects.equals(oldUrl, newUrl)) {
+            return;
+        }
+        adjustReferences(newUrl, 1);
+        adjustReferences(oldUrl, -1);
+    }
+
+    private void adjustReferences(String photoUrl, int delta) {
+        String sha256 = sha256For(photoUrl);
+        // Unmigrated legacy files have no blob yet; the migration counts their references
+        if (sha256 != null) {
+            photoBlobRepository.adjustRefCount(sha256, delta);
+        }
+    }
+
+    /**
+     * True if the URL points into the content-addressed tree
+     */
+    public boolean isContentAddressed(String photoUrl) {
+        String relative = relativePath(photoUrl);
+        return relative != null && CONTENT_PATH.matcher(relative).matches();
+    }
+
+    /**
+     * The file holding a photo URL's content - the blob for content-addressed
+     * URLs, the flat file or its migrated blob for legacy ones - or null if
+     * the URL is not a stored photo
+     */
+    public Path resolveFile(String photoUrl) {
+        String relative = relativePath(photoUrl);
+        if (relative == null) {
+            return null;
+        }
+        if (CONTENT_PATH.matcher(relative).matches()) {
+            return root.resolve(relative);
+        }
+        if (!LEGACY_NAME.matcher(relative).matches()) {
+            return null;
+        }
+        Path legacy = root.resolve(relative);
+        if (Files.exists(legacy)) {
+            return legacy;
+        }
+        return findAliasPath(relative).map(root::resolve).orElse(null);
+    }
+
+    /**
+     * Blob path (relative to the photo root) a migrated legacy name now lives at
+     */
+    public Optional<String> findAliasPath(String legacyName) {
+        if (!LEGACY_NAME.matcher(legacyName).matches()) {
+            return Optional.empty();
+        }
+        return photoAliasRepository.findById(legacyName).map(PhotoAlias::getPath);
+    }
+
+    private String sha256For(String photoUrl) {
+        String relative = relativePath(photoUrl);
+        if (relative == null) {
+            return null;
+        }
+        Matcher matcher = CONTENT_PATH.matcher(relative);
+        if (matcher.matches()) {
+            return matcher.group(1);
+        }
+        if (LEGACY_NAME.matcher(relative).matches()) {
+            // Waits for a migration publishing this alias, whose count may not include this change
+            return photoAliasRepository.findForShare(relative).map(PhotoAlias::getSha256).orElse(null);
+        }
+        return null;
+    }
+
+    /**
+     * SHA-256 of a path relative to the photo root if it lies in the
+     * content-addressed tree, otherwise null
+     */
+    static String contentSha256(String relative) {
+        Matcher matcher = CONTENT_PATH.matcher(relative);
+        return matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Path below /uploads/photos/ of an absolute or relative URL, or null
+     */
+    static String relativePath(String photoUrl) {
+        if (photoUrl == null) {
+            return null;
+        }
+        int start = photoUrl.indexOf(PHOTO_URL_PREFIX);
+        if (start < 0) {
+            return null;
+        }
+        String relative = photoUrl.substring(start + PHOTO_URL_PREFIX.length());
+        int query = relative.indexOf('?');
+        if (query >= 0) {
+            relative = relative.substring(0, query);
+        }
+        if (relative.isEmpty() || relative.contains("..") || relative.contains("\\")) {
+            return null;
+        }
+        return relative;
+    }
+
+    private String relativize(Path file) {
+        return root.relativize(file).toString().replace('\\', '/');
+    }
+
+    private void ensureBlob(ImageUploadService.StoredImage stored, int initialReferences) {
+        if (photoBlobRepository.existsById(stored.getSha256())) {
+            photoBlobRepository.touch(stored.getSha256(), LocalDateTime.now());
+            if (initialReferences != 0) {
+                photoBlobRepository.adjustRefCount(stored.getSha256(), initialReferences);
+            }
+            return;
+        }
+        PhotoBlob blob = new PhotoBlob(stored.getSha256(), relativize(stored.getPath()),
+                stored.getType().getContentType(), stored.getSize());
+        blob.setRefCount(initialReferences);
+        try {
+            photoBlobRepository.save(blob);
+        } catch (DataIntegrityViolationException e) {
+            // Lost the race with an identical upload - the row exists now
+            if (initialReferences != 0) {
+                photoBlobRepository.adjustRefCount(stored.getSha256(), initialReferences);
+            }
+        }
+    }
+
+    /**
+     * Start moving flat legacy files into the content-addressed tree in the
+     * background
+     *
+     * @return false if a migration is already running
+     */
+    public boolean startMigration() {
+        if (!migrationRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread thread = new Thread(this::runMigration, "photo-storage-migration");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        migrationThread = thread;
+        thread.start();
+        return true;
+    }
+
+    private void runMigration() {
+        logger.info("Photo storage migration started");
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root,
+                file -> Files.isRegularFile(file) && LEGACY_NAME.matcher(file.getFileName().toString()).matches()
+                        && !file.getFileName().toString().endsWith(".part"))) {
+            for (Path file : files) {
+                migrateLegacyFile(file);
+                if (migrationDelayMs > 0) {
+                    Thread.sleep(migrationDelayMs);
+                }
+            }
+            logger.info("Photo storage migration finished, {} migrated, {} skipped",
+                    migrated.get(), migrationSkipped.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.info("Photo storage migration interrupted");
+        } catch (Exception e) {
+            logger.error("Photo storage migration failed: {}", e.getMessage(), e);
+        } finally {
+            migrationThread = null;
+            migrationRunning.set(false);
+        }
+    }
+
+    /**
+     * Copy into the tree, then publish the alias, then remove the flat file.
+     * Until the alias exists the old URL is served from the flat file, after
+     * that from the blob, so there is no window where it 404s.
+     *
+     * The alias and the reference count commit together, counted after the
+     * alias row is written: a reference change that looks the alias up
+     * meanwhile blocks on it and lands on the blob after the commit instead
+     * of being lost.
+     */
+    void migrateLegacyFile(Path file) {
+        String legacyName = file.getFileName().toString();
+        try {
+            if (photoAliasRepository.existsById(legacyName)) {
+                // Interrupted after publishing the alias last time; references were already counted
+                Files.delete(file);
+                migrated.incrementAndGet();
+                return;
+            }
+            ImageUploadService.StoredImage stored;
+            try (InputStream in = Files.newInputStream(file)) {
+                stored = imageUploadService.storeContentAddressed(in, root, Long.MAX_VALUE);
+            }
+            ImageUploadService.StoredImage migratedImage = stored;
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                photoAliasRepository.saveAndFlush(
+                        new PhotoAlias(legacyName, migratedImage.getSha256(), relativize(migratedImage.getPath())));
+                int references = (int) (userPhotoRepository.countActiveByFilename(legacyName)
+                        + userRepository.countByProfilePhotoFilename(legacyName));
+                ensureBlob(migratedImage, references);
+            });
+            Files.delete(file);
+            migrated.incrementAndGet();
+        } catch (IllegalArgumentException e) {
+            migrationSkipped.incrementAndGet();
+            logger.warn("Skipping {} during photo migration: {}", legacyName, e.getMessage());
+        } catch (IOException e) {
+            migrationSkipped.incrementAndGet();
+            logger.warn("Failed to migrate {}: {}", legacyName, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getMigrationStats() {
+        return Map.of(
+                "running", migrationRunning.get(),
+                "migrated", migrated.get(),
+                "skipped", migrationSkipped.get());
+    }
+
+    @Override
+    public void destroy() {
+        Thread thread = migrationThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.findtheone.service;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.findtheone.dto.MessageResponse;
+import com.findtheone.entity.Match;
+import com.findtheone.entity.Message;
+import com.findtheone.entity.User;
+import com.findtheone.event.MatchCreatedEvent;
+import com.findtheone.event.MessageSentEvent;
+import com.findtheone.messaging.BrokerRelay;
+import com.findtheone.messaging.SseEmitterRegistry;
+import com.findtheone.repository.MessageRepository;
+
+/**
+ * Service responsible for pushing real-time events to connected clients.
+ * Every event is routed through the BrokerRelay so that it reaches the user
+ * regardless of which node holds the WebSocket session, and is also written
+ * to any Server-Sent Events streams the user has open on this node.
+ */
+@Service
+public class RealtimeService {
+
+    public static final String USER_DESTINATION_PREFIX = "/topic/user.";
+    public static final String MESSAGES_CHANNEL = "messages";
+    public static final String ATTACHMENTS_CHANNEL = "attachments";
+    public static final String MATCHES_CHANNEL = "matches";
+
+    // SSE event names
+    public static final String EVENT_MESSAGE = "message";
+    public static final String EVENT_UNREAD_COUNT = "unread-count";
+    public static final String EVENT_MATCH = "match";
+
+    @Autowired
+    private BrokerRelay brokerRelay;
+
+    @Autowired
+    private SseEmitterRegistry sseEmitterRegistry;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    /**
+     * Build the per-user destination for a channel, e.g. /topic/user.42.messages
+     */
+    public static String userDestination(Long userId, String channel) {
+        return USER_DESTINATION_PREFIX + userId + "." + channel;
+    }
+
+    public void sendToUser(Long userId, String channel, Object payload) {
+        brokerRelay.send(userDestination(userId, channel), payload);
+    }
+
+    /**
+     * Deliver a new message to its receiver once it has been committed
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMessageSent(MessageSentEvent event) {
+        Message message = event.getMessage();
+        MessageResponse payload = new MessageResponse(
+                message.getId(),
+                message.getSender().getId(),
+                message.getSender().getName(),
+                message.getReceiver().getId(),
+                message.getContent(),
+                message.getSentAt(),
+                message.getIsRead());
+        payload.setMessageType(message.getMessageType().name());
+        payload.setAttachmentUrl(message.getAttachmentUrl());
+        payload.setThumbnailUrl(message.getThumbnailUrl());
+
+        Long receiverId = message.getReceiver().getId();
+        sendToUser(receiverId, MESSAGES_CHANNEL, payload);
+
+        if (sseEmitterRegistry.isConnected(receiverId)) {
+            sseEmitterRegistry.send(receiverId, EVENT_MESSAGE, payload);
+            sendUnreadCount(receiverId);
+        }
+    }
+
+    /**
+     * Tell both users about a new match
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMatchCreated(MatchCreatedEvent event) {
+        Match match = event.getMatch();
+        notifyMatch(match, match.getUser1(), match.getUser2());
+        notifyMatch(match, match.getUser2(), match.getUser1());
+    }
+
+    public void sendUnreadCount(Long userId) {
+        Long unread = messageRepository.countUnreadMessagesByUserId(userId);
+        sseEmitterRegistry.send(userId, EVENT_UNREAD_COUNT, Map.of("unreadCount", unread));
+    }
+
+    private void notifyMatch(Match match, User recipient, User other) {
+        Map<String, Object> payload = Map.of(
+                "matchId", match.getId(),
+                "userId", other.getId(),
+                "name", other.getName(),
+                "matchedAt", match.getMatchedAt());
+
+        sendToUser(recipient.getId(), MATCHES_CHANNEL, payload);
+        sseEmitterRegistry.send(recipient.getId(), EVENT_MATCH, payload);
+    }
+}
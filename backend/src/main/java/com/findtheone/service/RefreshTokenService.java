@@ -0,0 +1,139 @@
+package com.findtheone.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.findtheone.entity.RefreshToken;
+import com.findtheone.repository.RefreshTokenRepository;
+
+/**
+ * Issues and rotates opaque refresh tokens. The raw token only ever leaves
+ * in the response; the database holds its SHA-256.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    public enum RotationStatus {
+        ROTATED, INVALID, EXPIRED, REUSED
+    }
+
+    public static class Rotation {
+        private final RotationStatus status;
+        private final Long userId;
+        private final String refreshToken;
+
+        Rotation(RotationStatus status, Long userId, String refreshToken) {
+            this.status = status;
+            this.userId = userId;
+            this.refreshToken = refreshToken;
+        }
+
+        public RotationStatus getStatus() {
+            return status;
+        }
+
+        public Long getUserId() {
+            return userId;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${app.jwt.refresh-expiration-ms:2592000000}")
+    private long refreshTokenLifetimeMs;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Start a new token family, e.g. on sign-in
+     */
+    public String issue(Long userId) {
+        return issue(userId, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Exchange a refresh token for a new one. A token can be used once;
+     * presenting it again means it leaked, so its whole family is revoked.
+     */
+    public Rotation rotate(String rawToken) {
+        Optional<RefreshToken> found = rawToken != null
+                ? refreshTokenRepository.findByTokenHash(hash(rawToken))
+                : Optional.empty();
+        if (found.isEmpty()) {
+            return new Rotation(RotationStatus.INVALID, null, null);
+        }
+
+        RefreshToken token = found.get();
+        LocalDateTime now = LocalDateTime.now();
+        if (refreshTokenRepository.revokeIfActive(token.getId(), now) == 0) {
+            refreshTokenRepository.revokeFamily(token.getFamilyId(), now);
+            logger.warn("Refresh token reuse for user {} - revoked family {}", token.getUserId(), token.getFamilyId());
+            return new Rotation(RotationStatus.REUSED, token.getUserId(), null);
+        }
+        if (token.getExpiresAt().isBefore(now)) {
+            return new Rotation(RotationStatus.EXPIRED, token.getUserId(), null);
+        }
+        return new Rotation(RotationStatus.ROTATED, token.getUserId(), issue(token.getUserId(), token.getFamilyId()));
+    }
+
+    /**
+     * Sign-out: revoke the presented token's family
+     */
+    public void revoke(String rawToken) {
+        if (rawToken == null) {
+            return;
+        }
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamilyId(), LocalDateTime.now()));
+    }
+
+    public void revokeAllForUser(Long userId) {
+        refreshTokenRepository.revokeAllForUser(userId, LocalDateTime.now());
+    }
+
+    @Scheduled(cron = "${app.jwt.refresh-cleanup-cron:0 30 3 * * *}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpiredBefore(LocalDateTime.now());
+        logger.info("Deleted {} expired refresh tokens", deleted);
+    }
+
+    private String issue(Long userId, String familyId) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        LocalDateTime expiresAt = LocalDateTime.now().plus(Duration.ofMillis(refreshTokenLifetimeMs));
+        refreshTokenRepository.save(new RefreshToken(userId, hash(rawToken), familyId, expiresAt));
+        return rawToken;
+    }
+
+    private static String hash(String rawToken) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(rawToken.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.findtheone.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.findtheone.entity.UploadSession;
+import com.findtheone.repository.UploadSessionRepository;
+
+/**
+ * Resumable uploads: create a session with the total length, PATCH chunks
+ * at the offset the server last confirmed, then complete. Every chunk is
+ * written straight into one part file at its offset, so completing is a
+ * rename rather than a concatenation of chunk files.
+ *
+ * The confirmed offset only moves after a chunk has been written, forced to
+ * disk and, if the client sent one, matched against its checksum. A chunk
+ * cut off mid-transfer keeps the bytes that arrived unless it carried a
+ * checksum, in which case it is discarded whole. Sessions that stop making
+ * progress expire and their part files are deleted.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumableUploadService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CHECKSUM_ALGORITHM = "sha256";
+
+    /**
+     * The client's offset does not match the confirmed one, or another
+     * request is writing to the same session
+     */
+    public static class OffsetConflictException extends IllegalStateException {
+        private final long currentOffset;
+
+        OffsetConflictException(String message, long currentOffset) {
+            super(message);
+            this.currentOffset = currentOffset;
+        }
+
+        public long getCurrentOffset() {
+            return currentOffset;
+        }
+    }
+
+    public static class ChecksumMismatchException extends IllegalArgumentException {
+        ChecksumMismatchException() {
+            super("Chunk checksum does not match");
+        }
+    }
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.uploads.resumable.max-length:52428800}")
+    private long maxUploadLength;
+
+    @Value("${app.uploads.resumable.max-chunk-size:8388608}")
+    private long maxChunkSize;
+
+    @Value("${app.uploads.resumable.expiry-ms:86400000}")
+    private long expiryMs;
+
+    @Value("${app.uploads.resumable.max-sessions-per-user:3}")
+    private int maxSessionsPerUser;
+
+    // Held while a chunk is written, so two PATCHes never interleave in one file;
+    // dropped when the session completes, is aborted or expires
+    private final ConcurrentHashMap<String, ReentrantLock> writeLocks = new ConcurrentHashMap<>();
+
+    public long getMaxUploadLength() {
+        return maxUploadLength;
+    }
+
+    public long getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the length is out of range or the
+     *                                  user has too many open uploads
+     */
+    public UploadSession create(Long userId, long uploadLength) throws IOException {
+        if (uploadLength <= 0 || uploadLength > maxUploadLength) {
+            throw new IllegalArgumentException("Upload length must be between 1 and " + maxUploadLength + " bytes");
+        }
+        if (uploadSessionRepository.countByUserId(userId) >= maxSessionsPerUser) {
+            throw new IllegalArgumentException("Too many uploads in progress");
+        }
+        UploadSession session = new UploadSession(UUID.randomUUID().toString(), userId, uploadLength, nextExpiry());
+        Files.createDirectories(root());
+        Files.createFile(partFile(session.getId()));
+        return uploadSessionRepository.save(session);
+    }
+
+    /**
+     * The user's session, or empty if it does not exist, belongs to someone
+     * else or has expired
+     */
+    public Optional<UploadSession> find(String id, Long userId) {
+        return uploadSessionRepository.findById(id)
+                .filter(session -> session.getUserId().equals(userId))
+                .filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Write a chunk at the given offset and return the new confirmed offset.
+     *
+     * @param checksum      optional "sha256 &lt;base64 digest&gt;" of the chunk
+     * @param contentLength declared chunk length, or -1 if unknown
+     * @throws OffsetConflictException    if the offset is stale or the session is busy
+     * @throws ChecksumMismatchException  if the chunk does not match its checksum
+     * @throws IllegalArgumentException   if the chunk is too large or runs past the upload length
+     */
+    public long append(UploadSession session, long offset, String checksum, long contentLength, InputStream body)
+            throws IOException {
+        byte[] expectedDigest = parseChecksum(checksum);
+        ReentrantLock lock = writeLocks.computeIfAbsent(session.getId(), id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            throw new OffsetConflictException("Another chunk is being written", session.getUploadOffset());
+        }
+        try {
+            // Re-read under the lock: the caller's copy may predate the last chunk
+            UploadSession current = uploadSessionRepository.findById(session.getId())
+                    .orElseThrow(() -> new OffsetConflictException("Upload no longer exists", offset));
+            long confirmed = current.getUploadOffset();
+            if (offset != confirmed) {
+                throw new OffsetConflictException("Expected offset " + confirmed, confirmed);
+            }
+            long remaining = current.getUploadLength() - confirmed;
+            long limit = Math.min(remaining, maxChunkSize);
+            if (contentLength > limit) {
+                throw new IllegalArgumentException(contentLength > remaining
+                        ? "Chunk runs past the upload length"
+                        : "Chunk exceeds " + maxChunkSize + " bytes");
+            }
+
+            MessageDigest digest = expectedDigest != null ? newSha256() : null;
+            long written = 0;
+            boolean keep = false;
+            try (ReadableByteChannel in = Channels.newChannel(body);
+                    FileChannel out = FileChannel.open(partFile(current.getId()), StandardOpenOption.WRITE)) {
+                out.position(confirmed);
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        if (written + read > limit) {
+                            throw new IllegalArgumentException(limit == remaining
+                                    ? "Chunk runs past the upload length"
+                                    : "Chunk exceeds " + maxChunkSize + " bytes");
+                        }
+                        buffer.flip();
+                        if (digest != null) {
+                            digest.update(buffer.duplicate());
+                        }
+                        while (buffer.hasRemaining()) {
+                            out.write(buffer);
+                        }
+                        // Only count bytes once they are in the file
+                        written += read;
+                        buffer.clear();
+                    }
+                } catch (IOException e) {
+                    // Client went away mid-chunk: without a checksum the bytes that
+                    // arrived are still good and the client resumes after them
+                    if (digest == null && written > 0) {
+                        out.force(false);
+                        confirm(current, confirmed, confirmed + written);
+                        keep = true;
+                    }
+                    throw e;
+                }
+
+                if (digest != null && !MessageDigest.isEqual(digest.digest(), expectedDigest)) {
+                    throw new ChecksumMismatchException();
+                }
+                out.force(false);
+                keep = true;
+            } finally {
+                if (!keep) {
+                    discardAfter(current.getId(), confirmed);
+                }
+            }
+            return confirm(current, confirmed, confirmed + written);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hand over the fully received file: it is renamed into place and the
+     * session is closed. The data is not copied.
+     *
+     * @throws OffsetConflictException if a chunk is still being written
+     * @throws IllegalStateException   if bytes are still missing
+     */
+    public Path complete(UploadSession session, Path target) throws IOException {
+        ReentrantLock lock = writeLocks.computeIfAbsent(session.getId(), id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            throw new OffsetConflictException("A chunk is still being written", session.getUploadOffset());
+        }
+        try {
+            UploadSession current = uploadSessionRepository.findById(session.getId())
+                    .orElseThrow(() -> new IllegalStateException("Upload no longer exists"));
+            if (!current.isComplete()) {
+                throw new IllegalStateException("Upload is incomplete: " + current.getUploadOffset()
+                        + " of " + current.getUploadLength() + " bytes received");
+            }
+            Files.createDirectories(target.getParent());
+            Files.move(partFile(current.getId()), target, StandardCopyOption.ATOMIC_MOVE);
+            uploadSessionRepository.delete(current);
+            writeLocks.remove(current.getId());
+            return target;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The received bytes, for inspecting a complete upload before it is moved
+     */
+    public Path getPartFile(UploadSession session) {
+        return partFile(session.getId());
+    }
+
+    public void abort(UploadSession session) throws IOException {
+        Files.deleteIfExists(partFile(session.getId()));
+        uploadSessionRepository.delete(session);
+        writeLocks.remove(session.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.uploads.resumable.cleanup-interval-ms:900000}")
+    public void deleteExpired() {
+        int deleted = 0;
+        boolean progressed;
+        do {
+            // One bad file must not stop the rest; a batch that deletes nothing
+            // is left for the next run rather than retried in a loop
+            progressed = false;
+            List<UploadSession> expired = uploadSessionRepository.findExpired(LocalDateTime.now(), PageRequest.of(0, 100));
+            for (UploadSession session : expired) {
+                try {
+                    abort(session);
+                    deleted++;
+                    progressed = true;
+                } catch (IOException e) {
+                    logger.warn("Could not delete expired upload {}: {}", session.getId(), e.getMessage());
+                }
+            }
+        } while (progressed);
+        if (deleted > 0) {
+            logger.info("Deleted {} expired uploads", deleted);
+        }
+    }
+
+    private long confirm(UploadSession session, long expected, long newOffset) {
+        if (uploadSessionRepository.advanceOffset(session.getId(), expected, newOffset, nextExpiry()) == 0) {
+            // Only possible if the session was aborted or expired under us
+            throw new OffsetConflictException("Upload no longer exists", expected);
+        }
+        session.setUploadOffset(newOffset);
+        return newOffset;
+    }
+
+    private void discardAfter(String id, long offset) throws IOException {
+        Path part = partFile(id);
+        if (Files.exists(part)) {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+                channel.truncate(offset);
+            }
+        }
+    }
+
+    private LocalDateTime nextExpiry() {
+        return LocalDateTime.now().plus(Duration.ofMillis(expiryMs));
+    }
+
+    private Path root() {
+        return Paths.get(uploadDir, "resumable");
+    }
+
+    private Path partFile(String id) {
+        // Session ids are server-generated UUIDs
+        return root().resolve(UUID.fromString(id) + ".part");
+    }
+
+    private static byte[] parseChecksum(String checksum) {
+        if (checksum == null || checksum.isBlank()) {
+            return null;
+        }
+        String[] parts = checksum.trim().split(" ", 2);
+        if (parts.length != 2 || !parts[0].equalsIgnoreCase(CHECKSUM_ALGORITHM)) {
+            throw new IllegalArgumentException("Unsupported checksum, expected \"sha256 <base64>\"");
+        }
+        try {
+            return Base64.getDecoder().decode(parts[1].trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Checksum is not valid base64");
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.findtheone.service;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Generates downscaled JPEG previews on a small bounded worker pool so that
+ * image decoding never runs on request threads and a burst of uploads cannot
+ * exhaust heap. Jobs rejected when the queue is full are not lost: the client
+ * shows the original meanwhile, and ChatAttachmentService's retry sweep
+ * resubmits attachments still missing a preview once the queue has room.
+ */
+@Service
+public class ThumbnailService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final int maxDimension;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public ThumbnailService(@Value("${app.thumbnails.max-dimension:320}") int maxDimension,
+            @Value("${app.thumbnails.workers:2}") int workers,
+            @Value("${app.thumbnails.queue-capacity:200}") int queueCapacity) {
+        this.maxDimension = maxDimension;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queue a thumbnail for the source image. The callback receives the
+     * written thumbnail path once it exists.
+     *
+     * @return false if the worker queue is full and the job was skipped
+     */
+    public boolean submit(Path source, Path target, Consumer<Path> onGenerated) {
+        return submit(source, target, onGenerated, e -> {
+        });
+    }
+
+    /**
+     * As {@link #submit(Path, Path, Consumer)}, also reporting a job that ran
+     * but could not produce a thumbnail
+     */
+    public boolean submit(Path source, Path target, Consumer<Path> onGenerated, Consumer<Exception> onFailed) {
+        try {
+            executor.execute(() -> {
+                try {
+                    writeThumbnail(source, target);
+                } catch (Exception e) {
+                    failed.increment();
+                    logger.warn("Failed to generate thumbnail for {}: {}", source, e.getMessage());
+                    onFailed.accept(e);
+                    return;
+                }
+                generated.increment();
+                onGenerated.accept(target);
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Thumbnail queue full, skipping {}", source);
+            return false;
+        }
+    }
+
+    /**
+     * Decode with subsampling and scale to fit within maxDimension
+     */
+    public void writeThumbnail(Path source, Path target) throws IOException {
+        writeJpeg(scaleToFit(decodeSubsampled(source, maxDimension), maxDimension), target, null);
+    }
+
+    /**
+     * Decode the source with subsampling so only roughly twice the target
+     * resolution is ever held in memory.
+     */
+    static BufferedImage decodeSubsampled(Path source, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            if (input == null) {
+                throw new IOException("Cannot open image " + source);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                int subsampling = Math.max(1, Math.max(width, height) / (maxDimension * 2));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale down (never up) to fit within maxDimension, flattening to RGB
+     */
+    static BufferedImage scaleToFit(BufferedImage decoded, int maxDimension) {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(decoded.getWidth(), decoded.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(decoded.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(decoded.getHeight() * scale));
+
+        BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(decoded, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Write a JPEG via a temp file and atomic rename, so readers never see a
+     * partial file. A null quality uses the writer's default.
+     */
+    static void writeJpeg(BufferedImage image, Path target, Float quality) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "thumb-", ".tmp");
+        try {
+            if (quality == null) {
+                if (!ImageIO.write(image, "jpg", temp.toFile())) {
+                    throw new IOException("No JPEG writer available");
+                }
+            } else {
+                Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpg");
+                if (!writers.hasNext()) {
+                    throw new IOException("No JPEG writer available");
+                }
+                ImageWriter writer = writers.next();
+                try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(quality);
+                    param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                    writer.setOutput(output);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "generated", generated.sum(),
+                "failed", failed.sum(),
+                "rejected", rejected.sum(),
+                "queued", executor.getQueue().size(),
+                "active", executor.getActiveCount());
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,110 @@
+package com.findtheone.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.findtheone.entity.TokenRevocation;
+import com.findtheone.repository.TokenRevocationRepository;
+
+import jakarta.annotation.PostConstruct;
+
+/**
+ * In-memory set of users whose earlier access tokens must be rejected. An
+ * entry only has to outlive the access-token lifetime, so the map holds at
+ * most the users revoked in the last few minutes. Every node reloads the
+ * recent rows on startup and on a short interval, which is how a
+ * deactivation on one node reaches the others.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    @Value("${app.jwt.expiration}")
+    private long accessTokenLifetimeMs;
+
+    // userId -> epoch second of the latest revocation
+    private final Map<Long, Long> revokedBefore = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void load() {
+        refresh();
+        logger.info("Loaded {} active token revocations", revokedBefore.size());
+    }
+
+    /**
+     * Reject access tokens of the user issued before now. Inside a transaction
+     * this node only starts rejecting once it commits, so a rolled-back
+     * deactivation leaves the user's tokens alone.
+     */
+    public void revokeUser(Long userId, String reason) {
+        LocalDateTime now = LocalDateTime.now();
+        tokenRevocationRepository.save(new TokenRevocation(userId, now, reason));
+        long revokedAt = toEpochSecond(now);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    revokedBefore.merge(userId, revokedAt, Math::max);
+                }
+            });
+        } else {
+            revokedBefore.merge(userId, revokedAt, Math::max);
+        }
+    }
+
+    /**
+     * JWT iat has one-second resolution, so a token issued within the same
+     * second as the revocation is still accepted rather than rejecting the
+     * token the user obtains right after it.
+     */
+    public boolean isRevoked(Long userId, Date issuedAt) {
+        Long cutoff = revokedBefore.get(userId);
+        if (cutoff == null) {
+            return false;
+        }
+        return issuedAt == null || issuedAt.getTime() / 1000 < cutoff;
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-refresh-ms:30000}",
+            initialDelayString = "${app.jwt.revocation-refresh-ms:30000}")
+    public void refresh() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(accessTokenLifetimeMs));
+        for (TokenRevocation revocation : tokenRevocationRepository.findByRevokedAtAfter(cutoff)) {
+            revokedBefore.merge(revocation.getUserId(), toEpochSecond(revocation.getRevokedAt()), Math::max);
+        }
+
+        // Every token issued before the cutoff has expired on its own
+        long cutoffSecond = toEpochSecond(cutoff);
+        revokedBefore.values().removeIf(revokedAt -> revokedAt < cutoffSecond);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-prune-ms:3600000}")
+    public void pruneExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(accessTokenLifetimeMs));
+        int deleted = tokenRevocationRepository.deleteRevokedBefore(cutoff);
+        if (deleted > 0) {
+            logger.debug("Pruned {} expired token revocations", deleted);
+        }
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+}
@@ -1,33 +1,170 @@
 package com.findtheone.service;
 
+import com.findtheone.dto.PhotoSummaryDTO;
 import com.findtheone.entity.User;
 import com.findtheone.entity.UserPhoto;
 import com.findtheone.repository.UserPhotoRepository;
 import com.findtheone.repository.UserRepository;
+import com.findtheone.storage.ObjectInfo;
+import com.findtheone.storage.ObjectStorage;
+import com.findtheone.storage.PresignedUpload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
 @Service
 public class UserPhotoService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserPhotoService.class);
+
+    private static final String DIRECT_UPLOAD_PREFIX = "photos/direct/";
+    // Server-owned keys accepted uploads are moved to; no upload URL is ever issued for them
+    private static final String STORED_PREFIX = "photos/users/";
+
     @Autowired
     private UserPhotoRepository userPhotoRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private ObjectStorage objectStorage;
+
+    @Value("${app.storage.max-object-size:10485760}")
+    private long maxPhotoSize;
+
+    @Value("${app.storage.upload-url-ttl-seconds:900}")
+    private long uploadUrlTtlSeconds;
+
+    @Value("${app.photos.batch.max-users:50}")
+    private int maxBatchUsers;
+
+    public int getMaxBatchUsers() {
+        return maxBatchUsers;
+    }
+
     public List<UserPhoto> getUserPhotos(Long userId) {
         return userPhotoRepository.findActivePhotosByUserId(userId);
     }
 
+    /**
+     * Active photos of a page of users, keyed by user id in the order the ids
+     * were given. One query serves the whole page; users without photos map
+     * to an empty list.
+     *
+     * @throws IllegalArgumentException if more ids are given than app.photos.batch.max-users
+     */
+    public Map<Long, List<PhotoSummaryDTO>> getActivePhotosForUsers(Collection<Long> userIds) {
+        Set<Long> ids = new LinkedHashSet<>(userIds);
+        ids.remove(null);
+        if (ids.size() > maxBatchUsers) {
+            throw new IllegalArgumentException("At most " + maxBatchUsers + " users per request");
+        }
+        Map<Long, List<PhotoSummaryDTO>> photos = new LinkedHashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) {
+            return photos;
+        }
+        for (Long id : ids) {
+            photos.put(id, new ArrayList<>());
+        }
+        for (PhotoSummaryDTO photo : userPhotoRepository.findActivePhotoSummariesByUserIds(ids)) {
+            photos.get(photo.getUserId()).add(photo);
+        }
+        return photos;
+    }
+
     public Optional<UserPhoto> getPrimaryPhoto(Long userId) {
         return userPhotoRepository.findPrimaryPhotoByUserId(userId);
     }
 
+    /**
+     * Grant the user a direct upload of one photo to the object store. The
+     * photo is added with {@link #addUploadedPhoto} once the upload is done.
+     *
+     * @throws IllegalArgumentException if the type or size is not accepted
+     */
+    public PresignedUpload presignPhotoUpload(Long userId, String contentType, long size) {
+        ImageUploadService.ImageType type = ImageUploadService.ImageType.fromContentType(contentType);
+        if (type == null) {
+            throw new IllegalArgumentException("Only JPEG, PNG, GIF and WebP images are allowed");
+        }
+        if (size <= 0 || size > maxPhotoSize) {
+            throw new IllegalArgumentException("File size must be less than " + maxPhotoSize / (1024 * 1024) + "MB");
+        }
+        // Refuse before the bytes move rather than after
+        if (userPhotoRepository.countActivePhotosByUserId(userId) >= 6) {
+            throw new IllegalArgumentException("Maximum photo limit reached. You can only have up to 6 photos.");
+        }
+        String key = DIRECT_UPLOAD_PREFIX + userId + "/" + UUID.randomUUID() + type.getExtension();
+        return objectStorage.presignUpload(key, type.getContentType(), Duration.ofSeconds(uploadUrlTtlSeconds));
+    }
+
+    /**
+     * Add a photo the user uploaded directly. The upload is first moved to a
+     * key its upload URL cannot write, so it cannot be swapped after the
+     * check, and each upload can be added only once. What arrived is then
+     * checked - within the size limit and really an image - and deleted if
+     * it fails.
+     *
+     * @throws IllegalArgumentException if the object is missing, already added or invalid
+     */
+    public UserPhoto addUploadedPhoto(Long userId, String objectKey, String caption) throws IOException {
+        String prefix = DIRECT_UPLOAD_PREFIX + userId + "/";
+        if (!objectKey.startsWith(prefix) || objectKey.indexOf('/', prefix.length()) >= 0
+                || objectKey.contains("..")) {
+            throw new IllegalArgumentException("Unknown upload");
+        }
+        String storedKey = STORED_PREFIX + userId + "/" + objectKey.substring(prefix.length());
+        boolean moved;
+        try {
+            moved = !userPhotoRepository.existsByObjectKey(storedKey) && objectStorage.move(objectKey, storedKey);
+        } catch (FileAlreadyExistsException e) {
+            // A concurrent request added it first
+            moved = false;
+        }
+        if (!moved) {
+            throw new IllegalArgumentException("Upload not found or already added");
+        }
+        ObjectInfo info = objectStorage.stat(storedKey)
+                .orElseThrow(() -> new IllegalArgumentException("Upload not found"));
+        ImageUploadService.ImageType type = ImageUploadService.ImageType.sniff(
+                ByteBuffer.wrap(objectStorage.readPrefix(storedKey, 12)));
+        if (info.getSize() > maxPhotoSize || type == null || !storedKey.endsWith(type.getExtension())) {
+            objectStorage.delete(storedKey);
+            throw new IllegalArgumentException(type == null
+                    ? "Only JPEG, PNG, GIF and WebP images are allowed"
+                    : "Upload does not match the requested file");
+        }
+        return addUserPhoto(userId, objectStorage.urlFor(storedKey), storedKey, caption);
+    }
+
     public UserPhoto addUserPhoto(Long userId, String photoUrl, String caption) {
+        return addUserPhoto(userId, photoUrl, null, caption);
+    }
+
+    private UserPhoto addUserPhoto(Long userId, String photoUrl, String objectKey, String caption) {
         Optional<User> user = userRepository.findById(userId);
         if (user.isPresent()) {
             // Check if user already has the maximum number of photos (6)
@@ -41,7 +178,12 @@ public class UserPhotoService {
             int nextOrder = maxOrder.orElse(0) + 1;
 
             UserPhoto photo = new UserPhoto(user.get(), photoUrl, nextOrder, caption);
-            return userPhotoRepository.save(photo);
+            photo.setObjectKey(objectKey);
+            UserPhoto saved = userPhotoRepository.save(photo);
+            photoStorageService.addReference(photoUrl);
+            // Records the variants on this row, generating them first if needed
+            photoDerivativeService.submit(photoUrl);
+            return saved;
         }
         return null;
     }
@@ -83,6 +225,14 @@ public class UserPhotoService {
 
             photoToDelete.setIsActive(false);
             userPhotoRepository.save(photoToDelete);
+            photoStorageService.removeReference(photoToDelete.getPhotoUrl());
+            if (photoToDelete.getObjectKey() != null) {
+                try {
+                    objectStorage.delete(photoToDelete.getObjectKey());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete object {}: {}", photoToDelete.getObjectKey(), e.getMessage());
+                }
+            }
 
             // If this was the primary photo, make the next photo primary
             if (photoToDelete.getPhotoOrder() == 1) {
@@ -1,6 +1,9 @@
 package com.findtheone.service;
 
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -9,7 +12,9 @@ import org.springframework.stereotype.Service;
 
 import com.findtheone.dto.UserResponse;
 import com.findtheone.entity.User;
+import com.findtheone.entity.UserPhoto;
 import com.findtheone.repository.UserRepository;
+import com.findtheone.security.UserSnapshotCache;
 
 @Service
 public class UserService {
@@ -17,23 +22,34 @@ public class UserService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserSnapshotCache userSnapshotCache;
+
+    @Autowired
+    private PhotoDerivativeService photoDerivativeService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Autowired
+    private CoinService coinService;
+
     public List<UserResponse> getPotentialMatches(Long userId) {
-        List<User> users = userRepository.findPotentialMatches(userId);
-        return users.stream()
-                .map(this::convertToUserResponse)
-                .collect(Collectors.toList());
+        return convertToUserResponses(userRepository.findPotentialMatches(userId));
     }
 
     public List<UserResponse> getPotentialMatchesByLocation(Long userId, String location) {
-        List<User> users = userRepository.findPotentialMatchesByLocation(userId, location);
-        return users.stream()
-                .map(this::convertToUserResponse)
-                .collect(Collectors.toList());
+        return convertToUserResponses(userRepository.findPotentialMatchesByLocation(userId, location));
     }
 
+    /**
+     * A single profile, with the coin balance read from the ledger rather than
+     * the users.coins cache, which lags behind purchases and spends
+     */
     public Optional<UserResponse> getUserById(Long id) {
         return userRepository.findById(id)
-                .map(this::convertToUserResponse);
+                .map(user -> convertToUserResponse(user, coinService.getUserCoins(user.getId()),
+                        photoDerivativeService.findRecorded(Collections.singletonList(user.getProfilePhotoUrl()))));
     }
 
     public User updateUser(Long userId, User updatedUser) {
@@ -45,14 +61,40 @@ public class UserService {
             user.setLocation(updatedUser.getLocation());
             user.setInterests(updatedUser.getInterests());
             user.setBio(updatedUser.getBio());
+            photoStorageService.replaceProfileReference(user.getProfilePhotoUrl(), updatedUser.getProfilePhotoUrl());
             user.setProfilePhotoUrl(updatedUser.getProfilePhotoUrl());
-            return userRepository.save(user);
+            User saved = userRepository.save(user);
+            userSnapshotCache.invalidate(userId);
+            return saved;
         }
         return null;
     }
 
-    private UserResponse convertToUserResponse(User user) {
-        return new UserResponse(
+    /**
+     * Point the user's profile picture at another URL, moving its storage reference along
+     */
+    public User updateProfilePhoto(User user, String photoUrl) {
+        photoStorageService.replaceProfileReference(user.getProfilePhotoUrl(), photoUrl);
+        user.setProfilePhotoUrl(photoUrl);
+        return saveUser(user);
+    }
+
+    /**
+     * Match listings leave coins out: other users' balances are never shown,
+     * and a ledger read per card would cost a query each
+     */
+    private List<UserResponse> convertToUserResponses(List<User> users) {
+        Map<String, UserPhoto> recorded = photoDerivativeService.findRecorded(users.stream()
+                .map(User::getProfilePhotoUrl)
+                .filter(Objects::nonNull)
+                .toList());
+        return users.stream()
+                .map(user -> convertToUserResponse(user, null, recorded))
+                .collect(Collectors.toList());
+    }
+
+    private UserResponse convertToUserResponse(User user, Integer coins, Map<String, UserPhoto> recorded) {
+        UserResponse response = new UserResponse(
                 user.getId(),
                 user.getEmail(),
                 user.getName(),
@@ -62,7 +104,12 @@ public class UserService {
                 user.getInterests(),
                 user.getBio(),
                 user.getProfilePhotoUrl(),
-                user.getCoins());
+                coins);
+        response.setProfilePhotoThumbnailUrl(photoDerivativeService.variantUrl(
+                user.getProfilePhotoUrl(), PhotoDerivativeService.Size.THUMBNAIL, recorded));
+        response.setProfilePhotoMediumUrl(photoDerivativeService.variantUrl(
+                user.getProfilePhotoUrl(), PhotoDerivativeService.Size.MEDIUM, recorded));
+        return response;
     }
 
     public Optional<User> findById(Long userId) {
@@ -70,6 +117,8 @@ public class UserService {
     }
 
     public User saveUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userSnapshotCache.invalidate(saved.getId());
+        return saved;
     }
 }
@@ -6,7 +6,6 @@ import com.findtheone.repository.UserVideoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -22,42 +21,6 @@ public class UserVideoService {
     @Autowired
     private UserVideoRepository userVideoRepository;
 
-    /**
-     * Save or update user's profile video
-     */
-    public UserVideo saveUserVideo(User user, String videoUrl, MultipartFile file) {
-        try {
-            // Deactivate any existing videos for this user
-            Optional<UserVideo> existingVideo = userVideoRepository.findByUserAndIsActiveTrue(user);
-            if (existingVideo.isPresent()) {
-                UserVideo existing = existingVideo.get();
-                existing.setActive(false);
-                existing.setUpdatedAt(LocalDateTime.now());
-                userVideoRepository.save(existing);
-            }
-
-            // Create new video record
-            UserVideo userVideo = new UserVideo();
-            userVideo.setUser(user);
-            userVideo.setVideoUrl(videoUrl);
-            userVideo.setFileSizeBytes(file.getSize());
-            userVideo.setMimeType(file.getContentType());
-            userVideo.setActive(true);
-            userVideo.setCreatedAt(LocalDateTime.now());
-            userVideo.setUpdatedAt(LocalDateTime.now());
-
-            // TODO: In future, extract video metadata like duration, generate thumbnail
-            // For now, set defaults
-            userVideo.setDurationSeconds(0);
-            userVideo.setThumbnailUrl(null);
-
-            return userVideoRepository.save(userVideo);
-
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to save user video: " + e.getMessage(), e);
-        }
-    }
-
     /**
      * Get user's active profile video
      */
@@ -5,6 +5,7 @@ import com.findtheone.entity.VideoVerification;
 import com.findtheone.entity.VideoVerification.VerificationStatus;
 import com.findtheone.repository.UserRepository;
 import com.findtheone.repository.VideoVerificationRepository;
+import com.findtheone.util.VideoMetadataReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -42,6 +44,9 @@ public class VideoVerificationService {
     
     @Value("${app.verification.video.allowed-formats:mp4,mov,avi,webm}")
     private String allowedFormats;
+
+    @Value("${app.videos.max-metadata-size:4194304}")
+    private int maxMetadataSize;
     
     /**
      * Submit a video for verification
@@ -186,9 +191,9 @@ public class VideoVerificationService {
     }
     
     /**
-     * Validate uploaded video file
+     * Validate uploaded video file by its container, not its declared content type
      */
-    private void validateVideoFile(MultipartFile file) {
+    private void validateVideoFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new RuntimeException("Video file is empty");
         }
@@ -198,23 +203,13 @@ public class VideoVerificationService {
             throw new RuntimeException("Video file is too large. Maximum size is 50MB");
         }
         
-        // Check file format
-        String contentType = file.getContentType();
-        if (contentType == null || !isValidVideoFormat(contentType)) {
-            throw new RuntimeException("Invalid video format. Allowed formats: mp4, mov, avi, webm");
+        try (InputStream in = file.getInputStream()) {
+            VideoMetadataReader.read(in, file.getSize(), maxMetadataSize);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid video file: " + e.getMessage(), e);
         }
     }
     
-    /**
-     * Check if video format is valid
-     */
-    private boolean isValidVideoFormat(String contentType) {
-        return contentType.equals("video/mp4") ||
-               contentType.equals("video/quicktime") ||
-               contentType.equals("video/x-msvideo") ||
-               contentType.equals("video/webm");
-    }
-    
     /**
      * Save video file to disk
      */
@@ -0,0 +1,162 @@
+package com.findtheone.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Objects as files under the local uploads directory, served by the
+ * /uploads resource handler. This keeps single-node and development setups
+ * working with the same presigned flow as S3: the upload URL points at
+ * {@link #UPLOAD_PATH} and carries an HMAC over the key, content type and
+ * expiry instead of a bearer token.
+ */
+public class LocalObjectStorage implements ObjectStorage {
+
+    public static final String UPLOAD_PATH = "/api/upload/objects/";
+
+    private final Path root;
+    private final String urlPrefix;
+    private final String uploadBaseUrl;
+    private final byte[] signingKey;
+
+    /**
+     * @param uploadBaseUrl prefix for upload URLs, e.g. the API origin; empty
+     *                      for URLs relative to the page
+     */
+    public LocalObjectStorage(Path root, String urlPrefix, String uploadBaseUrl, String signingKey) {
+        this.root = root.toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix;
+        this.uploadBaseUrl = uploadBaseUrl != null ? uploadBaseUrl.replaceAll("/+$", "") : "";
+        this.signingKey = signingKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, Duration ttl) {
+        resolve(key);
+        Instant expiresAt = Instant.now().plus(ttl);
+        long expires = expiresAt.getEpochSecond();
+        String url = uploadBaseUrl + UPLOAD_PATH + SigV4Presigner.encodePath(key)
+                + "?expires=" + expires + "&signature=" + sign(key, contentType, expires);
+        return new PresignedUpload(key, url, "PUT", Map.of("Content-Type", contentType), expiresAt);
+    }
+
+    /**
+     * True if the signature was issued for exactly this key and content type
+     * and has not expired
+     */
+    public boolean verifyUpload(String key, String contentType, long expires, String signature) {
+        if (signature == null || contentType == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        return MessageDigest.isEqual(sign(key, contentType, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Stream an upload into place. The object appears atomically and only
+     * if it is within maxSize; an existing object is never replaced.
+     *
+     * @throws IllegalArgumentException   if the body exceeds maxSize
+     * @throws FileAlreadyExistsException if the key has already been written
+     */
+    public void write(String key, InputStream body, long maxSize) throws IOException {
+        Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), "upload-", ".part");
+        try {
+            try (InputStream in = body; var out = Files.newOutputStream(temp)) {
+                byte[] buffer = new byte[64 * 1024];
+                long total = 0;
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                    if (total > maxSize) {
+                        throw new IllegalArgumentException("Object exceeds " + maxSize + " bytes");
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            // No REPLACE_EXISTING: a presigned URL writes its key once, even while it is still valid
+            Files.move(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public String urlFor(String key) {
+        return urlPrefix + key;
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        Path file = resolve(key);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(new ObjectInfo(key, Files.size(file), Files.probeContentType(file)));
+    }
+
+    @Override
+    public byte[] readPrefix(String key, int length) throws IOException {
+        try (InputStream in = Files.newInputStream(resolve(key))) {
+            return in.readNBytes(length);
+        }
+    }
+
+    @Override
+    public boolean move(String sourceKey, String targetKey) throws IOException {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key would leave the root
+     */
+    private Path resolve(String key) {
+        Path path = root.resolve(key).normalize();
+        if (key.isEmpty() || key.startsWith("/") || !path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid object key");
+        }
+        return path;
+    }
+
+    private String sign(String key, String contentType, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(signingKey, "HmacSHA256"));
+            byte[] signature = mac.doFinal((key + "\n" + contentType + "\n" + expires)
+                    .getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.findtheone.storage;
+
+public class ObjectInfo {
+
+    private final String key;
+    private final long size;
+    private final String contentType;
+
+    public ObjectInfo(String key, long size, String contentType) {
+        this.key = key;
+        this.size = size;
+        this.contentType = contentType;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
@@ -0,0 +1,46 @@
+package com.findtheone.storage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Where uploaded media objects live. Clients write objects directly with a
+ * presigned upload and read them from {@link #urlFor}; the application only
+ * hands out upload grants, checks what arrived and records the key.
+ *
+ * Keys are relative, slash-separated paths such as
+ * photos/direct/42/3f2a....jpg.
+ */
+public interface ObjectStorage {
+
+    /**
+     * Grant a single PUT of the key with the given content type
+     */
+    PresignedUpload presignUpload(String key, String contentType, Duration ttl);
+
+    /**
+     * URL clients read the object from
+     */
+    String urlFor(String key);
+
+    /**
+     * Size and type of a stored object, or empty if it does not exist
+     */
+    Optional<ObjectInfo> stat(String key) throws IOException;
+
+    /**
+     * Up to length bytes from the start of the object, e.g. to check its signature
+     */
+    byte[] readPrefix(String key, int length) throws IOException;
+
+    /**
+     * Move an object to a new key, e.g. one no upload was granted for, so it
+     * cannot be rewritten after it was checked
+     *
+     * @return false if the source does not exist
+     */
+    boolean move(String sourceKey, String targetKey) throws IOException;
+
+    void delete(String key) throws IOException;
+}
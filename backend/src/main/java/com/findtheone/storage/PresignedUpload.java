@@ -0,0 +1,45 @@
+package com.findtheone.storage;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * A time-limited grant to upload one object: the client sends the body with
+ * the given method and headers to the URL
+ */
+public class PresignedUpload {
+
+    private final String key;
+    private final String url;
+    private final String method;
+    private final Map<String, String> headers;
+    private final Instant expiresAt;
+
+    public PresignedUpload(String key, String url, String method, Map<String, String> headers, Instant expiresAt) {
+        this.key = key;
+        this.url = url;
+        this.method = method;
+        this.headers = headers;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public Instant getExpiresAt() {
+        return expiresAt;
+    }
+}
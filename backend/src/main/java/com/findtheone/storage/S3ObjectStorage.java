@@ -0,0 +1,155 @@
+package com.findtheone.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Objects in an S3 bucket or any S3-compatible store. Browsers upload with
+ * presigned PUT URLs and read from the bucket (or a CDN in front of it)
+ * directly; the few requests the server makes itself - HEAD to check an
+ * upload, a ranged GET for its signature, a server-side copy, DELETE - are
+ * presigned the same way, so no SDK is needed.
+ *
+ * Set path-style for stores without virtual-hosted buckets, e.g. a local
+ * MinIO at http://localhost:9000.
+ */
+public class S3ObjectStorage implements ObjectStorage {
+
+    // Server-side requests are sent immediately; their URLs only need to live for the round trip
+    private static final Duration REQUEST_TTL = Duration.ofMinutes(1);
+
+    private final URI endpoint;
+    private final String bucket;
+    private final boolean pathStyle;
+    private final String publicBaseUrl;
+    private final SigV4Presigner presigner;
+    private final HttpClient http;
+
+    public S3ObjectStorage(URI endpoint, String bucket, String region, String accessKey, String secretKey,
+            boolean pathStyle, String publicBaseUrl) {
+        this(endpoint, bucket, region, accessKey, secretKey, pathStyle, publicBaseUrl,
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build());
+    }
+
+    S3ObjectStorage(URI endpoint, String bucket, String region, String accessKey, String secretKey,
+            boolean pathStyle, String publicBaseUrl, HttpClient http) {
+        this.endpoint = endpoint;
+        this.bucket = bucket;
+        this.pathStyle = pathStyle;
+        this.publicBaseUrl = publicBaseUrl != null && !publicBaseUrl.isBlank()
+                ? publicBaseUrl.replaceAll("/+$", "")
+                : null;
+        this.presigner = new SigV4Presigner(accessKey, secretKey, region, "s3");
+        this.http = http;
+    }
+
+    @Override
+    public PresignedUpload presignUpload(String key, String contentType, Duration ttl) {
+        Instant now = Instant.now();
+        // Content-Type is signed, so the client cannot store the object as something else
+        URI url = presigner.presign("PUT", objectUri(key), Map.of("Content-Type", contentType), ttl, now);
+        return new PresignedUpload(key, url.toString(), "PUT", Map.of("Content-Type", contentType), now.plus(ttl));
+    }
+
+    /**
+     * The bucket (or the prefix under it) must be publicly readable, or
+     * public-base-url must point at a CDN that can read it
+     */
+    @Override
+    public String urlFor(String key) {
+        return publicBaseUrl != null
+                ? publicBaseUrl + "/" + SigV4Presigner.encodePath(key)
+                : objectUri(key).toString();
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        HttpResponse<Void> response = send(HttpRequest.newBuilder(signed("HEAD", key))
+                .method("HEAD", HttpRequest.BodyPublishers.noBody()), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        requireSuccess(response, "HEAD", key);
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        return Optional.of(new ObjectInfo(key, size, contentType));
+    }
+
+    @Override
+    public byte[] readPrefix(String key, int length) throws IOException {
+        HttpResponse<InputStream> response = send(HttpRequest.newBuilder(signed("GET", key))
+                .header("Range", "bytes=0-" + (length - 1)), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            requireSuccess(response, "GET", key);
+            // A store that ignores Range answers 200 with the whole object; stop reading early
+            return body.readNBytes(length);
+        }
+    }
+
+    /**
+     * S3 has no rename: a server-side copy, then a delete of the source.
+     * Target keys are server-owned, so callers keep them unique themselves.
+     */
+    @Override
+    public boolean move(String sourceKey, String targetKey) throws IOException {
+        String copySource = "/" + bucket + "/" + SigV4Presigner.encodePath(sourceKey);
+        URI url = presigner.presign("PUT", objectUri(targetKey), Map.of("x-amz-copy-source", copySource),
+                REQUEST_TTL, Instant.now());
+        HttpRequest.Builder request = HttpRequest.newBuilder(url).header("x-amz-copy-source", copySource)
+                .PUT(HttpRequest.BodyPublishers.noBody());
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return false;
+        }
+        requireSuccess(response, "COPY", sourceKey);
+        delete(sourceKey);
+        return true;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<Void> response = send(HttpRequest.newBuilder(signed("DELETE", key)).DELETE(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 404) {
+            requireSuccess(response, "DELETE", key);
+        }
+    }
+
+    URI objectUri(String key) {
+        String path = SigV4Presigner.encodePath(key);
+        String base = endpoint.toString().replaceAll("/+$", "");
+        if (pathStyle) {
+            return URI.create(base + "/" + bucket + "/" + path);
+        }
+        return URI.create(endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/" + path);
+    }
+
+    private URI signed(String method, String key) {
+        return presigner.presign(method, objectUri(key), Map.of(), REQUEST_TTL, Instant.now());
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest.Builder request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        try {
+            return http.send(request.timeout(Duration.ofSeconds(30)).build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted talking to object storage");
+        }
+    }
+
+    private static void requireSuccess(HttpResponse<?> response, String method, String key) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(method + " " + key + " failed with status " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.findtheone.storage;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Picks the media object store: app.storage.type=local (files under
+ * uploads/, the default) or s3 (any S3-compatible endpoint).
+ */
+@Configuration
+public class StorageConfig {
+
+    @Value("${app.storage.type:local}")
+    private String storageType;
+
+    @Value("${app.storage.local.upload-base-url:}")
+    private String localUploadBaseUrl;
+
+    @Value("${app.storage.local.signing-key:}")
+    private String localSigningKey;
+
+    @Value("${app.jwt.secret}")
+    private String jwtSecret;
+
+    @Value("${app.storage.s3.endpoint:https://s3.amazonaws.com}")
+    private String s3Endpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String s3Region;
+
+    @Value("${app.storage.s3.bucket:}")
+    private String s3Bucket;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String s3AccessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String s3SecretKey;
+
+    @Value("${app.storage.s3.path-style:false}")
+    private boolean s3PathStyle;
+
+    @Value("${app.storage.s3.public-base-url:}")
+    private String s3PublicBaseUrl;
+
+    @Bean
+    public ObjectStorage objectStorage() {
+        switch (storageType.toLowerCase()) {
+            case "local":
+                return new LocalObjectStorage(Paths.get("uploads"), "/uploads/", localUploadBaseUrl, uploadSigningKey());
+            case "s3":
+                if (s3Bucket.isBlank() || s3AccessKey.isBlank() || s3SecretKey.isBlank()) {
+                    throw new IllegalStateException(
+                            "app.storage.s3.bucket, access-key and secret-key are required for S3 storage");
+                }
+                return new S3ObjectStorage(URI.create(s3Endpoint), s3Bucket, s3Region, s3AccessKey, s3SecretKey,
+                        s3PathStyle, s3PublicBaseUrl);
+            default:
+                throw new IllegalStateException("Unknown app.storage.type: " + storageType);
+        }
+    }
+
+    /**
+     * The configured upload signing key, or else one derived from the JWT
+     * secret with HKDF-SHA256 - never the JWT secret itself, so an upload
+     * signature cannot stand in for anything signed with it
+     */
+    private String uploadSigningKey() {
+        if (!localSigningKey.isBlank()) {
+            return localSigningKey;
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec("findtheone-storage".getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] pseudoRandomKey = mac.doFinal(jwtSecret.getBytes(StandardCharsets.UTF_8));
+            mac.init(new SecretKeySpec(pseudoRandomKey, "HmacSHA256"));
+            mac.update("local-upload-signing".getBytes(StandardCharsets.UTF_8));
+            byte[] key = mac.doFinal(new byte[] { 1 });
+            return Base64.getEncoder().encodeToString(key);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
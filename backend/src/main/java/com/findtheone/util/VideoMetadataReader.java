@@ -0,0 +1,349 @@
+package com.findtheone.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads container metadata from an uploaded video without decoding it.
+ *
+ * MP4 and QuickTime files are ISO-BMFF: a sequence of length-prefixed
+ * boxes. Only box headers are read on the way to the moov box, the media
+ * data (mdat) is skipped over, and moov itself is read into a bounded buffer
+ * and walked for duration, dimensions and codecs. A file whose boxes do not
+ * add up, or whose moov is missing or larger than the limit, is rejected
+ * after a few header reads.
+ *
+ * WebM (what browsers' MediaRecorder produces) is recognised by its EBML
+ * signature and accepted without further detail.
+ */
+public final class VideoMetadataReader {
+
+    private static final int MAX_TOP_LEVEL_BOXES = 1024;
+    private static final int MAX_DEPTH = 8;
+    private static final byte[] EBML_MAGIC = { 0x1A, 0x45, (byte) 0xDF, (byte) 0xA3 };
+
+    private VideoMetadataReader() {
+        // Utility class
+    }
+
+    public static final class VideoMetadata {
+        private final String container;
+        private final String mimeType;
+        private final String extension;
+        private Long durationMillis;
+        private Integer width;
+        private Integer height;
+        private String videoCodec;
+        private String audioCodec;
+
+        VideoMetadata(String container, String mimeType, String extension) {
+            this.container = container;
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        /**
+         * "mp4", "mov" or "webm"
+         */
+        public String getContainer() {
+            return container;
+        }
+
+        public String getMimeType() {
+            return mimeType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Null for WebM, which is not parsed
+         */
+        public Long getDurationMillis() {
+            return durationMillis;
+        }
+
+        public Integer getDurationSeconds() {
+            return durationMillis != null ? (int) Math.round(durationMillis / 1000.0) : null;
+        }
+
+        public Integer getWidth() {
+            return width;
+        }
+
+        public Integer getHeight() {
+            return height;
+        }
+
+        /**
+         * Sample entry code of the first video track, e.g. avc1 or hvc1
+         */
+        public String getVideoCodec() {
+            return videoCodec;
+        }
+
+        public String getAudioCodec() {
+            return audioCodec;
+        }
+    }
+
+    /**
+     * Probe a video stream.
+     *
+     * @param in              the upload, positioned at its first byte
+     * @param length          total length of the upload
+     * @param maxMetadataSize largest moov box that will be read into memory
+     * @throws IllegalArgumentException if the upload is not a well-formed
+     *                                  MP4, QuickTime or WebM file
+     */
+    public static VideoMetadata read(InputStream in, long length, int maxMetadataSize) throws IOException {
+        if (length < 8) {
+            throw new IllegalArgumentException("Video file is too short");
+        }
+        ByteBuffer header = ByteBuffer.allocate(16);
+        readFully(in, header.array(), 0, 8);
+
+        if (startsWith(header.array(), EBML_MAGIC)) {
+            return new VideoMetadata("webm", "video/webm", ".webm");
+        }
+
+        String firstType = type(header.array(), 4);
+        if (!isTopLevelType(firstType)) {
+            throw new IllegalArgumentException("Unsupported video format");
+        }
+
+        VideoMetadata metadata = null;
+        long position = 0;
+        int boxes = 0;
+        boolean headerRead = true;
+        while (position < length) {
+            if (++boxes > MAX_TOP_LEVEL_BOXES) {
+                throw new IllegalArgumentException("Malformed video: too many boxes");
+            }
+            if (!headerRead) {
+                if (length - position < 8) {
+                    throw new IllegalArgumentException("Malformed video: truncated box header");
+                }
+                readFully(in, header.array(), 0, 8);
+            }
+            headerRead = false;
+
+            long size = Integer.toUnsignedLong(header.getInt(0));
+            String type = type(header.array(), 4);
+            int headerSize = 8;
+            if (size == 1) {
+                readFully(in, header.array(), 8, 8);
+                size = header.getLong(8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = length - position;
+            }
+            if (size < headerSize || size > length - position) {
+                throw new IllegalArgumentException("Malformed video: box '" + type + "' does not fit the file");
+            }
+            long bodySize = size - headerSize;
+
+            if (type.equals("ftyp")) {
+                if (bodySize < 4 || bodySize > 1024) {
+                    throw new IllegalArgumentException("Malformed video: bad ftyp box");
+                }
+                byte[] ftyp = new byte[(int) bodySize];
+                readFully(in, ftyp, 0, ftyp.length);
+                metadata = "qt  ".equals(type(ftyp, 0))
+                        ? new VideoMetadata("mov", "video/quicktime", ".mov")
+                        : new VideoMetadata("mp4", "video/mp4", ".mp4");
+            } else if (type.equals("moov")) {
+                if (bodySize > maxMetadataSize) {
+                    throw new IllegalArgumentException("Video metadata is too large");
+                }
+                byte[] moov = new byte[(int) bodySize];
+                readFully(in, moov, 0, moov.length);
+                if (metadata == null) {
+                    // Old QuickTime files may have no ftyp
+                    metadata = new VideoMetadata("mov", "video/quicktime", ".mov");
+                }
+                parseMoov(ByteBuffer.wrap(moov), metadata);
+                if (metadata.durationMillis == null) {
+                    throw new IllegalArgumentException("Malformed video: moov has no movie header");
+                }
+                return metadata;
+            } else {
+                skipFully(in, bodySize);
+            }
+            position += size;
+        }
+        throw new IllegalArgumentException("Malformed video: no moov box");
+    }
+
+    private static void parseMoov(ByteBuffer moov, VideoMetadata metadata) {
+        walk(moov, 0, moov.limit(), 0, metadata, null);
+    }
+
+    /**
+     * Per-track state while walking a trak box
+     */
+    private static final class Track {
+        String handler;
+        String codec;
+        int width;
+        int height;
+    }
+
+    private static void walk(ByteBuffer buffer, int start, int end, int depth, VideoMetadata metadata, Track track) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Malformed video: boxes nested too deeply");
+        }
+        int position = start;
+        while (position + 8 <= end) {
+            long size = Integer.toUnsignedLong(buffer.getInt(position));
+            String type = type(buffer, position + 4);
+            int headerSize = 8;
+            if (size == 1) {
+                if (position + 16 > end) {
+                    throw new IllegalArgumentException("Malformed video: truncated box header");
+                }
+                size = buffer.getLong(position + 8);
+                headerSize = 16;
+            } else if (size == 0) {
+                size = end - position;
+            }
+            if (size < headerSize || size > end - position) {
+                throw new IllegalArgumentException("Malformed video: box '" + type + "' does not fit its parent");
+            }
+            int body = position + headerSize;
+            int boxEnd = position + (int) size;
+
+            switch (type) {
+                case "trak" -> {
+                    Track child = new Track();
+                    walk(buffer, body, boxEnd, depth + 1, metadata, child);
+                    applyTrack(child, metadata);
+                }
+                case "mdia", "minf", "stbl" -> walk(buffer, body, boxEnd, depth + 1, metadata, track);
+                case "mvhd" -> parseMovieHeader(buffer, body, boxEnd, metadata);
+                case "tkhd" -> {
+                    if (track != null) {
+                        parseTrackHeader(buffer, body, boxEnd, track);
+                    }
+                }
+                case "hdlr" -> {
+                    if (track != null && body + 12 <= boxEnd) {
+                        track.handler = type(buffer, body + 8);
+                    }
+                }
+                case "stsd" -> {
+                    if (track != null) {
+                        parseSampleDescription(buffer, body, boxEnd, track);
+                    }
+                }
+                default -> {
+                    // Not needed
+                }
+            }
+            position = boxEnd;
+        }
+    }
+
+    private static void parseMovieHeader(ByteBuffer buffer, int body, int end, VideoMetadata metadata) {
+        require(body + 1 <= end, "mvhd");
+        int version = buffer.get(body) & 0xFF;
+        // The full header is 100 bytes, or 112 with 64-bit times
+        require(body + (version == 1 ? 112 : 100) <= end, "mvhd");
+        long timescale;
+        long duration;
+        if (version == 1) {
+            timescale = Integer.toUnsignedLong(buffer.getInt(body + 20));
+            duration = buffer.getLong(body + 24);
+        } else {
+            timescale = Integer.toUnsignedLong(buffer.getInt(body + 12));
+            duration = Integer.toUnsignedLong(buffer.getInt(body + 16));
+        }
+        // Whole seconds must fit an int so neither the millisecond nor the seconds conversion overflows
+        if (timescale == 0 || duration < 0 || duration / timescale >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed video: bad movie header");
+        }
+        metadata.durationMillis = duration / timescale * 1000 + duration % timescale * 1000 / timescale;
+    }
+
+    private static void parseTrackHeader(ByteBuffer buffer, int body, int end, Track track) {
+        require(body + 1 <= end, "tkhd");
+        int version = buffer.get(body) & 0xFF;
+        // Width and height are the last two fields, 16.16 fixed point
+        int dimensions = body + (version == 1 ? 88 : 76);
+        require(dimensions + 8 <= end, "tkhd");
+        track.width = buffer.getInt(dimensions) >>> 16;
+        track.height = buffer.getInt(dimensions + 4) >>> 16;
+    }
+
+    private static void parseSampleDescription(ByteBuffer buffer, int body, int end, Track track) {
+        require(body + 16 <= end, "stsd");
+        int entryStart = body + 8;
+        track.codec = type(buffer, entryStart + 4).trim();
+        // Visual sample entries carry their own dimensions after 24 bytes of reserved fields
+        if (track.width == 0 && entryStart + 36 <= end) {
+            track.width = buffer.getShort(entryStart + 32) & 0xFFFF;
+            track.height = buffer.getShort(entryStart + 34) & 0xFFFF;
+        }
+    }
+
+    private static void applyTrack(Track track, VideoMetadata metadata) {
+        if ("vide".equals(track.handler) && metadata.videoCodec == null) {
+            metadata.videoCodec = track.codec;
+            metadata.width = track.width;
+            metadata.height = track.height;
+        } else if ("soun".equals(track.handler) && metadata.audioCodec == null) {
+            metadata.audioCodec = track.codec;
+        }
+    }
+
+    private static void require(boolean condition, String box) {
+        if (!condition) {
+            throw new IllegalArgumentException("Malformed video: truncated " + box + " box");
+        }
+    }
+
+    private static boolean isTopLevelType(String type) {
+        return switch (type) {
+            case "ftyp", "moov", "mdat", "free", "skip", "wide", "pnot" -> true;
+            default -> false;
+        };
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String type(byte[] data, int offset) {
+        return new String(data, offset, 4, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String type(ByteBuffer buffer, int offset) {
+        byte[] bytes = new byte[4];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void readFully(InputStream in, byte[] buffer, int offset, int length) throws IOException {
+        int read = in.readNBytes(buffer, offset, length);
+        if (read < length) {
+            throw new IllegalArgumentException("Malformed video: unexpected end of file");
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        try {
+            in.skipNBytes(count);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Malformed video: unexpected end of file");
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.findtheone.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+
+import com.findtheone.config.WebSocketConfig;
+import com.findtheone.repository.MessageRepository;
+import com.findtheone.service.RealtimeService;
+
+/**
+ * Starts two application nodes in one JVM and checks that a message published on
+ * one node is delivered to a subscriber connected to the other.
+ */
+class BrokerRelayMultiNodeTests {
+
+    @Configuration
+    @Import({ WebSocketConfig.class, RealtimeService.class })
+    static class NodeConfig {
+
+        @Bean
+        SseEmitterRegistry sseEmitterRegistry() {
+            return new SseEmitterRegistry(60000, 60000, 1, 10);
+        }
+
+        @Bean
+        MessageRepository messageRepository() {
+            return Mockito.mock(MessageRepository.class);
+        }
+    }
+
+    private AnnotationConfigWebApplicationContext nodeA;
+    private AnnotationConfigWebApplicationContext nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode();
+        nodeB = startNode();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void messagePublishedOnOneNodeReachesSubscriberOnAnother() throws Exception {
+        String destination = RealtimeService.userDestination(42L, RealtimeService.MESSAGES_CHANNEL);
+        BlockingQueue<Message<?>> receivedOnB = subscribe(nodeB, "session-b", destination);
+
+        nodeA.getBean(RealtimeService.class).sendToUser(42L, RealtimeService.MESSAGES_CHANNEL,
+                Map.of("content", "hello from node A"));
+
+        Message<?> delivered = receivedOnB.poll(5, TimeUnit.SECONDS);
+        assertThat(delivered).isNotNull();
+        assertThat(new String((byte[]) delivered.getPayload(), StandardCharsets.UTF_8))
+                .contains("hello from node A");
+    }
+
+    @Test
+    void messageIsOnlyDeliveredToMatchingSubscriptions() throws Exception {
+        BlockingQueue<Message<?>> receivedOnA = subscribe(nodeA, "session-a",
+                RealtimeService.userDestination(7L, RealtimeService.MESSAGES_CHANNEL));
+        BlockingQueue<Message<?>> receivedOnB = subscribe(nodeB, "session-b",
+                RealtimeService.userDestination(42L, RealtimeService.MESSAGES_CHANNEL));
+
+        nodeA.getBean(RealtimeService.class).sendToUser(42L, RealtimeService.MESSAGES_CHANNEL,
+                Map.of("content", "only for 42"));
+
+        assertThat(receivedOnB.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(receivedOnA.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private AnnotationConfigWebApplicationContext startNode() {
+        AnnotationConfigWebApplicationContext context = new AnnotationConfigWebApplicationContext();
+        context.setServletContext(new MockServletContext());
+        context.register(NodeConfig.class);
+        context.refresh();
+        return context;
+    }
+
+    private BlockingQueue<Message<?>> subscribe(AnnotationConfigWebApplicationContext node, String sessionId,
+            String destination) {
+        BlockingQueue<Message<?>> received = new LinkedBlockingQueue<>();
+        SubscribableChannel outbound = node.getBean("clientOutboundChannel", SubscribableChannel.class);
+        outbound.subscribe(message -> {
+            if (sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                    && SimpMessageType.MESSAGE.equals(SimpMessageHeaderAccessor.getMessageType(message.getHeaders()))) {
+                received.add(message);
+            }
+        });
+
+        // Simulate a client session on this node: CONNECT, then SUBSCRIBE
+        SimpleBrokerMessageHandler broker = node.getBean(SimpleBrokerMessageHandler.class);
+        broker.handleMessage(clientFrame(SimpMessageType.CONNECT, sessionId, null));
+        broker.handleMessage(clientFrame(SimpMessageType.SUBSCRIBE, sessionId, destination));
+        return received;
+    }
+
+    private Message<byte[]> clientFrame(SimpMessageType type, String sessionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        if (destination != null) {
+            accessor.setSubscriptionId("sub-" + sessionId);
+            accessor.setDestination(destination);
+        }
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
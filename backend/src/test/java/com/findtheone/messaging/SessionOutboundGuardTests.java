@@ -0,0 +1,118 @@
+package com.findtheone.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.CloseStatus;
+
+/**
+ * A session that stops reading must not build an unbounded backlog, and
+ * frames of one session stay in publish order on the shared pool
+ */
+class SessionOutboundGuardTests {
+
+    private ThreadPoolTaskExecutor pool;
+    private final CountDownLatch slowSessionBlocked = new CountDownLatch(1);
+    private final List<String> delivered = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(4);
+        pool.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowSessionBlocked.countDown();
+        pool.shutdown();
+    }
+
+    @Test
+    void floodedSlowSessionIsDisconnected() throws Exception {
+        WebSocketSessionRegistry registry = mock(WebSocketSessionRegistry.class);
+        SessionOutboundGuard guard = new SessionOutboundGuard(10, 5, SessionOutboundGuard.OverflowPolicy.DISCONNECT,
+                registry);
+        ExecutorSubscribableChannel channel = channel(guard);
+
+        for (int i = 0; i < 50; i++) {
+            channel.send(frame("slow", "/topic/user.1.messages", i));
+        }
+
+        verify(registry).disconnect(eq("slow"), any(CloseStatus.class));
+        assertThat((long) guard.getStats().get("droppedOverflow")).isGreaterThan(0);
+        assertThat((long) guard.getStats().get("enqueued")).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void droppableFramesGoFirstAndOtherSessionsKeepFlowing() throws Exception {
+        SessionOutboundGuard guard = new SessionOutboundGuard(10, 5, SessionOutboundGuard.OverflowPolicy.DROP,
+                mock(WebSocketSessionRegistry.class));
+        ExecutorSubscribableChannel channel = channel(guard);
+
+        for (int i = 0; i < 8; i++) {
+            channel.send(frame("slow", "/topic/user.1.typing", i));
+        }
+        for (int i = 0; i < 8; i++) {
+            channel.send(frame("fast", "/topic/user.2.messages", i));
+        }
+        for (int i = 0; i < 20; i++) {
+            channel.send(frame("slow", "/topic/user.1.messages", i));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (delivered.stream().filter(d -> d.startsWith("fast")).count() < 8 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        List<String> fast = delivered.stream().filter(d -> d.startsWith("fast")).toList();
+        assertThat(fast).hasSize(8);
+        for (int i = 0; i < fast.size(); i++) {
+            assertThat(fast.get(i)).isEqualTo("fast:" + i);
+        }
+        assertThat((long) guard.getStats().get("droppedDroppable")).isEqualTo(3);
+        assertThat((long) guard.getStats().get("droppedOverflow")).isEqualTo(15);
+        assertThat((int) guard.getStats().get("maxSessionQueue")).isEqualTo(10);
+    }
+
+    private ExecutorSubscribableChannel channel(SessionOutboundGuard guard) {
+        ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(new SessionOrderedExecutor(pool));
+        channel.addInterceptor(guard);
+        channel.subscribe(message -> {
+            String sessionId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if ("slow".equals(sessionId)) {
+                try {
+                    // A client that has stopped reading
+                    slowSessionBlocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            delivered.add(sessionId + ":" + message.getPayload());
+        });
+        return channel;
+    }
+
+    private static Message<String> frame(String sessionId, String destination, int sequence) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(Integer.toString(sequence), accessor.getMessageHeaders());
+    }
+}
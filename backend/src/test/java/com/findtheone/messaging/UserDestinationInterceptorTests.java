@@ -0,0 +1,94 @@
+package com.findtheone.messaging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.security.Principal;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.findtheone.entity.User;
+import com.findtheone.service.RealtimeService;
+
+/**
+ * Per-user topics can only be subscribed to by their owner
+ */
+class UserDestinationInterceptorTests {
+
+    private final MessageChannel channel = mock(MessageChannel.class);
+    private final UserDestinationInterceptor interceptor = new UserDestinationInterceptor(
+            token -> "good-token".equals(token) ? authentication(42L) : null);
+
+    @Test
+    void ownerMaySubscribeToTheirDestination() {
+        Message<?> subscribe = frame(StompCommand.SUBSCRIBE,
+                RealtimeService.userDestination(42L, RealtimeService.MESSAGES_CHANNEL), authentication(42L));
+
+        assertThat(interceptor.preSend(subscribe, channel)).isSameAs(subscribe);
+    }
+
+    @Test
+    void foreignSubscriptionIsRefused() {
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE,
+                RealtimeService.userDestination(7L, RealtimeService.MESSAGES_CHANNEL), authentication(42L)), channel))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE,
+                RealtimeService.userDestination(42L, RealtimeService.MATCHES_CHANNEL), null), channel))
+                .isInstanceOf(AccessDeniedException.class);
+        // 4 is a prefix of 42 but a different user
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE,
+                "/topic/user.4.messages", authentication(42L)), channel))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void wildcardSubscriptionsAndClientPublishesAreRefused() {
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE,
+                "/topic/user.*.messages", authentication(42L)), channel))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SUBSCRIBE,
+                "/topic/**", authentication(42L)), channel))
+                .isInstanceOf(AccessDeniedException.class);
+        assertThatThrownBy(() -> interceptor.preSend(frame(StompCommand.SEND,
+                RealtimeService.userDestination(7L, RealtimeService.MESSAGES_CHANNEL), authentication(42L)), channel))
+                .isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    void connectFrameTokenAuthenticatesTheSession() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader("Authorization", "Bearer good-token");
+        accessor.setLeaveMutable(true);
+        Message<byte[]> connect = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+
+        interceptor.preSend(connect, channel);
+
+        assertThat(StompHeaderAccessor.wrap(connect).getUser()).isNotNull();
+        assertThat(((User) ((UsernamePasswordAuthenticationToken) StompHeaderAccessor.wrap(connect).getUser())
+                .getPrincipal()).getId()).isEqualTo(42L);
+    }
+
+    private static Message<byte[]> frame(StompCommand command, String destination, Principal user) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(command);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("sub-1");
+        accessor.setUser(user);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(Long userId) {
+        User user = new User();
+        user.setId(userId);
+        return new UsernamePasswordAuthenticationToken(user, null, List.of());
+    }
+}
@@ -0,0 +1,68 @@
+package com.findtheone.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import com.findtheone.exception.PasswordHashingBusyException;
+
+/**
+ * Saturation fails fast instead of queueing, and cost changes are detected
+ */
+class BoundedPasswordEncoderTests {
+
+    @Test
+    void rejectsBeyondQueueCapacity() throws Exception {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(10, 1, 2, 30_000);
+        String hash = encoder.encode("secret");
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        try {
+            List<Callable<Boolean>> calls = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                calls.add(() -> encoder.matches("secret", hash));
+            }
+            int matched = 0;
+            int busy = 0;
+            for (Future<Boolean> result : callers.invokeAll(calls)) {
+                try {
+                    if (result.get()) {
+                        matched++;
+                    }
+                } catch (Exception e) {
+                    assertThat(e.getCause()).isInstanceOf(PasswordHashingBusyException.class);
+                    busy++;
+                }
+            }
+            assertThat(matched + busy).isEqualTo(20);
+            assertThat(busy).isPositive();
+            assertThat(encoder.getStats().get("rejected")).isEqualTo((long) busy);
+        } finally {
+            callers.shutdown();
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    void requestsUpgradeWhenStrengthChanges() {
+        BoundedPasswordEncoder weak = new BoundedPasswordEncoder(4, 1, 4, 5_000);
+        BoundedPasswordEncoder strong = new BoundedPasswordEncoder(6, 1, 4, 5_000);
+        try {
+            String weakHash = weak.encode("secret");
+            assertThat(strong.matches("secret", weakHash)).isTrue();
+            assertThat(strong.upgradeEncoding(weakHash)).isTrue();
+            assertThat(strong.upgradeEncoding(strong.encode("secret"))).isFalse();
+            // Lowering the cost re-hashes too
+            assertThat(weak.upgradeEncoding(strong.encode("secret"))).isTrue();
+        } finally {
+            weak.destroy();
+            strong.destroy();
+        }
+    }
+}
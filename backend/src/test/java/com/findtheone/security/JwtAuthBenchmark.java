@@ -0,0 +1,87 @@
+package com.findtheone.security;
+
+import java.security.Key;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.entity.User;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Per-request token verification cost: the old path (key and parser rebuilt,
+ * token parsed twice), a single parse with the cached parser, and a hit in
+ * the verified-token cache. Run with main(); not part of the test suite.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "benchmark-secret-key-for-jwt-token-generation-at-least-256-bits";
+
+    private JwtUtils cachingJwtUtils;
+    private JwtUtils uncachedJwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        cachingJwtUtils = newJwtUtils(10000);
+        uncachedJwtUtils = newJwtUtils(0);
+
+        User user = new User("bench@test.com", "password", "Bench", 30, User.Gender.OTHER, "Test City");
+        user.setId(42L);
+        token = cachingJwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+    }
+
+    @Benchmark
+    public String legacyDoubleParse() {
+        Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        Key keyAgain = Keys.hmacShaKeyFor(SECRET.getBytes());
+        return Jwts.parserBuilder().setSigningKey(keyAgain).build().parseClaimsJws(token).getBody().getSubject();
+    }
+
+    @Benchmark
+    public Claims singleParse() {
+        return uncachedJwtUtils.parseClaims(token);
+    }
+
+    @Benchmark
+    public Claims verifiedTokenCacheHit() {
+        return cachingJwtUtils.parseClaims(token);
+    }
+
+    private static JwtUtils newJwtUtils(int cacheSize) {
+        JwtUtils jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheSize", cacheSize);
+        jwtUtils.init();
+        return jwtUtils;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder().include(JwtAuthBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,86 @@
+package com.findtheone.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Exact limits under contention, window expiry, idle-key eviction and the
+ * sign-in keying in AuthRateLimiter
+ */
+class SlidingWindowRateLimiterTests {
+
+    @Test
+    void admitsExactlyTheLimitUnderContention() throws Exception {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(50, 60_000, 1000);
+        AtomicInteger admitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Callable<Void>> calls = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                calls.add(() -> {
+                    if (limiter.tryAcquire("10.0.0.1") == 0) {
+                        admitted.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(calls)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(admitted.get()).isEqualTo(50);
+        assertThat(limiter.tryAcquire("10.0.0.1")).isPositive();
+        assertThat(limiter.tryAcquire("10.0.0.2")).isZero();
+    }
+
+    @Test
+    void windowSlidesAndIdleKeysAreEvicted() throws Exception {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(2, 200, 1000);
+        assertThat(limiter.tryAcquire("user@test.com")).isZero();
+        assertThat(limiter.tryAcquire("user@test.com")).isZero();
+        assertThat(limiter.tryAcquire("user@test.com")).isPositive();
+
+        Thread.sleep(250);
+        assertThat(limiter.tryAcquire("user@test.com")).isZero();
+
+        Thread.sleep(250);
+        limiter.evictIdle();
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void refusedSigninIsNotCountedAndDoesNotLockOutOtherClients() {
+        AuthRateLimiter limiter = new AuthRateLimiter(1000, 3, 2, 20, 60_000, 20, 5, 60_000, 10, 3, 60_000);
+        assertThat(limiter.checkSignin("10.0.0.1", "victim@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.1", "victim@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.1", "Victim@test.com")).isPositive();
+
+        // The refused attempt left the IP budget alone
+        assertThat(limiter.checkSignin("10.0.0.1", "other@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.2", "victim@test.com")).isZero();
+    }
+
+    @Test
+    void signinIsCappedPerEmailAcrossClients() {
+        AuthRateLimiter limiter = new AuthRateLimiter(1000, 30, 5, 3, 60_000, 20, 5, 60_000, 10, 3, 60_000);
+        assertThat(limiter.checkSignin("10.0.0.1", "victim@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.2", "victim@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.3", "victim@test.com")).isZero();
+        assertThat(limiter.checkSignin("10.0.0.4", "victim@test.com")).isPositive();
+
+        // The refused attempt was not charged to the new address
+        assertThat(limiter.checkSignin("10.0.0.4", "other@test.com")).isZero();
+    }
+}
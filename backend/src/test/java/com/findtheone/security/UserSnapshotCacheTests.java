@@ -0,0 +1,55 @@
+package com.findtheone.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.findtheone.entity.User;
+import com.findtheone.repository.UserRepository;
+import com.findtheone.support.JpaServiceTest;
+import com.findtheone.support.TestUsers;
+
+/**
+ * Snapshots are served from memory until invalidated
+ */
+@JpaServiceTest
+@Import(UserSnapshotCache.class)
+class UserSnapshotCacheTests {
+
+    @Autowired
+    private UserSnapshotCache cache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void servesCachedSnapshotUntilInvalidated() {
+        User user = TestUsers.newUser("Before");
+        Long userId = userRepository.save(user).getId();
+
+        UserSnapshot first = cache.get(userId);
+        assertThat(first.getName()).isEqualTo("Before");
+        assertThat(first.isActive()).isTrue();
+
+        user.setName("After");
+        user.setIsActive(false);
+        userRepository.save(user);
+        assertThat(cache.get(userId)).isSameAs(first);
+
+        cache.invalidate(userId);
+        UserSnapshot reloaded = cache.get(userId);
+        assertThat(reloaded.getName()).isEqualTo("After");
+        assertThat(reloaded.isActive()).isFalse();
+        assertThat(reloaded.toPrincipal().getId()).isEqualTo(userId);
+
+        assertThat(cache.get(-1L)).isNull();
+    }
+}
@@ -0,0 +1,113 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.findtheone.entity.BonusCampaign;
+import com.findtheone.entity.User;
+import com.findtheone.repository.BonusCampaignRepository;
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
+import com.findtheone.repository.TransactionRepository;
+import com.findtheone.repository.UserRepository;
+import com.findtheone.support.JpaServiceTest;
+import com.findtheone.support.TestUsers;
+
+/**
+ * Chunked bonus grants and resuming from the checkpoint
+ */
+@JpaServiceTest
+@Import({ BonusCampaignService.class, CoinService.class })
+class BonusCampaignServiceTests {
+
+    @Autowired
+    private BonusCampaignService campaignService;
+
+    @Autowired
+    private BonusCampaignRepository campaignRepository;
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    @AfterEach
+    void cleanUp() {
+        campaignRepository.deleteAll();
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void grantsEveryTargetUserOnceInChunks() throws Exception {
+        List<Long> userIds = createUsers(25);
+        coinService.spendCoins(userIds.get(0), 3, "before campaign");
+
+        BonusCampaign campaign = campaignService.createCampaign("Welcome back", 5, null,
+                BonusCampaign.Segment.ALL_ACTIVE, 10);
+        campaignService.startCampaign(campaign.getId());
+        BonusCampaign finished = awaitCompletion(campaign.getId());
+
+        assertThat(finished.getGrantedCount()).isEqualTo(25);
+        assertThat(coinService.getUserCoins(userIds.get(0))).isEqualTo(10 - 3 + 5);
+        for (Long userId : userIds.subList(1, userIds.size())) {
+            assertThat(coinService.getUserCoins(userId)).isEqualTo(15);
+        }
+    }
+
+    @Test
+    void resumesFromCheckpointAfterRestart() throws Exception {
+        List<Long> userIds = createUsers(20);
+
+        // Simulate a crash after the first 12 users were granted
+        BonusCampaign campaign = campaignService.createCampaign("Resume", 7, null,
+                BonusCampaign.Segment.ALL_ACTIVE, 5);
+        campaign.setStatus(BonusCampaign.Status.RUNNING);
+        campaign.setLastUserId(userIds.get(11));
+        campaign.setGrantedCount(12L);
+        campaignRepository.save(campaign);
+
+        campaignService.resumeRunningCampaigns();
+        BonusCampaign finished = awaitCompletion(campaign.getId());
+
+        assertThat(finished.getGrantedCount()).isEqualTo(20);
+        assertThat(coinService.getUserCoins(userIds.get(11))).isEqualTo(10);
+        assertThat(coinService.getUserCoins(userIds.get(12))).isEqualTo(17);
+        assertThat(coinService.getUserCoins(userIds.get(19))).isEqualTo(17);
+    }
+
+    private BonusCampaign awaitCompletion(Long campaignId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            BonusCampaign campaign = campaignRepository.findById(campaignId).orElseThrow();
+            if (campaign.getStatus() == BonusCampaign.Status.COMPLETED
+                    || campaign.getStatus() == BonusCampaign.Status.FAILED) {
+                assertThat(campaign.getLastError()).isNull();
+                return campaign;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Campaign did not finish");
+    }
+
+    private List<Long> createUsers(int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(userRepository.save(TestUsers.newUser("User " + i)).getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,151 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.entity.Message;
+import com.findtheone.entity.User;
+import com.findtheone.event.MessageSentEvent;
+import com.findtheone.repository.MessageRepository;
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Image messages point at their stored attachment, and previews the worker
+ * queue rejected are generated by the retry sweep
+ */
+class ChatAttachmentServiceTests {
+
+    private static final byte[] PNG = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 0, 0, 0, 0 };
+
+    @TempDir
+    Path dir;
+
+    private ChatAttachmentService service;
+    private MessageRepository messages;
+    private ThumbnailService thumbnails;
+    private RealtimeService realtime;
+    private ApplicationEventPublisher events;
+    private final User sender = user(1L);
+    private final User receiver = user(2L);
+
+    @BeforeEach
+    void setUp() {
+        service = new ChatAttachmentService();
+        messages = mock(MessageRepository.class);
+        thumbnails = mock(ThumbnailService.class);
+        realtime = mock(RealtimeService.class);
+        events = mock(ApplicationEventPublisher.class);
+        UserRepository users = mock(UserRepository.class);
+        when(users.findById(1L)).thenReturn(Optional.of(sender));
+        when(users.findById(2L)).thenReturn(Optional.of(receiver));
+        when(messages.save(any(Message.class))).thenAnswer(invocation -> {
+            Message message = invocation.getArgument(0);
+            message.setId(100L);
+            return message;
+        });
+
+        ReflectionTestUtils.setField(service, "messageRepository", messages);
+        ReflectionTestUtils.setField(service, "userRepository", users);
+        ReflectionTestUtils.setField(service, "thumbnailService", thumbnails);
+        ReflectionTestUtils.setField(service, "imageUploadService", new ImageUploadService());
+        ReflectionTestUtils.setField(service, "realtimeService", realtime);
+        ReflectionTestUtils.setField(service, "eventPublisher", events);
+        ReflectionTestUtils.setField(service, "attachmentDir", dir);
+        ReflectionTestUtils.setField(service, "maxAttachmentSize", 1024L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void imageMessageLinksToItsAttachmentAndPreview() throws Exception {
+        when(thumbnails.submit(any(), any(), any(), any())).thenReturn(true);
+
+        Message message = service.sendImageMessage(1L, 2L, "image/png", new ByteArrayInputStream(PNG), "hi");
+
+        assertThat(message.getMessageType()).isEqualTo(Message.MessageType.IMAGE);
+        assertThat(message.getContent()).isEqualTo("hi");
+        String filename = message.getAttachmentUrl().substring(ChatAttachmentService.ATTACHMENT_URL_PREFIX.length());
+        assertThat(message.getAttachmentUrl()).startsWith(ChatAttachmentService.ATTACHMENT_URL_PREFIX).endsWith(".png");
+        assertThat(dir.resolve(filename)).exists();
+        verify(events).publishEvent(any(MessageSentEvent.class));
+
+        ArgumentCaptor<Path> source = ArgumentCaptor.forClass(Path.class);
+        ArgumentCaptor<Consumer<Path>> onGenerated = ArgumentCaptor.forClass(Consumer.class);
+        verify(thumbnails).submit(source.capture(), any(), onGenerated.capture(), any());
+        assertThat(source.getValue()).isEqualTo(dir.resolve(filename));
+
+        onGenerated.getValue().accept(dir.resolve("thumbs").resolve("x.jpg"));
+        String thumbnailUrl = ChatAttachmentService.THUMBNAIL_URL_PREFIX + filename.replace(".png", ".jpg");
+        verify(messages).updateThumbnailUrl(100L, thumbnailUrl);
+        verify(realtime).sendToUser(eq(2L), eq(RealtimeService.ATTACHMENTS_CHANNEL),
+                eq(Map.of("messageId", 100L, "thumbnailUrl", thumbnailUrl)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void rejectedJobIsRetriedBySweep() throws Exception {
+        when(thumbnails.submit(any(), any(), any(), any())).thenReturn(false);
+        Message message = service.sendImageMessage(1L, 2L, "image/png", new ByteArrayInputStream(PNG), null);
+        verify(messages, never()).updateThumbnailUrl(anyLong(), any());
+
+        // Queue still full: the sweep stops without recording anything
+        when(messages.findMissingThumbnails(eq(Message.MessageType.IMAGE), any(), any())).thenReturn(List.of(message));
+        service.retryMissingThumbnails();
+        verify(messages, never()).updateThumbnailUrl(anyLong(), any());
+
+        when(thumbnails.submit(any(), any(), any(), any())).thenReturn(true);
+        service.retryMissingThumbnails();
+        // Still queued: a second sweep does not submit it again
+        service.retryMissingThumbnails();
+
+        ArgumentCaptor<Consumer<Exception>> onFailed = ArgumentCaptor.forClass(Consumer.class);
+        verify(thumbnails, times(3)).submit(any(), any(), any(), onFailed.capture());
+
+        // An undecodable image falls back to the original, which ends the retries
+        onFailed.getValue().accept(new IOException("corrupt"));
+        verify(messages).updateThumbnailUrl(100L, message.getAttachmentUrl());
+    }
+
+    @Test
+    void missingAttachmentIsRecordedInsteadOfRetried() {
+        Message message = new Message(sender, receiver, "[Image]");
+        message.setId(7L);
+        message.setMessageType(Message.MessageType.IMAGE);
+        message.setAttachmentUrl(ChatAttachmentService.ATTACHMENT_URL_PREFIX + "gone.png");
+        when(messages.findMissingThumbnails(eq(Message.MessageType.IMAGE), any(), any())).thenReturn(List.of(message));
+
+        service.retryMissingThumbnails();
+
+        verify(messages).updateThumbnailUrl(7L, message.getAttachmentUrl());
+        verify(thumbnails, never()).submit(any(), any(), any(), any());
+        assertThat(Files.exists(dir.resolve("gone.png"))).isFalse();
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        return user;
+    }
+}
@@ -0,0 +1,159 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+
+import com.findtheone.entity.Transaction;
+import com.findtheone.entity.User;
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
+import com.findtheone.repository.TransactionRepository;
+import com.findtheone.repository.UserRepository;
+import com.findtheone.support.JpaServiceTest;
+import com.findtheone.support.TestUsers;
+
+/**
+ * Hammers one balance with parallel spends and purchases and checks that no
+ * coins are lost or created, that the balance never goes negative and that
+ * folding the ledger into a snapshot does not change it.
+ */
+@JpaServiceTest
+@Import(CoinService.class)
+class CoinServiceConcurrencyTests {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void parallelSpendsAndPurchasesLoseNoCoins() throws Exception {
+        Long userId = createUser(500);
+        int spends = 3000;
+        int purchases = 1000;
+        AtomicInteger successfulSpends = new AtomicInteger();
+
+        List<Callable<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < spends; i++) {
+            calls.add(() -> {
+                if (coinService.spendCoins(userId, 1, "stress spend")) {
+                    successfulSpends.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        for (int i = 0; i < purchases; i++) {
+            calls.add(() -> {
+                coinService.purchaseCoins(userId, 1, BigDecimal.ONE);
+                return null;
+            });
+        }
+        runInParallel(calls);
+
+        int expected = 500 + purchases - successfulSpends.get();
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(expected);
+        assertThat(ledgerSum(userId)).isEqualTo(expected - 500);
+    }
+
+    @Test
+    void parallelSpendsNeverOverdraw() throws Exception {
+        Long userId = createUser(100);
+        AtomicInteger successfulSpends = new AtomicInteger();
+
+        List<Callable<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            calls.add(() -> {
+                if (coinService.spendCoins(userId, 1, "stress spend")) {
+                    successfulSpends.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        runInParallel(calls);
+
+        assertThat(successfulSpends.get()).isEqualTo(100);
+        assertThat(coinService.getUserCoins(userId)).isZero();
+        assertThat(ledgerSum(userId)).isEqualTo(-100);
+    }
+
+    @Test
+    void foldingIntoSnapshotKeepsBalanceAndSyncsUserColumn() throws Exception {
+        Long userId = createUser(50);
+        List<Callable<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            calls.add(() -> {
+                if (n % 20 == 0) {
+                    // Folds interleave with uncommitted writes and must not skip any of them
+                    coinService.foldLedger(userId);
+                } else if (n % 2 == 0) {
+                    coinService.addBonusCoins(userId, 2, "stress bonus");
+                } else {
+                    coinService.spendCoins(userId, 1, "stress spend");
+                }
+                return null;
+            });
+        }
+        runInParallel(calls);
+
+        int before = coinService.getUserCoins(userId);
+        coinService.foldLedger(userId);
+
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(before);
+        assertThat(userRepository.findCoinsById(userId)).contains(before);
+        assertThat(before).isEqualTo(50 + ledgerSum(userId));
+    }
+
+    private Long createUser(int coins) {
+        User user = TestUsers.newUser("Stress");
+        user.setCoins(coins);
+        return userRepository.save(user).getId();
+    }
+
+    private int ledgerSum(Long userId) {
+        return transactionRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
+                .mapToInt(Transaction::getCoinAmount)
+                .sum();
+    }
+
+    private void runInParallel(List<Callable<Void>> calls) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (Future<Void> future : executor.invokeAll(calls)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Single-pass image writer: signature sniffing, inline hashing and the size limit
+ */
+class ImageUploadServiceTests {
+
+    private final ImageUploadService service = new ImageUploadService();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void storesImageUnderDetectedExtensionWithHash() throws Exception {
+        byte[] png = new byte[200_000];
+        byte[] signature = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+        System.arraycopy(signature, 0, png, 0, signature.length);
+        for (int i = signature.length; i < png.length; i++) {
+            png[i] = (byte) i;
+        }
+
+        // Deliver the body in tiny reads so the signature straddles several of them
+        ImageUploadService.StoredImage stored = service.store(new ByteArrayInputStream(png) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        }, dir, png.length);
+
+        assertThat(stored.getType()).isEqualTo(ImageUploadService.ImageType.PNG);
+        assertThat(stored.getFilename()).endsWith(".png");
+        assertThat(stored.getSize()).isEqualTo(png.length);
+        assertThat(Files.readAllBytes(stored.getPath())).isEqualTo(png);
+        assertThat(stored.getSha256())
+                .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(png)));
+        assertThat(listing()).containsExactly(stored.getFilename());
+    }
+
+    @Test
+    void rejectsNonImagesAndLeavesNothingBehind() throws Exception {
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes();
+
+        assertThatThrownBy(() -> service.store(new ByteArrayInputStream(html), dir, 1024))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.store(new ByteArrayInputStream(new byte[0]), dir, 1024))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("File is empty");
+        assertThat(listing()).isEmpty();
+    }
+
+    @Test
+    void rejectsOversizedBody() throws Exception {
+        byte[] jpeg = new byte[5000];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+
+        assertThatThrownBy(() -> service.store(new ByteArrayInputStream(jpeg), dir, 4999))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(listing()).isEmpty();
+    }
+
+    private String[] listing() throws IOException {
+        try (var files = Files.list(dir)) {
+            return files.map(p -> p.getFileName().toString()).toArray(String[]::new);
+        }
+    }
+}
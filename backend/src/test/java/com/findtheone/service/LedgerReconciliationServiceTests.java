@@ -0,0 +1,98 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import com.findtheone.entity.User;
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
+import com.findtheone.repository.TransactionRepository;
+import com.findtheone.repository.UserRepository;
+import com.findtheone.support.JpaServiceTest;
+import com.findtheone.support.TestUsers;
+
+/**
+ * Reconciliation over many small partitions finds exactly the tampered balances
+ */
+@JpaServiceTest
+@Import({ LedgerReconciliationService.class, CoinService.class })
+@TestPropertySource(properties = {
+        "app.reconciliation.partition-size=7",
+        "app.reconciliation.fetch-size=16"
+})
+class LedgerReconciliationServiceTests {
+
+    @Autowired
+    private LedgerReconciliationService reconciliationService;
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    @AfterEach
+    void cleanUp() {
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void reportsOnlyTamperedBalances() {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Long userId = userRepository.save(TestUsers.newUser("User " + i)).getId();
+            userIds.add(userId);
+            coinService.purchaseCoins(userId, i, BigDecimal.ONE);
+            coinService.spendCoins(userId, 3, "reconciliation test");
+            if (i % 3 == 0) {
+                coinService.foldLedger(userId);
+                coinService.addBonusCoins(userId, 2, "after fold");
+            }
+        }
+
+        Long snapshotTampered = userIds.get(9);
+        Long neverBootstrapped = userIds.get(20);
+        jdbcTemplate.update("UPDATE coin_balance_snapshots SET balance = balance + 5 WHERE user_id = ?",
+                snapshotTampered);
+        jdbcTemplate.update("DELETE FROM transactions WHERE user_id = ?", neverBootstrapped);
+        jdbcTemplate.update("DELETE FROM coin_balance_snapshots WHERE user_id = ?", neverBootstrapped);
+        jdbcTemplate.update("UPDATE users SET coins = 99 WHERE id = ?", neverBootstrapped);
+
+        User admin = TestUsers.newUser("Admin");
+        admin.setRole(User.Role.ADMIN);
+        admin.setCoins(1000);
+        coinService.spendCoins(userRepository.save(admin).getId(), 7, "admin spend");
+
+        LedgerReconciliationService.ReconciliationReport report = reconciliationService.reconcile();
+
+        assertThat(report.usersChecked).isEqualTo(41);
+        assertThat(report.orphanLedgerRows).isZero();
+        assertThat(report.discrepancies)
+                .extracting(d -> d.userId)
+                .containsExactlyInAnyOrder(snapshotTampered, neverBootstrapped);
+        assertThat(report.discrepancies)
+                .filteredOn(d -> d.userId == snapshotTampered)
+                .singleElement()
+                .satisfies(d -> assertThat(d.impliedOpeningBalance).isEqualTo(15));
+    }
+}
@@ -0,0 +1,183 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.repository.PhotoAliasRepository;
+import com.findtheone.repository.PhotoBlobRepository;
+import com.findtheone.util.LongHashSet;
+
+/**
+ * Sweep decisions: references, grace period, dry run and blob consistency
+ */
+class MediaGarbageCollectorTests {
+
+    private static final String SHA = "ab".repeat(32);
+    private static final Instant CUTOFF = Instant.now().minus(Duration.ofHours(24));
+
+    @TempDir
+    Path dir;
+
+    private MediaGarbageCollector collector;
+    private PhotoBlobRepository blobs;
+    private PhotoAliasRepository aliases;
+    private PhotoDerivativeService derivatives;
+    private PhotoStorageService storage;
+    private LongHashSet referenced;
+
+    @BeforeEach
+    void setUp() {
+        blobs = mock(PhotoBlobRepository.class);
+        aliases = mock(PhotoAliasRepository.class);
+        derivatives = mock(PhotoDerivativeService.class);
+        storage = mock(PhotoStorageService.class);
+        collector = new MediaGarbageCollector(dir.resolve("uploads"), dir.resolve("data/verification-videos"));
+        ReflectionTestUtils.setField(collector, "photoBlobRepository", blobs);
+        ReflectionTestUtils.setField(collector, "photoAliasRepository", aliases);
+        ReflectionTestUtils.setField(collector, "photoDerivativeService", derivatives);
+        ReflectionTestUtils.setField(collector, "photoStorageService", storage);
+        ReflectionTestUtils.setField(collector, "maxReported", 10);
+        referenced = new LongHashSet();
+    }
+
+    @Test
+    void deletesOnlyOldUnreferencedFiles() throws Exception {
+        Path kept = oldFile("uploads/videos/kept.mp4");
+        Path orphan = oldFile("uploads/videos/orphan.mp4");
+        Path fresh = file("uploads/chat/fresh.jpg");
+        Path verification = oldFile("data/verification-videos/verification_1_x.mp4");
+        collector.markUrl(referenced, "/uploads/videos/kept.mp4");
+        collector.markUrl(referenced, "/verification-videos/verification_1_x.mp4");
+
+        MediaGarbageCollector.CollectionReport report = sweep(false);
+
+        assertThat(kept).exists();
+        assertThat(verification).exists();
+        assertThat(fresh).exists();
+        assertThat(orphan).doesNotExist();
+        assertThat(report.filesScanned).isEqualTo(4);
+        assertThat(report.skippedRecent).isEqualTo(1);
+        assertThat(report.deleted).isEqualTo(1);
+        assertThat(report.bytesReclaimed).isEqualTo(3);
+        assertThat(report.orphanPaths).containsExactly("videos/orphan.mp4");
+    }
+
+    @Test
+    void dryRunReportsWithoutDeleting() throws Exception {
+        Path orphan = oldFile("uploads/photos/legacy.jpg");
+
+        MediaGarbageCollector.CollectionReport report = sweep(true);
+
+        assertThat(orphan).exists();
+        assertThat(report.orphans).isEqualTo(1);
+        assertThat(report.deleted).isZero();
+    }
+
+    @Test
+    void absoluteUrlsAndVariantsAreMarked() throws Exception {
+        Path photo = oldFile("uploads/photos/legacy.jpg");
+        Path thumb = oldFile("uploads/photos/thumb/legacy.jpg");
+        when(derivatives.variantUrls("http://localhost:8091/uploads/photos/legacy.jpg?v=2"))
+                .thenReturn(List.of("/uploads/photos/thumb/legacy.jpg"));
+        collector.markUrl(referenced, "http://localhost:8091/uploads/photos/legacy.jpg?v=2");
+
+        sweep(false);
+
+        assertThat(photo).exists();
+        assertThat(thumb).exists();
+    }
+
+    @Test
+    void urlsOutsideTheUploadTreeAreIgnored() {
+        assertThat(collector.resolveUrl("/avatars/avatar1.svg")).isNull();
+        assertThat(collector.resolveUrl("/uploads/../etc/passwd")).isNull();
+    }
+
+    @Test
+    void unreferencedBlobIsDeletedWithItsRow() throws Exception {
+        Path blob = oldFile("uploads/photos/ab/ab/" + SHA + ".jpg");
+        when(blobs.existsById(SHA)).thenReturn(true);
+        when(blobs.deleteUnreferenced(eq(SHA), any())).thenReturn(1);
+
+        MediaGarbageCollector.CollectionReport report = sweep(false);
+
+        assertThat(blob).doesNotExist();
+        assertThat(blob.resolveSibling(".gc-" + SHA + ".jpg")).doesNotExist();
+        assertThat(report.deleted).isEqualTo(1);
+        verify(aliases).deleteBySha256(SHA);
+    }
+
+    @Test
+    void migratedLegacyUrlKeepsItsBlob() throws Exception {
+        Path blob = oldFile("uploads/photos/ab/ab/" + SHA + ".jpg");
+        when(storage.findAliasPath("legacy.jpg")).thenReturn(Optional.of("ab/ab/" + SHA + ".jpg"));
+        when(blobs.existsById(SHA)).thenReturn(true);
+        when(blobs.deleteUnreferenced(eq(SHA), any())).thenReturn(1);
+        collector.markUrl(referenced, "/uploads/photos/legacy.jpg");
+
+        MediaGarbageCollector.CollectionReport report = sweep(false);
+
+        assertThat(blob).exists();
+        assertThat(report.orphans).isZero();
+        verify(aliases, never()).deleteBySha256(any());
+    }
+
+    @Test
+    void blobStillInUseIsPutBack() throws Exception {
+        Path blob = oldFile("uploads/photos/ab/ab/" + SHA + ".jpg");
+        when(blobs.existsById(SHA)).thenReturn(true);
+        when(blobs.deleteUnreferenced(eq(SHA), any())).thenReturn(0);
+
+        MediaGarbageCollector.CollectionReport report = sweep(false);
+
+        assertThat(blob).exists();
+        assertThat(report.deleted).isZero();
+        verify(aliases, never()).deleteBySha256(any());
+    }
+
+    @Test
+    void leftoverTrashIsRestored() throws Exception {
+        Path trash = oldFile("uploads/photos/ab/ab/.gc-" + SHA + ".jpg");
+
+        sweep(true);
+
+        assertThat(trash).doesNotExist();
+        assertThat(trash.resolveSibling(SHA + ".jpg")).exists();
+    }
+
+    private MediaGarbageCollector.CollectionReport sweep(boolean dryRun) throws Exception {
+        MediaGarbageCollector.CollectionReport report = new MediaGarbageCollector.CollectionReport();
+        collector.sweep(referenced, CUTOFF, dryRun, report);
+        return report;
+    }
+
+    private Path oldFile(String relative) throws Exception {
+        Path path = file(relative);
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofDays(3))));
+        return path;
+    }
+
+    private Path file(String relative) throws Exception {
+        Path path = dir.resolve(relative);
+        Files.createDirectories(path.getParent());
+        return Files.write(path, new byte[] { 1, 2, 3 });
+    }
+}
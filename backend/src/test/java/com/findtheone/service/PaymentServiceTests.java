@@ -0,0 +1,155 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import com.findtheone.entity.PaymentIdempotencyKey;
+import com.findtheone.payment.FakePaymentGateway;
+import com.findtheone.payment.PurchaseResult;
+import com.findtheone.repository.CoinBalanceSnapshotRepository;
+import com.findtheone.repository.PaymentIdempotencyKeyRepository;
+import com.findtheone.repository.TransactionRepository;
+import com.findtheone.repository.UserRepository;
+import com.findtheone.support.JpaServiceTest;
+import com.findtheone.support.TestUsers;
+
+/**
+ * Purchases against the fake gateway: many in-flight charges on a tiny
+ * completion pool, and idempotent replays of the same key.
+ */
+@JpaServiceTest
+@Import({ PaymentService.class, CoinService.class, FakePaymentGateway.class })
+@TestPropertySource(properties = {
+        "app.payment.fake.latency-ms=200",
+        "app.payment.completion-threads=2"
+})
+class PaymentServiceTests {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private CoinService coinService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private CoinBalanceSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private PaymentIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @AfterEach
+    void cleanUp() {
+        idempotencyKeyRepository.deleteAll();
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentPurchasesAreNotCappedByThreadCount() throws Exception {
+        Long userId = createUser();
+        int purchases = 400;
+
+        long start = System.nanoTime();
+        List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+        for (int i = 0; i < purchases; i++) {
+            results.add(paymentService.purchase(userId, "starter", null));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Blocking 200ms per purchase on 2 threads would take 40s
+        assertThat(elapsedMs).isLessThan(10_000);
+        assertThat(results).allMatch(f -> f.join().getStatus() == PurchaseResult.Status.COMPLETED);
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(10 + purchases * 25);
+        // Keyless purchases are still recorded, so a failed credit would be reconciled
+        assertThat(idempotencyKeyRepository.findAll())
+                .hasSize(purchases)
+                .allMatch(key -> key.getStatus() == PaymentIdempotencyKey.Status.COMPLETED);
+    }
+
+    @Test
+    void repeatedIdempotencyKeyChargesOnce() throws Exception {
+        Long userId = createUser();
+
+        List<CompletableFuture<PurchaseResult>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(paymentService.purchase(userId, "popular", "retry-key-1"));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        long completed = results.stream()
+                .filter(f -> f.join().getStatus() == PurchaseResult.Status.COMPLETED)
+                .count();
+        assertThat(completed).isEqualTo(1);
+
+        Long originalId = results.stream()
+                .map(CompletableFuture::join)
+                .filter(r -> r.getStatus() == PurchaseResult.Status.COMPLETED)
+                .findFirst().orElseThrow()
+                .getTransaction().getId();
+
+        PurchaseResult replay = paymentService.purchase(userId, "popular", "retry-key-1").get(5, TimeUnit.SECONDS);
+        assertThat(replay.getStatus()).isEqualTo(PurchaseResult.Status.REPLAYED);
+        assertThat(replay.getTransaction().getId()).isEqualTo(originalId);
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(10 + 60);
+
+        PurchaseResult reused = paymentService.purchase(userId, "premium", "retry-key-1").get(5, TimeUnit.SECONDS);
+        assertThat(reused.getStatus()).isEqualTo(PurchaseResult.Status.KEY_REUSED);
+    }
+
+    @Test
+    void stalePendingKeyCanBeRetried() throws Exception {
+        Long userId = createUser();
+        PaymentIdempotencyKey abandoned = new PaymentIdempotencyKey(userId, "crashed-key", "starter");
+        abandoned.setClaimedAt(LocalDateTime.now().minusHours(1));
+        idempotencyKeyRepository.save(abandoned);
+
+        PurchaseResult retry = paymentService.purchase(userId, "starter", "crashed-key").get(5, TimeUnit.SECONDS);
+
+        assertThat(retry.getStatus()).isEqualTo(PurchaseResult.Status.COMPLETED);
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(10 + 25);
+    }
+
+    @Test
+    void chargedKeyIsCreditedOnceByReconciliation() throws Exception {
+        Long userId = createUser();
+        PaymentIdempotencyKey charged = new PaymentIdempotencyKey(userId, "charged-key", "popular");
+        charged.setStatus(PaymentIdempotencyKey.Status.CHARGED);
+        charged.setPaymentId("FAKE_PAY_lost");
+        charged.setClaimedAt(LocalDateTime.now().minusHours(1));
+        idempotencyKeyRepository.save(charged);
+
+        PurchaseResult pending = paymentService.purchase(userId, "popular", "charged-key").get(5, TimeUnit.SECONDS);
+        assertThat(pending.getStatus()).isEqualTo(PurchaseResult.Status.CHARGED);
+
+        paymentService.reconcileCharged();
+        paymentService.reconcileCharged();
+
+        assertThat(coinService.getUserCoins(userId)).isEqualTo(10 + 60);
+        PurchaseResult replay = paymentService.purchase(userId, "popular", "charged-key").get(5, TimeUnit.SECONDS);
+        assertThat(replay.getStatus()).isEqualTo(PurchaseResult.Status.REPLAYED);
+        assertThat(replay.getTransaction().getPaymentId()).isEqualTo("FAKE_PAY_lost");
+    }
+
+    private Long createUser() {
+        return userRepository.save(TestUsers.newUser("Buyer")).getId();
+    }
+}
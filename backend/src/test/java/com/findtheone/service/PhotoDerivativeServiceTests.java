@@ -0,0 +1,114 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import com.findtheone.entity.UserPhoto;
+import com.findtheone.repository.UserPhotoRepository;
+
+/**
+ * Variants are written next to the original and recorded on UserPhoto once
+ * the row has committed
+ */
+class PhotoDerivativeServiceTests {
+
+    @TempDir
+    Path dir;
+
+    private PhotoDerivativeService service;
+
+    @AfterEach
+    void shutDown() {
+        service.destroy();
+    }
+
+    @Test
+    void generatesAndRecordsVariants() throws Exception {
+        UserPhotoRepository repository = mock(UserPhotoRepository.class);
+        service = new PhotoDerivativeService(dir, 50, 120, 0.8f, 1, 4, 1.0);
+        ReflectionTestUtils.setField(service, "userPhotoRepository", repository);
+        ReflectionTestUtils.setField(service, "photoStorageService", new PhotoStorageService(dir));
+
+        ImageIO.write(new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("abc.png").toFile());
+        String url = "http://localhost:8091/uploads/photos/abc.png";
+
+        assertThat(service.resolve(url, PhotoDerivativeService.Size.THUMBNAIL)).isNull();
+        assertThat(service.submit(url)).isTrue();
+
+        verify(repository, timeout(5000)).updateDerivatives(eq(url), eq("/uploads/photos/thumb/abc.jpg"),
+                eq("/uploads/photos/medium/abc.jpg"));
+        BufferedImage thumbnail = ImageIO.read(dir.resolve("thumb/abc.jpg").toFile());
+        BufferedImage medium = ImageIO.read(dir.resolve("medium/abc.jpg").toFile());
+        assertThat(thumbnail.getWidth()).isEqualTo(50);
+        assertThat(medium.getWidth()).isEqualTo(120);
+        assertThat(service.resolve(url, PhotoDerivativeService.Size.MEDIUM)).isEqualTo("/uploads/photos/medium/abc.jpg");
+
+        service.deleteDerivatives(url);
+        assertThat(Files.exists(dir.resolve("thumb/abc.jpg"))).isFalse();
+    }
+
+    @Test
+    void ignoresUrlsOutsideThePhotoDirectory() {
+        service = new PhotoDerivativeService(dir, 50, 120, 0.8f, 1, 4, 1.0);
+        ReflectionTestUtils.setField(service, "photoStorageService", new PhotoStorageService(dir));
+
+        assertThat(service.submit("/avatars/avatar1.svg")).isFalse();
+        assertThat(service.submit("/uploads/photos/../secret.png")).isFalse();
+        assertThat(service.resolve(null, PhotoDerivativeService.Size.THUMBNAIL)).isNull();
+    }
+
+    @Test
+    void submitInsideTransactionWaitsForCommitAndListingsReadRecordedUrls() throws Exception {
+        UserPhotoRepository repository = mock(UserPhotoRepository.class);
+        service = new PhotoDerivativeService(dir, 50, 120, 0.8f, 1, 4, 1.0);
+        ReflectionTestUtils.setField(service, "userPhotoRepository", repository);
+        ReflectionTestUtils.setField(service, "photoStorageService", new PhotoStorageService(dir));
+
+        ImageIO.write(new BufferedImage(300, 300, BufferedImage.TYPE_INT_RGB), "png", dir.resolve("def.png").toFile());
+        String url = "/uploads/photos/def.png";
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            assertThat(service.submit(url)).isTrue();
+            Thread.sleep(300);
+            verify(repository, never()).updateDerivatives(any(), any(), any());
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        verify(repository, timeout(5000)).updateDerivatives(eq(url), eq("/uploads/photos/thumb/def.jpg"),
+                eq("/uploads/photos/medium/def.jpg"));
+
+        // A recorded row wins over the filesystem
+        UserPhoto recorded = new UserPhoto();
+        recorded.setPhotoUrl(url);
+        recorded.setThumbnailUrl("/uploads/photos/thumb/recorded.jpg");
+        when(repository.findRecordedDerivatives(List.of(url))).thenReturn(List.of(recorded));
+        Map<String, UserPhoto> rows = service.findRecorded(List.of(url, url, "/avatars/avatar1.svg"));
+        assertThat(service.variantUrl(url, PhotoDerivativeService.Size.THUMBNAIL, rows))
+                .isEqualTo("/uploads/photos/thumb/recorded.jpg");
+        assertThat(service.variantUrl(url, PhotoDerivativeService.Size.MEDIUM, rows))
+                .isEqualTo("/uploads/photos/medium/def.jpg");
+    }
+}
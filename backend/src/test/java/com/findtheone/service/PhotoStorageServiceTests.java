@@ -0,0 +1,110 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.findtheone.entity.PhotoAlias;
+import com.findtheone.entity.PhotoBlob;
+import com.findtheone.repository.PhotoAliasRepository;
+import com.findtheone.repository.PhotoBlobRepository;
+import com.findtheone.repository.UserPhotoRepository;
+import com.findtheone.repository.UserRepository;
+
+/**
+ * Content addressing, deduplication and online migration of legacy names
+ */
+class PhotoStorageServiceTests {
+
+    private static final byte[] JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4, 5 };
+
+    @TempDir
+    Path dir;
+
+    private PhotoStorageService storage;
+    private PhotoBlobRepository blobs;
+    private PhotoAliasRepository aliases;
+    private UserPhotoRepository userPhotos;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() {
+        blobs = mock(PhotoBlobRepository.class);
+        aliases = mock(PhotoAliasRepository.class);
+        userPhotos = mock(UserPhotoRepository.class);
+        users = mock(UserRepository.class);
+        storage = new PhotoStorageService(dir);
+        ReflectionTestUtils.setField(storage, "imageUploadService", new ImageUploadService());
+        ReflectionTestUtils.setField(storage, "photoBlobRepository", blobs);
+        ReflectionTestUtils.setField(storage, "photoAliasRepository", aliases);
+        ReflectionTestUtils.setField(storage, "userPhotoRepository", userPhotos);
+        ReflectionTestUtils.setField(storage, "userRepository", users);
+        ReflectionTestUtils.setField(storage, "transactionManager", mock(PlatformTransactionManager.class));
+    }
+
+    @Test
+    void identicalUploadsShareOneShardedFile() throws Exception {
+        ImageUploadService.StoredImage first = storage.store(new ByteArrayInputStream(JPEG), 1024);
+        when(blobs.existsById(first.getSha256())).thenReturn(true);
+        ImageUploadService.StoredImage second = storage.store(new ByteArrayInputStream(JPEG), 1024);
+
+        String sha = first.getSha256();
+        String url = storage.urlFor(first);
+        assertThat(url).isEqualTo(
+                "/uploads/photos/" + sha.substring(0, 2) + "/" + sha.substring(2, 4) + "/" + sha + ".jpg");
+        assertThat(storage.urlFor(second)).isEqualTo(url);
+        assertThat(first.isExisting()).isFalse();
+        assertThat(second.isExisting()).isTrue();
+        assertThat(storage.isContentAddressed(url)).isTrue();
+        assertThat(storage.resolveFile("http://localhost:8091" + url)).isEqualTo(first.getPath());
+        verify(blobs, times(1)).save(any(PhotoBlob.class));
+
+        storage.addReference(url);
+        verify(blobs).adjustRefCount(sha, 1);
+    }
+
+    @Test
+    void migratedLegacyNameResolvesThroughAlias() throws Exception {
+        Path legacy = dir.resolve("1b4e28ba-2fa1-11d2-883f-0016d3cca427.jpg");
+        Files.write(legacy, JPEG);
+        when(userPhotos.countActiveByFilename(legacy.getFileName().toString())).thenReturn(2L);
+        when(users.countByProfilePhotoFilename(legacy.getFileName().toString())).thenReturn(1L);
+        String legacyUrl = "/uploads/photos/" + legacy.getFileName();
+        assertThat(storage.resolveFile(legacyUrl)).isEqualTo(legacy);
+
+        storage.migrateLegacyFile(legacy);
+
+        ArgumentCaptor<PhotoBlob> blob = ArgumentCaptor.forClass(PhotoBlob.class);
+        ArgumentCaptor<PhotoAlias> alias = ArgumentCaptor.forClass(PhotoAlias.class);
+        verify(blobs).save(blob.capture());
+        verify(aliases).saveAndFlush(alias.capture());
+        // Gallery rows and profile pictures both hold the file
+        assertThat(blob.getValue().getRefCount()).isEqualTo(3);
+        assertThat(alias.getValue().getPath()).isEqualTo(blob.getValue().getPath());
+        assertThat(Files.exists(legacy)).isFalse();
+
+        when(aliases.findById(legacy.getFileName().toString())).thenReturn(Optional.of(alias.getValue()));
+        when(aliases.findForShare(legacy.getFileName().toString())).thenReturn(Optional.of(alias.getValue()));
+        storage.replaceProfileReference("/avatars/avatar1.svg", "http://localhost:8091" + legacyUrl);
+        verify(blobs).adjustRefCount(blob.getValue().getSha256(), 1);
+        Path migrated = storage.resolveFile(legacyUrl);
+        assertThat(migrated).isEqualTo(dir.resolve(alias.getValue().getPath()));
+        assertThat(Files.readAllBytes(migrated)).isEqualTo(JPEG);
+        assertThat(storage.resolveFile("/uploads/photos/../etc/passwd")).isNull();
+    }
+}
@@ -0,0 +1,82 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.repository.RefreshTokenRepository;
+import com.findtheone.repository.TokenRevocationRepository;
+import com.findtheone.support.JpaServiceTest;
+
+/**
+ * Refresh tokens rotate once, reuse kills the family, and revocations
+ * survive a reload from the database
+ */
+@JpaServiceTest
+@Import({ RefreshTokenService.class, TokenRevocationService.class })
+@TestPropertySource(properties = {
+        "app.jwt.expiration=900000"
+})
+class RefreshTokenServiceTests {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private TokenRevocationRepository tokenRevocationRepository;
+
+    @AfterEach
+    void cleanUp() {
+        refreshTokenRepository.deleteAll();
+        tokenRevocationRepository.deleteAll();
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheFamily() {
+        String first = refreshTokenService.issue(7L);
+        assertThat(refreshTokenRepository.findAll()).noneMatch(t -> t.getTokenHash().equals(first));
+
+        RefreshTokenService.Rotation rotated = refreshTokenService.rotate(first);
+        assertThat(rotated.getStatus()).isEqualTo(RefreshTokenService.RotationStatus.ROTATED);
+        assertThat(rotated.getUserId()).isEqualTo(7L);
+
+        RefreshTokenService.Rotation replay = refreshTokenService.rotate(first);
+        assertThat(replay.getStatus()).isEqualTo(RefreshTokenService.RotationStatus.REUSED);
+
+        // The legitimate successor died with the family
+        assertThat(refreshTokenService.rotate(rotated.getRefreshToken()).getStatus())
+                .isEqualTo(RefreshTokenService.RotationStatus.REUSED);
+        assertThat(refreshTokenService.rotate("not-a-token").getStatus())
+                .isEqualTo(RefreshTokenService.RotationStatus.INVALID);
+    }
+
+    @Test
+    void revocationRejectsOlderTokensAndSurvivesReload() {
+        Date issuedBefore = new Date(System.currentTimeMillis() - 5_000);
+        tokenRevocationService.revokeUser(9L, "DEACTIVATED");
+
+        assertThat(tokenRevocationService.isRevoked(9L, issuedBefore)).isTrue();
+        assertThat(tokenRevocationService.isRevoked(9L, new Date(System.currentTimeMillis() + 2_000))).isFalse();
+        assertThat(tokenRevocationService.isRevoked(10L, issuedBefore)).isFalse();
+
+        TokenRevocationService restarted = new TokenRevocationService();
+        ReflectionTestUtils.setField(restarted, "tokenRevocationRepository",
+                tokenRevocationRepository);
+        ReflectionTestUtils.setField(restarted, "accessTokenLifetimeMs", 900_000L);
+        restarted.load();
+        assertThat(restarted.isRevoked(9L, issuedBefore)).isTrue();
+    }
+}
@@ -0,0 +1,186 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.entity.UploadSession;
+import com.findtheone.repository.UploadSessionRepository;
+
+/**
+ * Offset tracking, checksums and in-place assembly of chunked uploads
+ */
+class ResumableUploadServiceTests {
+
+    private static final long USER_ID = 7L;
+
+    @TempDir
+    Path dir;
+
+    private final Map<String, UploadSession> sessions = new HashMap<>();
+    private ResumableUploadService service;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() {
+        UploadSessionRepository repository = mock(UploadSessionRepository.class);
+        when(repository.save(any())).thenAnswer(call -> {
+            UploadSession session = call.getArgument(0);
+            sessions.put(session.getId(), session);
+            return session;
+        });
+        when(repository.findById(anyString())).thenAnswer(call -> Optional.ofNullable(sessions.get(call.getArgument(0))));
+        when(repository.advanceOffset(anyString(), anyLong(), anyLong(), any())).thenAnswer(call -> {
+            UploadSession session = sessions.get(call.getArgument(0));
+            if (session == null || session.getUploadOffset() != (long) call.getArgument(1)) {
+                return 0;
+            }
+            session.setUploadOffset(call.getArgument(2));
+            session.setExpiresAt(call.getArgument(3));
+            return 1;
+        });
+        doAnswer(call -> sessions.remove(((UploadSession) call.getArgument(0)).getId()))
+                .when(repository).delete(any());
+
+        service = new ResumableUploadService();
+        ReflectionTestUtils.setField(service, "uploadSessionRepository", repository);
+        ReflectionTestUtils.setField(service, "uploadDir", dir.toString());
+        ReflectionTestUtils.setField(service, "maxUploadLength", 10_000L);
+        ReflectionTestUtils.setField(service, "maxChunkSize", 4_000L);
+        ReflectionTestUtils.setField(service, "expiryMs", 60_000L);
+        ReflectionTestUtils.setField(service, "maxSessionsPerUser", 3);
+
+        content = new byte[10_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+    }
+
+    @Test
+    void chunksAreAssembledInPlaceAndRenamedOnCompletion() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+
+        assertThat(append(session, 0, 4_000, null)).isEqualTo(4_000);
+        assertThat(append(session, 4_000, 4_000, null)).isEqualTo(8_000);
+        assertThat(append(session, 8_000, 2_000, null)).isEqualTo(10_000);
+
+        Path part = service.getPartFile(session);
+        Path target = service.complete(session, dir.resolve("videos/clip.mp4"));
+
+        assertThat(Files.readAllBytes(target)).isEqualTo(content);
+        assertThat(part).doesNotExist();
+        assertThat(sessions).isEmpty();
+    }
+
+    @Test
+    void staleOffsetIsRejectedWithTheConfirmedOne() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+        append(session, 0, 4_000, null);
+
+        assertThatThrownBy(() -> append(session, 0, 4_000, null))
+                .isInstanceOfSatisfying(ResumableUploadService.OffsetConflictException.class,
+                        e -> assertThat(e.getCurrentOffset()).isEqualTo(4_000));
+    }
+
+    @Test
+    void checksumMismatchDiscardsTheChunk() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+        append(session, 0, 4_000, null);
+
+        String wrong = "sha256 " + Base64.getEncoder().encodeToString(new byte[32]);
+        assertThatThrownBy(() -> append(session, 4_000, 4_000, wrong))
+                .isInstanceOf(ResumableUploadService.ChecksumMismatchException.class);
+
+        assertThat(sessions.get(session.getId()).getUploadOffset()).isEqualTo(4_000);
+        assertThat(Files.size(service.getPartFile(session))).isEqualTo(4_000);
+        assertThat(append(session, 4_000, 4_000, checksum(4_000, 4_000))).isEqualTo(8_000);
+    }
+
+    @Test
+    void droppedChunkKeepsTheBytesThatArrived() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+
+        InputStream dropped = new InputStream() {
+            private final InputStream delegate = new ByteArrayInputStream(content, 0, 1_500);
+
+            @Override
+            public int read() throws IOException {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = delegate.read(b, off, len);
+                if (n == -1) {
+                    throw new IOException("Connection reset");
+                }
+                return n;
+            }
+        };
+        assertThatThrownBy(() -> service.append(session, 0, null, 4_000, dropped)).isInstanceOf(IOException.class);
+
+        assertThat(sessions.get(session.getId()).getUploadOffset()).isEqualTo(1_500);
+        assertThat(append(session, 1_500, 2_500, null)).isEqualTo(4_000);
+    }
+
+    @Test
+    void chunkPastTheDeclaredLengthIsRejected() throws Exception {
+        UploadSession session = service.create(USER_ID, 3_000);
+
+        assertThatThrownBy(() -> append(session, 0, 3_500, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("past the upload length");
+        assertThat(Files.size(service.getPartFile(session))).isZero();
+    }
+
+    @Test
+    void incompleteUploadCannotBeCompleted() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+        append(session, 0, 4_000, null);
+
+        assertThatThrownBy(() -> service.complete(session, dir.resolve("clip.mp4")))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void expiredAndForeignSessionsAreNotFound() throws Exception {
+        UploadSession session = service.create(USER_ID, content.length);
+        session.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+
+        assertThat(service.find(session.getId(), USER_ID)).isEmpty();
+        assertThat(service.find(service.create(USER_ID, 10).getId(), 8L)).isEmpty();
+    }
+
+    private long append(UploadSession session, int offset, int length, String checksum) throws IOException {
+        return service.append(session, offset, checksum, length,
+                new ByteArrayInputStream(Arrays.copyOfRange(content, offset, offset + length)));
+    }
+
+    private String checksum(int offset, int length) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(Arrays.copyOfRange(content, offset, offset + length));
+        return "sha256 " + Base64.getEncoder().encodeToString(digest);
+    }
+}
@@ -0,0 +1,88 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.findtheone.dto.PhotoSummaryDTO;
+import com.findtheone.repository.UserPhotoRepository;
+import com.findtheone.storage.ObjectInfo;
+import com.findtheone.storage.ObjectStorage;
+
+/**
+ * Batched photo lookup for a page of profile cards, and adding direct uploads
+ */
+class UserPhotoServiceTests {
+
+    private UserPhotoService service;
+    private UserPhotoRepository photos;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserPhotoService();
+        photos = mock(UserPhotoRepository.class);
+        ReflectionTestUtils.setField(service, "userPhotoRepository", photos);
+        ReflectionTestUtils.setField(service, "maxBatchUsers", 3);
+    }
+
+    @Test
+    void groupsOneQueryByUserInRequestOrder() {
+        when(photos.findActivePhotoSummariesByUserIds(any())).thenReturn(List.of(
+                photo(10, 1, 1), photo(11, 1, 2), photo(30, 3, 1)));
+
+        Map<Long, List<PhotoSummaryDTO>> result = service.getActivePhotosForUsers(Arrays.asList(3L, 2L, 1L, 3L, null));
+
+        assertThat(result.keySet()).containsExactly(3L, 2L, 1L);
+        assertThat(result.get(1L)).extracting(PhotoSummaryDTO::getId).containsExactly(10L, 11L);
+        assertThat(result.get(2L)).isEmpty();
+        assertThat(result.get(3L)).extracting(PhotoSummaryDTO::getId).containsExactly(30L);
+        verify(photos, times(1)).findActivePhotoSummariesByUserIds(any());
+    }
+
+    @Test
+    void rejectsOversizedBatchesWithoutQuerying() {
+        assertThatThrownBy(() -> service.getActivePhotosForUsers(List.of(1L, 2L, 3L, 4L)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(service.getActivePhotosForUsers(List.of())).isEmpty();
+        verify(photos, never()).findActivePhotoSummariesByUserIds(any());
+    }
+
+    @Test
+    void uploadIsMovedBeforeItIsCheckedAndAddedOnlyOnce() throws Exception {
+        ObjectStorage storage = mock(ObjectStorage.class);
+        ReflectionTestUtils.setField(service, "objectStorage", storage);
+        ReflectionTestUtils.setField(service, "maxPhotoSize", 100L);
+        when(storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg")).thenReturn(true);
+        when(storage.stat("photos/users/7/a.jpg")).thenReturn(Optional.of(new ObjectInfo("photos/users/7/a.jpg", 4, null)));
+        when(storage.readPrefix("photos/users/7/a.jpg", 12)).thenReturn("<svg".getBytes(StandardCharsets.US_ASCII));
+
+        assertThatThrownBy(() -> service.addUploadedPhoto(7L, "photos/direct/7/a.jpg", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(storage).delete("photos/users/7/a.jpg");
+
+        when(photos.existsByObjectKey("photos/users/7/b.jpg")).thenReturn(true);
+        assertThatThrownBy(() -> service.addUploadedPhoto(7L, "photos/direct/7/b.jpg", null))
+                .isInstanceOf(IllegalArgumentException.class);
+        verify(storage, never()).move(eq("photos/direct/7/b.jpg"), any());
+    }
+
+    private static PhotoSummaryDTO photo(long id, long userId, int order) {
+        return new PhotoSummaryDTO(id, userId, "/uploads/photos/" + id + ".jpg", null, null, order, null);
+    }
+}
@@ -0,0 +1,104 @@
+package com.findtheone.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Range, If-None-Match and If-Range handling, and the sendfile hand-off
+ */
+class VideoStreamServiceTests {
+
+    private static final String ETAG = VideoStreamService.strongETag("p", 7L, 1000, 1_700_000_000_000L);
+
+    private final VideoStreamService service = new VideoStreamService();
+
+    @TempDir
+    Path dir;
+
+    private Path video;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        video = Files.write(dir.resolve("clip.mp4"), content);
+    }
+
+    private MockHttpServletResponse get(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service.stream(video, "video/mp4", ETAG, 1_700_000_000_000L, "public, max-age=60", request, response);
+        return response;
+    }
+
+    @Test
+    void servesRequestedRangeOnly() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/videos/profile/7");
+        request.addHeader("Range", "bytes=100-199");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 100-199/1000");
+        assertThat(response.getHeader("ETag")).isEqualTo(ETAG);
+        assertThat(response.getContentAsByteArray()).hasSize(100).startsWith((byte) 100);
+    }
+
+    @Test
+    void suffixOpenAndUnsatisfiableRanges() throws Exception {
+        MockHttpServletRequest suffix = new MockHttpServletRequest("GET", "/");
+        suffix.addHeader("Range", "bytes=-10");
+        assertThat(get(suffix).getHeader("Content-Range")).isEqualTo("bytes 990-999/1000");
+
+        MockHttpServletRequest open = new MockHttpServletRequest("GET", "/");
+        open.addHeader("Range", "bytes=900-");
+        assertThat(get(open).getContentAsByteArray()).hasSize(100);
+
+        MockHttpServletRequest tooFar = new MockHttpServletRequest("GET", "/");
+        tooFar.addHeader("Range", "bytes=1000-");
+        MockHttpServletResponse response = get(tooFar);
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */1000");
+    }
+
+    @Test
+    void conditionalRequests() throws Exception {
+        MockHttpServletRequest cached = new MockHttpServletRequest("GET", "/");
+        cached.addHeader("If-None-Match", ETAG);
+        MockHttpServletResponse notModified = get(cached);
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+
+        MockHttpServletRequest staleRange = new MockHttpServletRequest("GET", "/");
+        staleRange.addHeader("Range", "bytes=0-9");
+        staleRange.addHeader("If-Range", "\"other\"");
+        MockHttpServletResponse full = get(staleRange);
+        assertThat(full.getStatus()).isEqualTo(200);
+        assertThat(full.getContentAsByteArray()).isEqualTo(content);
+    }
+
+    @Test
+    void handsRangeToSendfileWhenSupported() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=10-19");
+
+        MockHttpServletResponse response = get(request);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentLengthLong()).isEqualTo(10);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(10L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(20L);
+    }
+}
@@ -0,0 +1,81 @@
+package com.findtheone.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Signed upload URLs and key confinement of the filesystem store
+ */
+class LocalObjectStorageTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void signatureBindsKeyContentTypeAndExpiry() throws Exception {
+        LocalObjectStorage storage = new LocalObjectStorage(dir, "/uploads/", "http://localhost:8091", "secret");
+        PresignedUpload upload = storage.presignUpload("photos/direct/7/a.jpg", "image/jpeg", Duration.ofMinutes(5));
+
+        URI url = URI.create(upload.getUrl());
+        assertThat(url.getPath()).isEqualTo("/api/upload/objects/photos/direct/7/a.jpg");
+        long expires = Long.parseLong(url.getQuery().replaceAll(".*expires=(\\d+).*", "$1"));
+        String signature = url.getQuery().replaceAll(".*signature=", "");
+
+        assertThat(storage.verifyUpload("photos/direct/7/a.jpg", "image/jpeg", expires, signature)).isTrue();
+        assertThat(storage.verifyUpload("photos/direct/8/a.jpg", "image/jpeg", expires, signature)).isFalse();
+        assertThat(storage.verifyUpload("photos/direct/7/a.jpg", "text/html", expires, signature)).isFalse();
+        assertThat(storage.verifyUpload("photos/direct/7/a.jpg", "image/jpeg", expires + 60, signature)).isFalse();
+        assertThat(storage.verifyUpload("photos/direct/7/a.jpg", "image/jpeg", 1, signature)).isFalse();
+    }
+
+    @Test
+    void writtenObjectsCanBeStatedAndDeleted() throws Exception {
+        LocalObjectStorage storage = new LocalObjectStorage(dir, "/uploads/", "", "secret");
+
+        storage.write("photos/direct/7/a.jpg", new ByteArrayInputStream(new byte[] { 1, 2, 3 }), 10);
+
+        assertThat(storage.stat("photos/direct/7/a.jpg").orElseThrow().getSize()).isEqualTo(3);
+        assertThat(storage.readPrefix("photos/direct/7/a.jpg", 2)).containsExactly(1, 2);
+        assertThat(storage.urlFor("photos/direct/7/a.jpg")).isEqualTo("/uploads/photos/direct/7/a.jpg");
+        storage.delete("photos/direct/7/a.jpg");
+        assertThat(storage.stat("photos/direct/7/a.jpg")).isEmpty();
+    }
+
+    @Test
+    void keysAreWrittenOnceAndMovedWithoutReplacing() throws Exception {
+        LocalObjectStorage storage = new LocalObjectStorage(dir, "/uploads/", "", "secret");
+        storage.write("photos/direct/7/a.jpg", new ByteArrayInputStream(new byte[] { 1 }), 10);
+
+        assertThatThrownBy(() -> storage.write("photos/direct/7/a.jpg", new ByteArrayInputStream(new byte[] { 2 }), 10))
+                .isInstanceOf(FileAlreadyExistsException.class);
+        assertThat(storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg")).isTrue();
+        assertThat(storage.stat("photos/direct/7/a.jpg")).isEmpty();
+        assertThat(storage.readPrefix("photos/users/7/a.jpg", 1)).containsExactly(1);
+        assertThat(storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg")).isFalse();
+
+        storage.write("photos/direct/7/a.jpg", new ByteArrayInputStream(new byte[] { 3 }), 10);
+        assertThatThrownBy(() -> storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg"))
+                .isInstanceOf(FileAlreadyExistsException.class);
+        assertThat(storage.readPrefix("photos/users/7/a.jpg", 1)).containsExactly(1);
+    }
+
+    @Test
+    void oversizedAndEscapingWritesAreRejected() {
+        LocalObjectStorage storage = new LocalObjectStorage(dir, "/uploads/", "", "secret");
+
+        assertThatThrownBy(() -> storage.write("a.bin", new ByteArrayInputStream(new byte[11]), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(dir.resolve("a.bin")).doesNotExist();
+        assertThatThrownBy(() -> storage.write("../escape.bin", new ByteArrayInputStream(new byte[1]), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,153 @@
+package com.findtheone.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Presigned upload, stat, ranged read and delete against an in-process
+ * S3 stand-in (path-style, as MinIO is usually run locally)
+ */
+class S3ObjectStorageTests {
+
+    private static final byte[] JPEG = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 1, 2, 3, 4, 5, 6, 7, 8,
+            9, 10 };
+
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+    private final Map<String, String> contentTypes = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private S3ObjectStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        storage = new S3ObjectStorage(endpoint, "media", "us-east-1", "minio", "minio-secret", true, null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void presignedUploadRoundTrip() throws Exception {
+        PresignedUpload upload = storage.presignUpload("photos/direct/7/a.jpg", "image/jpeg", Duration.ofMinutes(5));
+
+        HttpResponse<Void> put = HttpClient.newHttpClient().send(HttpRequest.newBuilder(URI.create(upload.getUrl()))
+                .header("Content-Type", upload.getHeaders().get("Content-Type"))
+                .PUT(HttpRequest.BodyPublishers.ofByteArray(JPEG)).build(), HttpResponse.BodyHandlers.discarding());
+
+        assertThat(put.statusCode()).isEqualTo(200);
+        assertThat(upload.getUrl()).contains("/media/photos/direct/7/a.jpg?").contains("X-Amz-Signature=");
+        assertThat(objects).containsKey("/media/photos/direct/7/a.jpg");
+
+        ObjectInfo info = storage.stat("photos/direct/7/a.jpg").orElseThrow();
+        assertThat(info.getSize()).isEqualTo(JPEG.length);
+        assertThat(info.getContentType()).isEqualTo("image/jpeg");
+        assertThat(storage.readPrefix("photos/direct/7/a.jpg", 4)).containsExactly(Arrays.copyOf(JPEG, 4));
+
+        storage.delete("photos/direct/7/a.jpg");
+        assertThat(storage.stat("photos/direct/7/a.jpg")).isEmpty();
+    }
+
+    @Test
+    void moveCopiesServerSideAndDeletesTheSource() throws Exception {
+        objects.put("/media/photos/direct/7/a.jpg", JPEG);
+        contentTypes.put("/media/photos/direct/7/a.jpg", "image/jpeg");
+
+        assertThat(storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg")).isTrue();
+
+        assertThat(objects).containsOnlyKeys("/media/photos/users/7/a.jpg");
+        assertThat(storage.stat("photos/users/7/a.jpg").orElseThrow().getContentType()).isEqualTo("image/jpeg");
+        assertThat(storage.move("photos/direct/7/a.jpg", "photos/users/7/a.jpg")).isFalse();
+    }
+
+    @Test
+    void readUrlsUseThePublicBaseWhenSet() {
+        S3ObjectStorage cdn = new S3ObjectStorage(URI.create("https://s3.amazonaws.com"), "media", "us-east-1",
+                "ak", "sk", false, "https://cdn.example.com/");
+
+        assertThat(cdn.urlFor("photos/a b.jpg")).isEqualTo("https://cdn.example.com/photos/a%20b.jpg");
+        assertThat(storage.urlFor("photos/a.jpg")).endsWith("/media/photos/a.jpg");
+        assertThat(cdn.objectUri("photos/a.jpg").toString()).isEqualTo("https://media.s3.amazonaws.com/photos/a.jpg");
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || !query.contains("X-Amz-Signature=")) {
+            respond(exchange, 403, new byte[0]);
+            return;
+        }
+        switch (exchange.getRequestMethod()) {
+            case "PUT" -> {
+                String copySource = exchange.getRequestHeaders().getFirst("x-amz-copy-source");
+                byte[] body = copySource != null ? objects.get(copySource) : exchange.getRequestBody().readAllBytes();
+                if (body == null) {
+                    respond(exchange, 404, new byte[0]);
+                    return;
+                }
+                objects.put(path, body);
+                contentTypes.put(path, copySource != null ? contentTypes.get(copySource)
+                        : exchange.getRequestHeaders().getFirst("Content-Type"));
+                respond(exchange, 200, new byte[0]);
+            }
+            case "HEAD" -> {
+                byte[] body = objects.get(path);
+                if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                } else {
+                    exchange.getResponseHeaders().set("Content-Type", contentTypes.get(path));
+                    exchange.getResponseHeaders().set("Content-Length", Integer.toString(body.length));
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                exchange.close();
+            }
+            case "GET" -> {
+                byte[] body = objects.get(path);
+                String range = exchange.getRequestHeaders().getFirst("Range");
+                if (body == null) {
+                    respond(exchange, 404, new byte[0]);
+                } else if (range != null) {
+                    int end = Integer.parseInt(range.substring(range.indexOf('-') + 1));
+                    respond(exchange, 206, Arrays.copyOf(body, Math.min(end + 1, body.length)));
+                } else {
+                    respond(exchange, 200, body);
+                }
+            }
+            case "DELETE" -> {
+                objects.remove(path);
+                exchange.sendResponseHeaders(204, -1);
+                exchange.close();
+            }
+            default -> respond(exchange, 405, new byte[0]);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.findtheone.support;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.findtheone.entity.User;
+
+/**
+ * Unsaved users with unique emails, for tests that share one database
+ */
+public final class TestUsers {
+
+    private static final AtomicLong sequence = new AtomicLong(System.nanoTime());
+
+    private TestUsers() {
+        // Utility class
+    }
+
+    public static User newUser(String name) {
+        String email = name.toLowerCase().replaceAll("[^a-z0-9]+", "-") + "-" + sequence.incrementAndGet()
+                + "@test.com";
+        return new User(email, "password", name, 30, User.Gender.OTHER, "Test City");
+    }
+}
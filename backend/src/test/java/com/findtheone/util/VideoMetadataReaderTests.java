@@ -0,0 +1,217 @@
+package com.findtheone.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Box walking over synthetic MP4 files
+ */
+class VideoMetadataReaderTests {
+
+    private static final int MAX_METADATA = 64 * 1024;
+
+    @Test
+    void readsDurationDimensionsAndCodecsAfterMediaData() throws Exception {
+        byte[] file = concat(ftyp("isom"), box("mdat", new byte[50_000]), moov(90_000, 450_000));
+
+        VideoMetadataReader.VideoMetadata metadata = read(file);
+
+        assertThat(metadata.getContainer()).isEqualTo("mp4");
+        assertThat(metadata.getMimeType()).isEqualTo("video/mp4");
+        assertThat(metadata.getExtension()).isEqualTo(".mp4");
+        assertThat(metadata.getDurationMillis()).isEqualTo(5000L);
+        assertThat(metadata.getDurationSeconds()).isEqualTo(5);
+        assertThat(metadata.getWidth()).isEqualTo(1280);
+        assertThat(metadata.getHeight()).isEqualTo(720);
+        assertThat(metadata.getVideoCodec()).isEqualTo("avc1");
+        assertThat(metadata.getAudioCodec()).isEqualTo("mp4a");
+    }
+
+    @Test
+    void quickTimeBrandIsReportedAsMov() throws Exception {
+        VideoMetadataReader.VideoMetadata metadata = read(concat(ftyp("qt  "), moov(600, 1200)));
+
+        assertThat(metadata.getContainer()).isEqualTo("mov");
+        assertThat(metadata.getExtension()).isEqualTo(".mov");
+        assertThat(metadata.getDurationMillis()).isEqualTo(2000L);
+    }
+
+    @Test
+    void mediaDataIsSkippedNotRead() throws Exception {
+        byte[] file = concat(ftyp("isom"), box("mdat", new byte[200_000]), moov(1000, 3000));
+        CountingInputStream in = new CountingInputStream(new ByteArrayInputStream(file));
+
+        VideoMetadataReader.read(in, file.length, MAX_METADATA);
+
+        assertThat(in.bytesRead).isLessThan(10_000);
+    }
+
+    @Test
+    void webmIsRecognisedBySignature() throws Exception {
+        byte[] file = { 0x1A, 0x45, (byte) 0xDF, (byte) 0xA3, 0, 0, 0, 0, 0, 0 };
+
+        VideoMetadataReader.VideoMetadata metadata = read(file);
+
+        assertThat(metadata.getContainer()).isEqualTo("webm");
+        assertThat(metadata.getDurationMillis()).isNull();
+    }
+
+    @Test
+    void rejectsNonVideo() {
+        byte[] png = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0, 0 };
+
+        assertThatThrownBy(() -> read(png)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsBoxLargerThanFile() {
+        byte[] mdat = box("mdat", new byte[100]);
+        ByteBuffer.wrap(mdat).putInt(0, 1_000_000);
+
+        assertThatThrownBy(() -> read(concat(ftyp("isom"), mdat)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not fit");
+    }
+
+    @Test
+    void rejectsMissingMoov() {
+        assertThatThrownBy(() -> read(concat(ftyp("isom"), box("mdat", new byte[100]))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no moov");
+    }
+
+    @Test
+    void rejectsOversizedMoov() {
+        byte[] file = concat(ftyp("isom"), box("moov", new byte[MAX_METADATA + 1]));
+
+        assertThatThrownBy(() -> read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("too large");
+    }
+
+    @Test
+    void rejectsTruncatedMovieHeader() {
+        byte[] file = concat(ftyp("isom"), box("moov", box("mvhd", new byte[8])));
+
+        assertThatThrownBy(() -> read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mvhd");
+    }
+
+    @Test
+    void rejectsEmptyHeadersAtEndOfParent() {
+        byte[] emptyMovieHeader = concat(ftyp("isom"), box("moov", box("mvhd", new byte[0])));
+        byte[] movieHeader = ByteBuffer.allocate(100).putInt(12, 1000).array();
+        byte[] emptyTrackHeader = concat(ftyp("isom"),
+                box("moov", concat(box("mvhd", movieHeader), box("trak", box("tkhd", new byte[0])))));
+
+        assertThatThrownBy(() -> read(emptyMovieHeader))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("mvhd");
+        assertThatThrownBy(() -> read(emptyTrackHeader))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("tkhd");
+    }
+
+    @Test
+    void rejectsDurationBeyondIntSeconds() {
+        ByteBuffer mvhd = ByteBuffer.allocate(112);
+        mvhd.put(0, (byte) 1).putInt(20, 1).putLong(24, Long.MAX_VALUE);
+        byte[] file = concat(ftyp("isom"), box("moov", box("mvhd", mvhd.array())));
+
+        assertThatThrownBy(() -> read(file))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("bad movie header");
+    }
+
+    private static VideoMetadataReader.VideoMetadata read(byte[] file) throws IOException {
+        return VideoMetadataReader.read(new ByteArrayInputStream(file), file.length, MAX_METADATA);
+    }
+
+    private static byte[] ftyp(String brand) {
+        return box("ftyp", concat(ascii(brand), new byte[4], ascii("isom")));
+    }
+
+    private static byte[] moov(int timescale, int duration) {
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(12, timescale).putInt(16, duration);
+
+        ByteBuffer tkhd = ByteBuffer.allocate(84);
+        tkhd.putInt(76, 1280 << 16).putInt(80, 720 << 16);
+
+        byte[] videoTrack = box("trak", concat(box("tkhd", tkhd.array()),
+                box("mdia", concat(hdlr("vide"), box("minf", box("stbl", stsd("avc1")))))));
+        byte[] audioTrack = box("trak", concat(box("tkhd", new byte[84]),
+                box("mdia", concat(hdlr("soun"), box("minf", box("stbl", stsd("mp4a")))))));
+        return box("moov", concat(box("mvhd", mvhd.array()), videoTrack, audioTrack));
+    }
+
+    private static byte[] hdlr(String handler) {
+        return box("hdlr", concat(new byte[8], ascii(handler), new byte[12]));
+    }
+
+    private static byte[] stsd(String codec) {
+        ByteBuffer entry = ByteBuffer.allocate(78);
+        entry.putInt(0, 78).put(4, ascii(codec));
+        ByteBuffer body = ByteBuffer.allocate(8 + 78);
+        body.putInt(4, 1).put(8, entry.array());
+        return box("stsd", body.array());
+    }
+
+    private static byte[] box(String type, byte[] body) {
+        return ByteBuffer.allocate(8 + body.length).putInt(8 + body.length).put(ascii(type)).put(body).array();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+
+    private static class CountingInputStream extends InputStream {
+        private final InputStream delegate;
+        long bytesRead;
+
+        CountingInputStream(InputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                bytesRead++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = delegate.read(b, off, len);
+            if (n > 0) {
+                bytesRead += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return delegate.skip(n);
+        }
+    }
+}
@@ -7,6 +7,8 @@ import Dashboard from './components/Dashboard';
 import Profile from './components/Profile';
 import Chat from './components/Chat';
 import Matches from './components/Matches';
+import apiConfig from './config/api';
+import axios from 'axios';
 import './App.css';
 
 function App() {
@@ -41,6 +43,11 @@ function App() {
   };
 
   const handleLogout = () => {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (refreshToken) {
+      axios.post(apiConfig.auth.logout, { refreshToken }).catch(() => {});
+    }
+    localStorage.removeItem('refreshToken');
     localStorage.removeItem('authToken');
     localStorage.removeItem('userData');
     setIsAuthenticated(false);
@@ -34,6 +34,7 @@ const Chat = React.memo(function Chat({ user, onLogout }) {
           bio: matchDto.bio,
           location: matchDto.location,
           profilePhotoUrl: matchDto.profilePhotoUrl,
+          profilePhotoThumbnailUrl: matchDto.profilePhotoThumbnailUrl,
           gender: matchDto.gender,
           interests: matchDto.interests
         },
@@ -225,7 +226,7 @@ const Chat = React.memo(function Chat({ user, onLogout }) {
                   >
                     <div className="match-avatar">
                       <img 
-                        src={match.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
+                        src={match.matchedUser.profilePhotoThumbnailUrl || match.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
                         alt={match.matchedUser.name}
                         onError={(e) => {
                           e.target.src = '/placeholder-avatar.svg';
@@ -249,7 +250,7 @@ const Chat = React.memo(function Chat({ user, onLogout }) {
                 <div className="chat-header">
                   <div className="chat-user-info">
                     <img 
-                      src={memoizedSelectedMatch.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
+                      src={memoizedSelectedMatch.matchedUser.profilePhotoThumbnailUrl || memoizedSelectedMatch.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
                       alt={memoizedSelectedMatch.matchedUser.name}
                       onError={(e) => {
                         e.target.src = '/placeholder-avatar.svg';
@@ -1,4 +1,4 @@
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import axios from 'axios';
 import apiConfig from '../config/api';
 import './CoinStore.css';
@@ -9,6 +9,8 @@ function CoinStore({ user, onClose, onCoinsUpdated }) {
   const [purchaseLoading, setPurchaseLoading] = useState(null);
   const [error, setError] = useState('');
   const [success, setSuccess] = useState('');
+  // One Idempotency-Key per package until its purchase succeeds, so a retry never charges twice
+  const purchaseKeys = useRef({});
 
   useEffect(() => {
     fetchPackages();
@@ -44,15 +46,30 @@ function CoinStore({ user, onClose, onCoinsUpdated }) {
     setError('');
     setSuccess('');
 
+    if (!purchaseKeys.current[packageType]) {
+      purchaseKeys.current[packageType] = window.crypto?.randomUUID
+        ? window.crypto.randomUUID()
+        : `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+    }
+
     try {
       const token = localStorage.getItem('authToken');
       const response = await axios.post(
         apiConfig.payment.purchase,
         { package: packageType },
-        { headers: { Authorization: `Bearer ${token}` } }
+        {
+          headers: {
+            Authorization: `Bearer ${token}`,
+            'Idempotency-Key': purchaseKeys.current[packageType]
+          }
+        }
       );
 
-      if (response.data.success) {
+      if (response.status === 202) {
+        // Charged but not credited yet; keep the key so a retry returns the credit instead of paying again
+        setSuccess(response.data.message);
+      } else if (response.data.success) {
+        delete purchaseKeys.current[packageType];
         setSuccess(response.data.message);
         setUserCoins(response.data.newCoinBalance);
         if (onCoinsUpdated) {
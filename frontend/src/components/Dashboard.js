@@ -8,6 +8,41 @@ import CoinStore from './CoinStore';
 import { useSwipeHandler } from '../hooks/useImageLoad';
 import './Dashboard.css';
 
+// Most users one batch request may ask for, learned from the server's answers
+let photoBatchLimit = null;
+
+const fetchPhotoBatch = async (ids, token) => {
+  const response = await axios.get(apiConfig.photos.batch(ids), {
+    headers: { Authorization: `Bearer ${token}` }
+  });
+  photoBatchLimit = response.data.maxUsers || photoBatchLimit;
+  return response.data.photos;
+};
+
+// Gallery photos for every loaded card, in as few requests as the server's batch limit allows
+const fetchCardPhotos = async (userIds, token) => {
+  if (userIds.length === 0) {
+    return {};
+  }
+  const limit = photoBatchLimit || userIds.length;
+  const batches = [];
+  for (let i = 0; i < userIds.length; i += limit) {
+    batches.push(userIds.slice(i, i + limit));
+  }
+  try {
+    const results = await Promise.all(batches.map(ids => fetchPhotoBatch(ids, token)));
+    return Object.assign({}, ...results);
+  } catch (error) {
+    // Too many ids for the server: it says how many it takes, so split and retry
+    const maxUsers = error.response?.status === 400 && error.response.data?.maxUsers;
+    if (maxUsers && maxUsers < limit) {
+      photoBatchLimit = maxUsers;
+      return fetchCardPhotos(userIds, token);
+    }
+    throw error;
+  }
+};
+
 const Dashboard = React.memo(function Dashboard({ user, onLogout }) {
   const [potentialMatches, setPotentialMatches] = useState([]);
   const [currentCardIndex, setCurrentCardIndex] = useState(0);
@@ -16,6 +51,7 @@ const Dashboard = React.memo(function Dashboard({ user, onLogout }) {
   const [showCoinStore, setShowCoinStore] = useState(false);
   const [userCoins, setUserCoins] = useState(0);
   const [refreshing, setRefreshing] = useState(false);
+  const [photosByUser, setPhotosByUser] = useState({});
 
   // Use the custom swipe handler hook
   const { handleSwipe, swipeDirection } = useSwipeHandler(async (action) => {
@@ -53,6 +89,9 @@ const Dashboard = React.memo(function Dashboard({ user, onLogout }) {
       });
       setPotentialMatches(response.data);
       setCurrentCardIndex(0); // Reset to first card when new matches are loaded
+      fetchCardPhotos(response.data.map(match => match.id), token)
+        .then(setPhotosByUser)
+        .catch(() => setPhotosByUser({})); // Cards fall back to the profile picture
     } catch (error) {
       setError('Failed to load potential matches');
     } finally {
@@ -100,8 +139,12 @@ const Dashboard = React.memo(function Dashboard({ user, onLogout }) {
       };
     }
     
-    // Get the resolved photo URL, fallback to placeholder if empty/null
+    // Get the resolved photo URL, falling back to the primary gallery photo, then the placeholder
+    const primaryPhoto = (photosByUser[currentMatch.id] || [])[0];
     let photoUrl = currentMatch.profilePhotoUrl;
+    if ((!photoUrl || photoUrl.trim() === '') && primaryPhoto) {
+      photoUrl = primaryPhoto.mediumUrl || primaryPhoto.photoUrl;
+    }
     if (!photoUrl || photoUrl.trim() === '') {
       photoUrl = '/placeholder-avatar.svg';
     } else {
@@ -117,7 +160,7 @@ const Dashboard = React.memo(function Dashboard({ user, onLogout }) {
       photoUrl: photoUrl,
       id: currentMatch.id
     };
-  }, [currentMatch]);
+  }, [currentMatch, photosByUser]);
 
   if (loading) {
     return (
@@ -82,6 +82,7 @@ function Login({ onLogin }) {
         userId: user.id
       });
       
+      localStorage.setItem('refreshToken', authResponse.refreshToken);
       onLogin(token, user);
     } catch (error) {
       const duration = Date.now() - startTime;
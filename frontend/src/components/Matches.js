@@ -36,6 +36,7 @@ const Matches = ({ user, onLogout }) => {
             bio: matchDto.bio,
             location: matchDto.location,
             profilePhotoUrl: matchDto.profilePhotoUrl,
+            profilePhotoThumbnailUrl: matchDto.profilePhotoThumbnailUrl,
             gender: matchDto.gender,
             interests: matchDto.interests
           },
@@ -78,6 +79,7 @@ const Matches = ({ user, onLogout }) => {
           bio: matchDto.bio,
           location: matchDto.location,
           profilePhotoUrl: matchDto.profilePhotoUrl,
+          profilePhotoThumbnailUrl: matchDto.profilePhotoThumbnailUrl,
           gender: matchDto.gender,
           interests: matchDto.interests
         },
@@ -177,7 +179,7 @@ const Matches = ({ user, onLogout }) => {
               <div key={match.id} className="match-card">
                 <div className="match-card-image">
                   <img 
-                    src={match.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
+                    src={match.matchedUser.profilePhotoThumbnailUrl || match.matchedUser.profilePhotoUrl || '/placeholder-avatar.svg'} 
                     alt={match.matchedUser.name}
                     onError={(e) => {
                       e.target.src = '/placeholder-avatar.svg';
@@ -3,7 +3,8 @@ import Dialog from './Dialog';
 import { useDialog } from '../hooks/useDialog';
 import { resolveProfilePictureUrl } from '../utils/imageUtils';
 import { getUserIdFromToken } from '../utils/jwtUtils';
-import apiConfig from '../config/api';
+import apiConfig, { API_BASE_URL } from '../config/api';
+import { authFetch } from '../utils/tokenRefresh';
 import './PhotoGallery.css';
 
 const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
@@ -14,6 +15,8 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState(null);
   const [newPhotoUrl, setNewPhotoUrl] = useState('');
+  const [newPhotoKey, setNewPhotoKey] = useState(''); // Storage key of a directly uploaded photo
+  const [uploadMode, setUploadMode] = useState(false); // Upload tab selected instead of avatars
   const [newCaption, setNewCaption] = useState('');
   const [isAddingPhoto, setIsAddingPhoto] = useState(false);
   const [uploadingFile, setUploadingFile] = useState(false);
@@ -61,7 +64,6 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
     try {
       setLoading(true);
       setError(null); // Clear any previous errors
-      const token = localStorage.getItem('authToken');
       
       // Use the my-photos endpoint for the current user, or user/{userId} for others
       let apiUrl;
@@ -73,11 +75,7 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
         apiUrl = apiConfig.photos.myPhotos;
       }
       
-      const response = await fetch(apiUrl, {
-        headers: {
-          'Authorization': `Bearer ${token}`
-        }
-      });
+      const response = await authFetch(apiUrl);
       
       if (response.ok) {
         const data = await response.json();
@@ -103,7 +101,7 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
   }, [fetchPhotos, effectiveUserId, userId]);
 
   const addPhoto = async () => {
-    if (!newPhotoUrl) {
+    if (!newPhotoUrl && !newPhotoKey) {
       showError('Photo Required', 'Please select a photo');
       return;
     }
@@ -115,16 +113,14 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
     }
 
     try {
-      const token = localStorage.getItem('authToken');
-      const response = await fetch(apiConfig.photos.add, {
+      const response = await authFetch(apiConfig.photos.add, {
         method: 'POST',
         headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
+          'Content-Type': 'application/json'
         },
         body: JSON.stringify({
           userId: userId,
-          photoUrl: newPhotoUrl,
+          ...(newPhotoKey ? { objectKey: newPhotoKey } : { photoUrl: newPhotoUrl }),
           caption: newCaption
         }),
       });
@@ -133,6 +129,8 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
         const newPhoto = await response.json();
         setPhotos([...photos, newPhoto]);
         setNewPhotoUrl('');
+        setNewPhotoKey('');
+        setUploadMode(false);
         setPreviewUrl('');
         setNewCaption('');
         setIsAddingPhoto(false);
@@ -156,12 +154,8 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
       'Are you sure you want to delete this photo? This action cannot be undone.',
       async () => {
         try {
-          const token = localStorage.getItem('authToken');
-          const response = await fetch(apiConfig.photos.delete(photoId), {
+          const response = await authFetch(apiConfig.photos.delete(photoId), {
             method: 'DELETE',
-            headers: {
-              'Authorization': `Bearer ${token}`
-            },
           });
 
         if (response.ok) {
@@ -177,12 +171,8 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
 
   const setPrimaryPhoto = async (photoId) => {
     try {
-      const token = localStorage.getItem('authToken');
-      const response = await fetch(apiConfig.photos.setPrimary(photoId), {
+      const response = await authFetch(apiConfig.photos.setPrimary(photoId), {
         method: 'PUT',
-        headers: {
-          'Authorization': `Bearer ${token}`
-        },
       });
 
       if (response.ok) {
@@ -197,12 +187,10 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
 
   const setAsProfilePicture = async (photoUrl) => {
     try {
-      const token = localStorage.getItem('authToken');
-      const response = await fetch(apiConfig.users.profilePicture, {
+      const response = await authFetch(apiConfig.users.profilePicture, {
         method: 'PUT',
         headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
+          'Content-Type': 'application/json'
         },
         body: JSON.stringify({
           photoUrl: photoUrl
@@ -235,25 +223,41 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
     setPreviewUrl(localPreviewUrl);
 
     setUploadingFile(true);
+    setNewPhotoKey('');
     try {
-      const formData = new FormData();
-      formData.append('file', file);
-
-      const token = localStorage.getItem('authToken');
-      const response = await fetch(apiConfig.upload.photo, {
+      // Ask for a short-lived upload URL, then send the file straight to storage
+      const response = await authFetch(apiConfig.photos.uploadUrl, {
         method: 'POST',
         headers: {
-          'Authorization': `Bearer ${token}`
+          'Content-Type': 'application/json'
         },
-        body: formData,
+        body: JSON.stringify({
+          contentType: file.type || 'application/octet-stream',
+          size: file.size
+        }),
       });
 
-      if (response.ok) {
-        const result = await response.json();
-        setNewPhotoUrl(result.url);
-      } else {
+      if (!response.ok) {
         const errorData = await response.json();
         showError('Upload Failed', errorData.error || 'Failed to upload file. Please try again.');
+        return;
+      }
+
+      const upload = await response.json();
+      // Local storage hands out server-relative URLs
+      const uploadUrl = upload.uploadUrl.startsWith('/')
+        ? API_BASE_URL.replace(/\/api$/, '') + upload.uploadUrl
+        : upload.uploadUrl;
+      const putResponse = await fetch(uploadUrl, {
+        method: upload.method,
+        headers: upload.headers,
+        body: file,
+      });
+
+      if (putResponse.ok) {
+        setNewPhotoKey(upload.objectKey);
+      } else {
+        showError('Upload Failed', 'Failed to upload file. Please try again.');
       }
     } catch (err) {
       showError('Network Error', 'Error uploading file. Please check your connection.');
@@ -333,20 +337,20 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
           
           <div className="photo-source-tabs">
             <button 
-              className={`tab-btn ${!newPhotoUrl.startsWith('/uploads/') ? 'active' : ''}`}
-              onClick={() => setNewPhotoUrl('')}
+              className={`tab-btn ${!uploadMode ? 'active' : ''}`}
+              onClick={() => { setUploadMode(false); setNewPhotoKey(''); setPreviewUrl(''); }}
             >
               Choose Avatar
             </button>
             <button 
-              className={`tab-btn ${newPhotoUrl.startsWith('/uploads/') ? 'active' : ''}`}
-              onClick={() => setNewPhotoUrl('/uploads/')}
+              className={`tab-btn ${uploadMode ? 'active' : ''}`}
+              onClick={() => { setUploadMode(true); setNewPhotoUrl(''); }}
             >
               Upload Photo
             </button>
           </div>
 
-          {!newPhotoUrl.startsWith('/uploads/') ? (
+          {!uploadMode ? (
             <div className="avatar-selector">
               <label>Select Avatar:</label>
               <div className="avatar-grid">
@@ -372,18 +376,17 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
                 disabled={uploadingFile}
               />
               {uploadingFile && <p className="upload-status">Uploading...</p>}
-              {(previewUrl || newPhotoUrl) && (
+              {previewUrl && (
                 <div className="uploaded-preview">
                   <img 
-                    src={previewUrl || resolveProfilePictureUrl(newPhotoUrl)} 
+                    src={previewUrl} 
                     alt="Preview" 
                     className="preview-image"
                   />
-                  <p>Photo ready to add!</p>
+                  {newPhotoKey && <p>Photo ready to add!</p>}
                   <div style={{ fontSize: '12px', color: '#666', marginTop: '5px' }}>
-                    {previewUrl && <div>Local Preview: {previewUrl.substring(0, 50)}...</div>}
-                    {newPhotoUrl && <div>Server URL: {newPhotoUrl}</div>}
-                    {newPhotoUrl && <div>Resolved URL: {resolveProfilePictureUrl(newPhotoUrl)}</div>}
+                    <div>Local Preview: {previewUrl.substring(0, 50)}...</div>
+                    {newPhotoKey && <div>Storage Key: {newPhotoKey}</div>}
                   </div>
                 </div>
               )}
@@ -402,13 +405,16 @@ const PhotoGallery = ({ userId, onProfilePictureUpdate }) => {
           </div>
 
           <div className="form-actions">
-            <button onClick={addPhoto} className="save-btn" disabled={!newPhotoUrl}>
+            <button onClick={addPhoto} className="save-btn" disabled={uploadMode ? !newPhotoKey : !newPhotoUrl}>
               {uploadingFile ? 'Uploading...' : 'Add Photo'}
             </button>
             <button 
               onClick={() => {
                 setIsAddingPhoto(false);
                 setNewPhotoUrl('');
+                setNewPhotoKey('');
+                setUploadMode(false);
+                setPreviewUrl('');
                 setNewCaption('');
               }}
               className="cancel-btn"
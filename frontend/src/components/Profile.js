@@ -4,6 +4,7 @@ import axios from 'axios';
 import PhotoGallery from './PhotoGallery';
 import { resolveProfilePictureUrl } from '../utils/imageUtils';
 import apiConfig from '../config/api';
+import { authFetch } from '../utils/tokenRefresh';
 import './Profile.css';
 
 function Profile({ user, setUser, onLogout }) {
@@ -41,12 +42,7 @@ function Profile({ user, setUser, onLogout }) {
   // Function to fetch current user info if user ID is missing
   const fetchCurrentUser = useCallback(async () => {
     try {
-      const token = localStorage.getItem('authToken');
-      const response = await fetch(apiConfig.users.profile, {
-        headers: {
-          'Authorization': `Bearer ${token}`
-        }
-      });
+      const response = await authFetch(apiConfig.users.profile);
       
       if (response.ok) {
         const userData = await response.json();
@@ -70,13 +66,8 @@ function Profile({ user, setUser, onLogout }) {
   const fetchUserStats = useCallback(async () => {
     try {
       setStatsLoading(true);
-      const token = localStorage.getItem('authToken');
       
-      const response = await fetch(apiConfig.users.stats, {
-        headers: {
-          'Authorization': `Bearer ${token}`
-        }
-      });
+      const response = await authFetch(apiConfig.users.stats);
       
       if (response.ok) {
         const stats = await response.json();
@@ -244,12 +235,7 @@ function Profile({ user, setUser, onLogout }) {
 
     try {
       // First, check if user has reached the photo limit
-      const token = localStorage.getItem('authToken');
-      const photoCountResponse = await fetch(apiConfig.photos.count, {
-        headers: {
-          'Authorization': `Bearer ${token}`
-        }
-      });
+      const photoCountResponse = await authFetch(apiConfig.photos.count);
 
       if (photoCountResponse.ok) {
         const countData = await photoCountResponse.json();
@@ -258,16 +244,13 @@ function Profile({ user, setUser, onLogout }) {
         }
       }
 
-      // Upload the file
-      const formData = new FormData();
-      formData.append('file', file);
-
-      const uploadResponse = await fetch(apiConfig.upload.photo, {
+      // Upload the raw file as the request body
+      const uploadResponse = await authFetch(apiConfig.upload.photo, {
         method: 'POST',
         headers: {
-          'Authorization': `Bearer ${token}`
+          'Content-Type': file.type || 'application/octet-stream'
         },
-        body: formData,
+        body: file,
       });
 
       if (!uploadResponse.ok) {
@@ -279,11 +262,10 @@ function Profile({ user, setUser, onLogout }) {
       const photoUrl = uploadResult.url;
 
       // Add the photo to user's gallery
-      const addPhotoResponse = await fetch(apiConfig.photos.add, {
+      const addPhotoResponse = await authFetch(apiConfig.photos.add, {
         method: 'POST',
         headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
+          'Content-Type': 'application/json'
         },
         body: JSON.stringify({
           photoUrl: photoUrl,
@@ -297,11 +279,10 @@ function Profile({ user, setUser, onLogout }) {
       }
 
       // Set as profile picture
-      const profileResponse = await fetch(apiConfig.users.profilePicture, {
+      const profileResponse = await authFetch(apiConfig.users.profilePicture, {
         method: 'PUT',
         headers: {
-          'Content-Type': 'application/json',
-          'Authorization': `Bearer ${token}`
+          'Content-Type': 'application/json'
         },
         body: JSON.stringify({
           photoUrl: photoUrl
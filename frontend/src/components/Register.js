@@ -74,15 +74,13 @@ function Register({ onRegister }) {
   };
 
   const uploadPhoto = async (file) => {
-    const formData = new FormData();
-    formData.append('file', file);
-
     try {
       setPhotoUploading(true);
       
-      const response = await axios.post(apiConfig.upload.photo, formData, {
+      // Send the raw file as the body so the server can stream it to disk
+      const response = await axios.post(apiConfig.upload.photo, file, {
         headers: {
-          'Content-Type': 'multipart/form-data',
+          'Content-Type': file.type || 'application/octet-stream',
         },
       });
       
@@ -1,4 +1,5 @@
 import React, { useState, useEffect } from 'react';
+import { authFetch } from '../utils/tokenRefresh';
 import './VerificationStatus.css';
 
 const VerificationStatus = ({ userId, showDetails = true }) => {
@@ -13,11 +14,7 @@ const VerificationStatus = ({ userId, showDetails = true }) => {
     const fetchVerificationStatus = async () => {
         try {
             setLoading(true);
-            const response = await fetch(`/api/verification/status/${userId}`, {
-                headers: {
-                    'Authorization': `Bearer ${localStorage.getItem('token')}`
-                }
-            });
+            const response = await authFetch(`/api/verification/status/${userId}`);
 
             const data = await response.json();
 
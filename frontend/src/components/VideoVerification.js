@@ -1,5 +1,6 @@
 import React, { useState, useRef, useCallback } from 'react';
 import './VideoVerification.css';
+import { uploadResumable } from '../utils/resumableUpload';
 
 const VideoVerification = ({ userId, onVerificationComplete }) => {
     const [isRecording, setIsRecording] = useState(false);
@@ -107,21 +108,10 @@ const VideoVerification = ({ userId, onVerificationComplete }) => {
         setUploading(true);
 
         try {
-            const formData = new FormData();
-            formData.append('video', recordedVideo, 'verification.webm');
-            formData.append('userId', userId);
-
-            const response = await fetch('/api/verification/submit', {
-                method: 'POST',
-                headers: {
-                    'Authorization': `Bearer ${localStorage.getItem('token')}`
-                },
-                body: formData
-            });
-
-            const data = await response.json();
+            // Sent in chunks so a dropped connection resumes instead of restarting
+            const data = await uploadResumable('/api/verification', recordedVideo);
 
-            if (data.success) {
+            if (data.verificationId) {
                 setVerificationStatus('submitted');
                 stopCamera();
                 if (onVerificationComplete) {
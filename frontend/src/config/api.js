@@ -41,6 +41,8 @@ const apiConfig = {
   auth: {
     signin: `${API_BASE_URL}/auth/signin`,
     signup: `${API_BASE_URL}/auth/signup`,
+    refresh: `${API_BASE_URL}/auth/refresh`,
+    logout: `${API_BASE_URL}/auth/logout`,
     verifyEmail: `${API_BASE_URL}/auth/verify-email`,
     resendVerification: `${API_BASE_URL}/auth/resend-verification`,
     verificationStatus: `${API_BASE_URL}/auth/verification-status`
@@ -78,7 +80,9 @@ const apiConfig = {
   photos: {
     user: (userId) => `${API_BASE_URL}/photos/user/${userId}`,
     myPhotos: `${API_BASE_URL}/photos/my-photos`,
+    batch: (userIds) => `${API_BASE_URL}/photos/batch?userIds=${userIds.join(',')}`,
     add: `${API_BASE_URL}/photos/add`,
+    uploadUrl: `${API_BASE_URL}/photos/upload-url`,
     delete: (photoId) => `${API_BASE_URL}/photos/${photoId}`,
     setPrimary: (photoId) => `${API_BASE_URL}/photos/primary/${photoId}`,
     count: `${API_BASE_URL}/photos/count`
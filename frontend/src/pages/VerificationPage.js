@@ -2,6 +2,7 @@ import React, { useState, useEffect } from 'react';
 import { useNavigate } from 'react-router-dom';
 import VideoVerification from '../components/VideoVerification';
 import VerificationStatus from '../components/VerificationStatus';
+import { authFetch } from '../utils/tokenRefresh';
 import './VerificationPage.css';
 
 const VerificationPage = () => {
@@ -25,11 +26,7 @@ const VerificationPage = () => {
 
     const fetchVerificationStatus = async (userId) => {
         try {
-            const response = await fetch(`/api/verification/status/${userId}`, {
-                headers: {
-                    'Authorization': `Bearer ${localStorage.getItem('token')}`
-                }
-            });
+            const response = await authFetch(`/api/verification/status/${userId}`);
 
             const data = await response.json();
             if (data.success) {
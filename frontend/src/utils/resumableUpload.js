@@ -0,0 +1,80 @@
+// Chunked, resumable upload against the backend's /uploads endpoints.
+// After a dropped connection the client asks the server how much it has
+// (HEAD -> Upload-Offset) and continues from there instead of restarting.
+// Every request goes through authFetch, so a token that expires during a
+// long upload is refreshed instead of failing the chunk.
+
+import { authFetch } from './tokenRefresh';
+
+const MAX_ATTEMPTS = 5;
+
+const sha256Header = async (chunk) => {
+  if (!window.crypto || !window.crypto.subtle) {
+    return null;
+  }
+  const digest = await window.crypto.subtle.digest('SHA-256', await chunk.arrayBuffer());
+  let binary = '';
+  new Uint8Array(digest).forEach((b) => { binary += String.fromCharCode(b); });
+  return `sha256 ${btoa(binary)}`;
+};
+
+const wait = (ms) => new Promise((resolve) => setTimeout(resolve, ms));
+
+export const uploadResumable = async (baseUrl, blob, { onProgress } = {}) => {
+  const created = await authFetch(`${baseUrl}/uploads`, {
+    method: 'POST',
+    headers: { 'Upload-Length': String(blob.size) }
+  });
+  const session = await created.json();
+  if (!created.ok) {
+    throw new Error(session.error || 'Could not start upload');
+  }
+  const uploadUrl = `${baseUrl}/uploads/${session.uploadId}`;
+  const chunkSize = session.maxChunkSize;
+
+  let offset = session.offset;
+  let attempts = 0;
+  while (offset < blob.size) {
+    const chunk = blob.slice(offset, Math.min(offset + chunkSize, blob.size));
+    try {
+      const checksum = await sha256Header(chunk);
+      const response = await authFetch(uploadUrl, {
+        method: 'PATCH',
+        headers: {
+          'Content-Type': 'application/offset+octet-stream',
+          'Upload-Offset': String(offset),
+          ...(checksum ? { 'Upload-Checksum': checksum } : {})
+        },
+        body: chunk
+      });
+      if (response.status === 404) {
+        throw new Error('Upload expired, please try again');
+      }
+      if (!response.ok && response.status !== 409 && response.status !== 460) {
+        throw new Error(`Chunk failed with ${response.status}`);
+      }
+      // 409 and 460 also carry the offset to continue from
+      offset = Number(response.headers.get('Upload-Offset'));
+      attempts = 0;
+      if (onProgress) {
+        onProgress(offset / blob.size);
+      }
+    } catch (error) {
+      if (error.message.startsWith('Upload expired') || ++attempts >= MAX_ATTEMPTS) {
+        throw error;
+      }
+      await wait(1000 * 2 ** attempts);
+      const head = await authFetch(uploadUrl, { method: 'HEAD' }).catch(() => null);
+      if (head && head.ok) {
+        offset = Number(head.headers.get('Upload-Offset'));
+      }
+    }
+  }
+
+  const completed = await authFetch(`${uploadUrl}/complete`, { method: 'POST' });
+  const data = await completed.json();
+  if (!completed.ok) {
+    throw new Error(data.error || 'Could not complete upload');
+  }
+  return data;
+};
@@ -0,0 +1,132 @@
+import axios from 'axios';
+import apiConfig from '../config/api';
+
+/**
+ * Access tokens expire after a few minutes. When a request comes back 401,
+ * exchange the stored refresh token for a new pair and replay the request
+ * once. Concurrent 401s share a single refresh call, since each refresh
+ * token can only be used once - within a tab through refreshInFlight, and
+ * across tabs through a Web Lock (or, without one, by waiting briefly for
+ * the tab that won to publish its new token).
+ */
+const REFRESH_LOCK = 'findtheone-token-refresh';
+const CROSS_TAB_GRACE_MS = 3000;
+
+let refreshInFlight = null;
+
+const bearer = (token) => (token ? `Bearer ${token}` : undefined);
+
+const endSession = () => {
+  localStorage.removeItem('authToken');
+  localStorage.removeItem('refreshToken');
+  localStorage.removeItem('userData');
+  window.location.assign('/login');
+};
+
+// Resolves with the next access token another tab stores, or null after the grace window
+const waitForOtherTab = () => new Promise((resolve) => {
+  let timer;
+  const onStorage = (event) => {
+    if (event.key === 'authToken' && event.newValue) {
+      done(event.newValue);
+    }
+  };
+  const done = (token) => {
+    clearTimeout(timer);
+    window.removeEventListener('storage', onStorage);
+    resolve(token);
+  };
+  timer = setTimeout(() => done(null), CROSS_TAB_GRACE_MS);
+  window.addEventListener('storage', onStorage);
+});
+
+const exchangeRefreshToken = async (staleToken) => {
+  // Another tab may already have rotated the pair while this one waited
+  const current = localStorage.getItem('authToken');
+  if (current && current !== staleToken) {
+    return current;
+  }
+  const refreshToken = localStorage.getItem('refreshToken');
+  if (!refreshToken) {
+    throw new Error('No refresh token');
+  }
+
+  try {
+    const response = await axios.post(apiConfig.auth.refresh, { refreshToken }, { skipTokenRefresh: true });
+    // Refresh token first, so a tab woken by the authToken event sees a complete pair
+    localStorage.setItem('refreshToken', response.data.refreshToken);
+    localStorage.setItem('authToken', response.data.token);
+    return response.data.token;
+  } catch (error) {
+    // Lost the race for the single-use refresh token to another tab
+    if (localStorage.getItem('refreshToken') !== refreshToken) {
+      return localStorage.getItem('authToken');
+    }
+    const token = await waitForOtherTab();
+    if (token) {
+      return token;
+    }
+    throw error;
+  }
+};
+
+const refreshAccessToken = (staleToken) => {
+  if (!refreshInFlight) {
+    const refresh = () => exchangeRefreshToken(staleToken);
+    refreshInFlight = (navigator.locks ? navigator.locks.request(REFRESH_LOCK, refresh) : refresh())
+      .finally(() => {
+        refreshInFlight = null;
+      });
+  }
+  return refreshInFlight;
+};
+
+/**
+ * fetch() with the current access token, refreshed and retried once on 401.
+ * For requests axios cannot make, such as streaming uploads.
+ */
+export const authFetch = async (url, options = {}) => {
+  const send = (token) => fetch(url, {
+    ...options,
+    headers: { ...options.headers, Authorization: bearer(token) }
+  });
+
+  const token = localStorage.getItem('authToken');
+  const response = await send(token);
+  if (response.status !== 401) {
+    return response;
+  }
+
+  let freshToken;
+  try {
+    freshToken = await refreshAccessToken(token);
+  } catch (refreshError) {
+    endSession();
+    return response;
+  }
+  return send(freshToken);
+};
+
+export const installTokenRefresh = () => {
+  axios.interceptors.response.use(
+    (response) => response,
+    async (error) => {
+      const config = error.config;
+      if (error.response?.status !== 401 || !config || config.skipTokenRefresh || config.tokenRefreshed
+          || config.url?.includes('/auth/')) {
+        return Promise.reject(error);
+      }
+
+      try {
+        const staleToken = String(config.headers?.Authorization || '').replace(/^Bearer /, '');
+        const token = await refreshAccessToken(staleToken);
+        config.tokenRefreshed = true;
+        config.headers = { ...config.headers, Authorization: bearer(token) };
+        return axios(config);
+      } catch (refreshError) {
+        endSession();
+        return Promise.reject(error);
+      }
+    }
+  );
+};